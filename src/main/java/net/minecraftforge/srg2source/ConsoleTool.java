@@ -90,6 +90,8 @@ public class ConsoleTool {
                 que.add(arg);
 
             List<String> _args = new ArrayList<String>();
+            int workers = 0;
+            List<String> workerJvmArgs = new ArrayList<>();
 
             String arg;
             while ((arg = que.poll()) != null) {
@@ -105,20 +107,42 @@ public class ConsoleTool {
                 }
                 else if (arg.startsWith("--cfg="))
                     Files.readAllLines(Paths.get(arg.substring(6))).forEach(que::add);
+                else if ("--workers".equals(arg)) {
+                    String value = que.poll();
+                    if (value == null)
+                        throw new IllegalArgumentException("Invalid --workers entry, missing worker count");
+                    workers = Integer.parseInt(value);
+                } else if (arg.startsWith("--workers="))
+                    workers = Integer.parseInt(arg.substring(10));
+                else if ("--workerJvmArg".equals(arg)) {
+                    String value = que.poll();
+                    if (value == null)
+                        throw new IllegalArgumentException("Invalid --workerJvmArg entry, missing argument");
+                    workerJvmArgs.add(value);
+                } else if (arg.startsWith("--workerJvmArg="))
+                    workerJvmArgs.add(arg.substring(15));
                 else
                     _args.add(arg);
             }
 
             if (target == null)
                 System.out.println("Must specify a task to run: " + tasks.keySet().stream().collect(Collectors.joining(", ")));
-            else
+            else if (workers > 0) {
+                // Fork extraction out to other JVMs, see RangeExtractCoordinator
+                if (target != Task.EXTRACT)
+                    throw new IllegalArgumentException("--workers is only supported for " + Task.EXTRACT + ", not " + target);
+                new RangeExtractCoordinator(workers, workerJvmArgs).run(_args.toArray(new String[_args.size()]));
+            } else
                 target.task.accept(_args.toArray(new String[_args.size()]));
         }
     }
 
     private static enum Task {
         APPLY(RangeApplyMain::main),
-        EXTRACT(RangeExtractMain::main);
+        EXTRACT(RangeExtractMain::main),
+        MERGE(RangeMergeMain::main),
+        REMAP(RangeRemapMain::main),
+        VERIFY(RangeVerifyMain::main);
 
         private Consumer<String[]> task;
         private Task(Consumer<String[]> task) {
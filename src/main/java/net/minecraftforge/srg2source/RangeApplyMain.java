@@ -53,6 +53,16 @@ public class RangeApplyMain {
         OptionSpec<Void> sortImportArg = parser.acceptsAll(a("sortImports"));
         OptionSpec<Void> guessLambdasArg = parser.acceptsAll(a("guessLambdas"));
         OptionSpec<Void> guessLocalsArg = parser.acceptsAll(a("guessLocals"));
+        OptionSpec<Void> asyncOutputArg = parser.acceptsAll(a("asyncOutput"));
+        OptionSpec<Void> skipUnchangedArg = parser.acceptsAll(a("skipUnchanged")); //Don't rewrite output files that are already up to date
+        OptionSpec<Void> parallelArg = parser.acceptsAll(a("parallel")); //Rewrite files on every core at once, the log is no longer in order
+        OptionSpec<Void> copyResourcesArg = parser.acceptsAll(a("copyResources")); //Copy everything that isn't java source to the output as is
+        OptionSpec<Void> jarPipelineArg = parser.acceptsAll(a("jarPipeline")); //Read and write jars with the random access reader and parallel writer, implied by --parallel
+        OptionSpec<Void> deleteStaleArg = parser.acceptsAll(a("deleteStale")); //Delete java files in the output that weren't written
+
+        //Additional outputs, each paired with the mapping at the same index. Share everything else with the main output.
+        OptionSpec<Path> targetOutArg = parser.acceptsAll(a("targetOut")).withRequiredArg().withValuesConvertedBy(PATH_CONVERTER);
+        OptionSpec<Path> targetMapArg = parser.acceptsAll(a("targetMap")).withRequiredArg().withValuesConvertedBy(PATH_CONVERTER);
 
         try
         {
@@ -73,6 +83,12 @@ public class RangeApplyMain {
             System.out.println("Sort:    " + options.has(sortImportArg));
             System.out.println("Lambdas: " + options.has(guessLambdasArg));
             System.out.println("Locals:  " + options.has(guessLocalsArg));
+            System.out.println("Async:   " + options.has(asyncOutputArg));
+            System.out.println("Skip:    " + options.has(skipUnchangedArg));
+            System.out.println("Stale:   " + options.has(deleteStaleArg));
+            System.out.println("Parallel: " + options.has(parallelArg));
+            System.out.println("Resources: " + options.has(copyResourcesArg));
+            System.out.println("Jar Pipeline: " + options.has(jarPipelineArg));
 
             RangeApplierBuilder builder = new RangeApplierBuilder()
                 .range(range)
@@ -81,6 +97,19 @@ public class RangeApplyMain {
                 .guessLocals(options.has(guessLocalsArg))
                 .sortImports(options.has(sortImportArg));
 
+            if (options.has(asyncOutputArg))
+                builder.asyncOutput();
+            if (options.has(skipUnchangedArg))
+                builder.skipUnchanged();
+            if (options.has(deleteStaleArg))
+                builder.deleteStale();
+            if (options.has(parallelArg))
+                builder.parallel();
+            if (options.has(copyResourcesArg))
+                builder.copyResources();
+            if (options.has(jarPipelineArg))
+                builder.jarPipeline();
+
             if (options.has(mappingArg))
             {
                 options.valuesOf(mappingArg).forEach(v -> {
@@ -107,6 +136,37 @@ public class RangeApplyMain {
             else
                 builder.trimImports();
 
+            List<Path> targetOuts = options.valuesOf(targetOutArg);
+            List<Path> targetMaps = options.valuesOf(targetMapArg);
+            if (targetOuts.size() != targetMaps.size())
+                throw new IllegalArgumentException("Every --targetOut must have a matching --targetMap");
+
+            for (int x = 0; x < targetOuts.size(); x++) {
+                System.out.println("Target:  " + targetOuts.get(x) + " " + targetMaps.get(x));
+                RangeApplierBuilder target = new RangeApplierBuilder()
+                    .output(targetOuts.get(x))
+                    .srg(targetMaps.get(x))
+                    .guessLambdas(options.has(guessLambdasArg))
+                    .guessLocals(options.has(guessLocalsArg))
+                    .sortImports(options.has(sortImportArg));
+
+                if (options.has(asyncOutputArg))
+                    target.asyncOutput();
+                if (options.has(skipUnchangedArg))
+                    target.skipUnchanged();
+                if (options.has(deleteStaleArg))
+                    target.deleteStale();
+
+                options.valuesOf(excArg).forEach(target::exc);
+
+                if (keepImports)
+                    target.keepImports();
+                else
+                    target.trimImports();
+
+                builder.target(target);
+            }
+
             builder.build().run();
         }
         catch (OptionException e)
@@ -0,0 +1,191 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+import joptsimple.util.PathConverter;
+import net.minecraftforge.srg2source.range.RangeMap;
+import net.minecraftforge.srg2source.range.RangeMapWriter;
+import net.minecraftforge.srg2source.range.SplitRangeMap;
+
+/**
+ * Runs extraction in several worker JVMs at once, each one extracting a contiguous shard of the sorted file list
+ * and streaming it's range maps back over stdout. JDT isn't safe to run in parallel in one JVM, and this way each worker
+ * gets it's own heap, and one blowing up doesn't take the others with it. Each worker's range maps go to a temp file
+ * as they arrive, and the files are joined in order once every worker has finished, so nothing is held in memory.
+ * <p>
+ * Workers are given exactly the same arguments as {@link RangeExtractMain}, and the output is exactly the same as
+ * extracting everything in one JVM.
+ */
+public class RangeExtractCoordinator {
+    private final int workers;
+    private final List<String> jvmArgs;
+
+    public RangeExtractCoordinator(int workers, List<String> jvmArgs) {
+        if (workers < 1)
+            throw new IllegalArgumentException("Invalid worker count: " + workers);
+        this.workers = workers;
+        this.jvmArgs = jvmArgs;
+    }
+
+    public void run(String[] args) throws IOException, InterruptedException {
+        // We only care about where the output goes, everything else is passed to the workers as is.
+        OptionParser parser = new OptionParser(false);
+        parser.allowsUnrecognizedOptions();
+        OptionSpec<Path> outputArg = parser.acceptsAll(Arrays.asList("out", "output")).withRequiredArg().withValuesConvertedBy(new PathConverter()).required();
+        OptionSpec<Void> splitArg = parser.accepts("split");
+        OptionSpec<Void> compactArg = parser.accepts("compact");
+        OptionSet options = parser.parse(args);
+
+        Path output = options.valueOf(outputArg);
+        boolean split = options.has(splitArg);
+        boolean pretty = !options.has(compactArg);
+        System.out.println("Workers: " + workers);
+        System.out.println("Output:  " + output);
+
+        Path parent = output.toAbsolutePath().getParent();
+        if (!Files.exists(parent))
+            Files.createDirectories(parent);
+        Path shards = Files.createTempDirectory(parent, output.getFileName() + ".workers");
+        try {
+            // Split output has to be read back in, so the shards might as well be compact.
+            List<Worker> running = new ArrayList<>();
+            for (int x = 0; x < workers; x++)
+                running.add(new Worker(x, args, shards.resolve("shard" + x + ".range"), pretty && !split));
+
+            List<String> failed = new ArrayList<>();
+            for (Worker worker : running) {
+                String error = worker.waitFor();
+                if (error != null)
+                    failed.add(error);
+            }
+
+            if (!failed.isEmpty()) {
+                failed.forEach(System.err::println);
+                throw new IllegalStateException(failed.size() + "/" + workers + " extraction workers failed, no output written");
+            }
+
+            // Shards are contiguous slices of the sorted file list, so writing them in order keeps the output sorted.
+            int total = 0;
+            if (split) {
+                try (SplitRangeMap.Writer out = SplitRangeMap.writer(output, pretty)) {
+                    for (Worker worker : running) {
+                        try (InputStream in = Files.newInputStream(worker.shard)) {
+                            RangeMap.readAll(in, out::write);
+                        }
+                        total += worker.count;
+                    }
+                }
+            } else {
+                // Range maps don't have a header or footer, so the shards are already exactly what a single writer would write.
+                try (OutputStream out = Files.newOutputStream(output)) {
+                    for (Worker worker : running) {
+                        Files.copy(worker.shard, out);
+                        total += worker.count;
+                    }
+                }
+            }
+            System.out.println("Extracted " + total + " files");
+        } finally {
+            try (Stream<Path> files = Files.list(shards)) {
+                for (Path file : files.collect(Collectors.toList()))
+                    Files.delete(file);
+            }
+            Files.delete(shards);
+        }
+    }
+
+    private class Worker {
+        private final String name;
+        private final Path shard;
+        private final Process process;
+        private final Thread reader;
+        private int count = 0; // Only touched by the reader, and read after it has been joined
+        private volatile Exception error = null;
+
+        private Worker(int index, String[] args, Path shard, boolean pretty) throws IOException {
+            this.name = "Worker " + index + '/' + workers;
+            this.shard = shard;
+
+            List<String> cmd = new ArrayList<>();
+            cmd.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            cmd.addAll(jvmArgs);
+            cmd.add("-cp");
+            cmd.add(System.getProperty("java.class.path"));
+            cmd.add(ConsoleTool.class.getName());
+            cmd.add("--extract");
+            cmd.addAll(Arrays.asList(args));
+            cmd.add("--worker");
+            cmd.add(index + "/" + workers);
+
+            // Logs come out on stderr, stdout is just the range maps.
+            this.process = new ProcessBuilder(cmd).redirectError(Redirect.INHERIT).start();
+            // Each range map goes to disk as soon as it's read, so no worker's output is ever all in memory at once.
+            this.reader = new Thread(() -> {
+                try (InputStream in = process.getInputStream();
+                     RangeMapWriter out = new RangeMapWriter(Files.newBufferedWriter(shard), pretty)) {
+                    String[] last = { null };
+                    RangeMap.readAll(in, range -> {
+                        // Workers extract in sorted order, and the output is only sorted if that's true.
+                        if (last[0] != null && last[0].compareTo(range.getFilename()) >= 0)
+                            throw new IllegalStateException("Out of order range map: " + range.getFilename() + " after " + last[0]);
+                        last[0] = range.getFilename();
+                        out.write(range);
+                        count++;
+                    });
+                } catch (Exception e) {
+                    this.error = e;
+                    process.destroy();
+                }
+            }, "Srg2Source " + name);
+            this.reader.setDaemon(true);
+            this.reader.start();
+        }
+
+        /**
+         * @return An error message if this worker failed, null if it finished cleanly
+         */
+        private String waitFor() throws InterruptedException {
+            int code = process.waitFor();
+            reader.join();
+
+            if (error != null)
+                return name + " sent invalid output: " + error;
+            if (code != 0)
+                return name + " exited with code " + code;
+            return null;
+        }
+    }
+}
@@ -19,8 +19,14 @@
 
 package net.minecraftforge.srg2source;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -35,6 +41,9 @@ import joptsimple.ValueConverter;
 import joptsimple.util.PathConverter;
 import net.minecraftforge.srg2source.api.RangeExtractorBuilder;
 import net.minecraftforge.srg2source.api.SourceVersion;
+import net.minecraftforge.srg2source.extract.RangeExtractWatcher;
+import net.minecraftforge.srg2source.extract.RangeExtractor;
+import net.minecraftforge.srg2source.range.RangeCache;
 
 public class RangeExtractMain {
     private static final ValueConverter<Path> PATH_CONVERTER = new PathConverter();
@@ -54,7 +63,17 @@ public class RangeExtractMain {
         OptionSpec<File> libArg = parser.acceptsAll(Arrays.asList("e", "lib")).withRequiredArg().ofType(File.class);
         OptionSpec<Path> inputArg = parser.acceptsAll(Arrays.asList("in", "input")).withRequiredArg().withValuesConvertedBy(PATH_CONVERTER).required();
         OptionSpec<Path> outputArg = parser.acceptsAll(Arrays.asList("out", "output")).withRequiredArg().withValuesConvertedBy(PATH_CONVERTER).required();
+        OptionSpec<Void> splitArg = parser.accepts("split"); //Output is a directory or zip with an entry per file, see SplitRangeMap
+        OptionSpec<Void> compactArg = parser.accepts("compact"); //No indentation or structure comments in the output
         OptionSpec<Boolean> batch = parser.accepts("batch").withOptionalArg().ofType(Boolean.class).defaultsTo(true);
+        OptionSpec<String> batchSizeArg = parser.accepts("batchSize").withRequiredArg().defaultsTo("0"); //Files per batch group, 0 for all at once, or auto
+        OptionSpec<String> shardArg = parser.accepts("shard").withRequiredArg(); //Only extract slice i/N of the sorted files, 0 based, put back together with --merge
+        OptionSpec<String> workerArg = parser.accepts("worker").withRequiredArg(); //Internal, used by RangeExtractCoordinator. Extract shard i/N and stream it to stdout
+        OptionSpec<Path> cacheArg = parser.accepts("cache").withRequiredArg().withValuesConvertedBy(PATH_CONVERTER); //Range map from an earlier --incremental run, to reuse what hasn't changed
+        OptionSpec<Path> cacheDirArg = parser.accepts("cacheDir").withRequiredArg().withValuesConvertedBy(PATH_CONVERTER); //Directory of range maps that can be shared between branches and builds
+        OptionSpec<Long> cacheSizeArg = parser.accepts("cacheSize").withRequiredArg().ofType(Long.class).defaultsTo(RangeCache.DEFAULT_MAX_SIZE / (1024 * 1024)); //Size in MB to trim --cacheDir to when finished
+        OptionSpec<Void> watchArg = parser.accepts("watch"); //Keep running, and extract again whenever a source file changes
+        OptionSpec<Void> incrementalArg = parser.accepts("incremental"); //Record what every file depends on, so the output can be used as a --cache
         OptionSpec<Boolean> mixins = parser.accepts("mixins").withOptionalArg().ofType(Boolean.class).defaultsTo(true);
         OptionSpec<Boolean> mixins_fatal = parser.accepts("fatalmixins").withOptionalArg().ofType(Boolean.class).defaultsTo(false);
         //TODO: Encoding argument
@@ -83,18 +102,73 @@ public class RangeExtractMain {
 
         try {
             OptionSet options = parser.parse(args);
+            PrintStream stdout = System.out;
+            if (options.has(workerArg))
+                System.setOut(System.err); //Stdout is the pipe back to the coordinator, so nothing else can be written to it.
+
             boolean enableMixins = options.has(mixins) && options.valueOf(mixins);
             boolean fatalMixins = enableMixins && (options.has(mixins_fatal) && options.valueOf(mixins_fatal));
             System.out.println("Compat: " + options.valueOf(jversionArg));
             System.out.println("Output: " + options.valueOf(outputArg));
+            System.out.println("Split:  " + options.has(splitArg));
+            System.out.println("Compact: " + options.has(compactArg));
             System.out.println("Batch:  " + options.valueOf(batch));
+            System.out.println("Size:   " + options.valueOf(batchSizeArg));
             System.out.println("Mixins: " + enableMixins);
             System.out.println("Fatal:  " + fatalMixins);
 
             RangeExtractorBuilder builder = new RangeExtractorBuilder()
                 .sourceCompatibility(options.valueOf(jversionArg))
-                .output(options.valueOf(outputArg))
-                .batch(options.valueOf(batch));
+                .compact(options.has(compactArg))
+                .batch(options.valueOf(batch))
+                .batchSize("auto".equalsIgnoreCase(options.valueOf(batchSizeArg)) ? RangeExtractor.AUTO_BATCH_SIZE : Integer.parseInt(options.valueOf(batchSizeArg)));
+
+            if (options.has(cacheArg)) {
+                Path cache = options.valueOf(cacheArg);
+                System.out.println("Cache:  " + cache);
+                // A single output file is truncated as soon as it's opened, long before the cache is read. Split outputs are updated in place, so they're fine.
+                if (!options.has(splitArg) && Files.exists(cache) && Files.exists(options.valueOf(outputArg)) && Files.isSameFile(cache, options.valueOf(outputArg)))
+                    throw new IllegalArgumentException("--cache can not be the same file as --out, use --split to update a range map in place");
+                builder.cache(cache.toFile());
+            }
+
+            if (options.has(cacheDirArg)) {
+                System.out.println("CacheDir: " + options.valueOf(cacheDirArg));
+                System.out.println("CacheSize: " + options.valueOf(cacheSizeArg) + "MB");
+                builder.cacheDirectory(options.valueOf(cacheDirArg), options.valueOf(cacheSizeArg) * 1024 * 1024);
+            }
+
+            boolean watch = options.has(watchArg);
+            if (watch) {
+                System.out.println("Watch:  true");
+                if (options.has(shardArg) || options.has(workerArg))
+                    throw new IllegalArgumentException("--watch can not be used with --shard or --worker");
+            }
+
+            if (options.has(incrementalArg)) {
+                System.out.println("Incremental: true");
+                builder.incremental();
+            }
+
+            if (options.has(shardArg)) {
+                System.out.println("Shard:  " + options.valueOf(shardArg));
+                int[] shard = parseShard(options.valueOf(shardArg));
+                builder.shard(shard[0], shard[1]);
+            }
+
+            if (options.has(workerArg)) {
+                System.out.println("Worker: " + options.valueOf(workerArg));
+                int[] shard = parseShard(options.valueOf(workerArg));
+                builder.shard(shard[0], shard[1])
+                    .logger(System.err)
+                    .compact() // The coordinator writes the real output, so make it quick to send
+                    .output(new PrintWriter(new BufferedWriter(new OutputStreamWriter(stdout, StandardCharsets.UTF_8))));
+            } else if (watch) {
+                // The watcher opens a new output for every pass.
+            } else if (options.has(splitArg))
+                builder.splitOutput(options.valueOf(outputArg));
+            else
+                builder.output(options.valueOf(outputArg));
 
             if (options.has(libArg)) {
                 options.valuesOf(libArg).forEach(v -> {
@@ -113,10 +187,30 @@ public class RangeExtractMain {
             if (fatalMixins)
                 builder.fatalMixins();
 
-            builder.build().run();
+            if (watch) {
+                RangeExtractWatcher watcher = new RangeExtractWatcher(builder::build, options.valueOf(outputArg), options.has(splitArg), !options.has(compactArg));
+                options.valuesOf(inputArg).stream().filter(Files::isDirectory).forEach(watcher::addRoot);
+                try {
+                    watcher.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            } else
+                builder.build().run();
         } catch (OptionException e) {
             parser.printHelpOn(System.out);
             e.printStackTrace();
         }
     }
+
+    private static int[] parseShard(String value) {
+        String[] pts = value.split("/");
+        if (pts.length != 2)
+            throw new IllegalArgumentException("Invalid shard, expected index/count: " + value);
+        try {
+            return new int[] { Integer.parseInt(pts[0]), Integer.parseInt(pts[1]) };
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid shard, expected index/count: " + value, e);
+        }
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import joptsimple.OptionException;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+import joptsimple.ValueConverter;
+import joptsimple.util.PathConverter;
+import net.minecraftforge.srg2source.range.RangeMapMerger;
+import net.minecraftforge.srg2source.range.RangeMapWriter;
+import net.minecraftforge.srg2source.range.SplitRangeMap;
+
+/**
+ * Merges the range maps from several {@code --extract --shard i/N} runs back into one,
+ * which is the same as if everything had been extracted in a single run.
+ */
+public class RangeMergeMain {
+    private static final ValueConverter<Path> PATH_CONVERTER = new PathConverter();
+
+    public static void main(String[] args) throws IOException {
+        OptionParser parser = new OptionParser();
+        OptionSpec<Path> inputArg = parser.acceptsAll(Arrays.asList("in", "input")).withRequiredArg().withValuesConvertedBy(PATH_CONVERTER).required();
+        OptionSpec<Path> outputArg = parser.acceptsAll(Arrays.asList("out", "output")).withRequiredArg().withValuesConvertedBy(PATH_CONVERTER).required();
+        OptionSpec<Void> splitArg = parser.accepts("split"); //Output is a directory or zip with an entry per file, see SplitRangeMap
+        OptionSpec<Void> compactArg = parser.accepts("compact"); //No indentation or structure comments in the output
+
+        try {
+            OptionSet options = parser.parse(args);
+            Path output = options.valueOf(outputArg);
+            System.out.println("Output: " + output);
+            System.out.println("Split:  " + options.has(splitArg));
+            System.out.println("Compact: " + options.has(compactArg));
+
+            RangeMapMerger merger = new RangeMapMerger();
+            options.valuesOf(inputArg).forEach(v -> {
+                System.out.println("Input:  " + v);
+                merger.add(v);
+            });
+
+            // Everything is written somewhere else first, and only moved into place if there were no conflicts,
+            // so a failed merge never leaves a partial range map behind, or touches the old one.
+            boolean split = options.has(splitArg);
+            boolean zip = split && SplitRangeMap.isSplit(output) && !Files.isDirectory(output);
+            Path parent = output.toAbsolutePath().getParent();
+            if (!Files.exists(parent))
+                Files.createDirectories(parent);
+            Path temp = parent.resolve(output.getFileName() + (zip ? ".tmp.zip" : ".tmp"));
+            delete(temp);
+
+            int count;
+            List<String> conflicts;
+            boolean moved = false;
+            try {
+                if (split) {
+                    try (SplitRangeMap.Writer out = SplitRangeMap.writer(temp, !options.has(compactArg))) {
+                        count = merger.merge(out::write);
+                    }
+                } else {
+                    try (RangeMapWriter out = new RangeMapWriter(new PrintWriter(Files.newBufferedWriter(temp)), !options.has(compactArg))) {
+                        count = merger.merge(out::write);
+                    }
+                }
+
+                conflicts = merger.getConflicts();
+                if (conflicts.isEmpty()) {
+                    replace(temp, output);
+                    moved = true;
+                }
+            } finally {
+                if (!moved)
+                    delete(temp);
+            }
+
+            if (!conflicts.isEmpty()) {
+                conflicts.forEach(c -> System.out.println("Conflict: " + c));
+                throw new IllegalStateException("Found " + conflicts.size() + " conflicting range maps, no output written");
+            }
+
+            System.out.println("Merged " + count + " range maps, skipped " + merger.getDuplicates() + " duplicates");
+        } catch (OptionException e) {
+            parser.printHelpOn(System.out);
+            e.printStackTrace();
+        }
+    }
+
+    /*
+     * A directory can't be moved over another one, so the old one is moved out of the way first.
+     */
+    private static void replace(Path temp, Path output) throws IOException {
+        if (Files.isDirectory(output)) {
+            Path old = output.resolveSibling(output.getFileName() + ".old");
+            delete(old);
+            Files.move(output, old);
+            Files.move(temp, output);
+            delete(old);
+        } else
+            Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void delete(Path path) throws IOException {
+        if (!Files.exists(path))
+            return;
+        List<Path> children;
+        try (Stream<Path> stream = Files.walk(path)) {
+            children = stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+        for (Path child : children)
+            Files.delete(child);
+    }
+}
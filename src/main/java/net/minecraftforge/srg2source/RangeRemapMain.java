@@ -0,0 +1,172 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import joptsimple.OptionException;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+import joptsimple.ValueConverter;
+import joptsimple.util.PathConverter;
+import net.minecraftforge.srg2source.api.RangeRemapperBuilder;
+import net.minecraftforge.srg2source.api.SourceVersion;
+import net.minecraftforge.srg2source.extract.RangeExtractor;
+
+/**
+ * Extract and apply in one go, see {@link RangeExtractMain} and {@link RangeApplyMain} for what the arguments do.
+ */
+public class RangeRemapMain {
+    private static final ValueConverter<Path> PATH_CONVERTER = new PathConverter();
+
+    public static void main(String[] args) throws IOException {
+        OptionParser parser = new OptionParser();
+        OptionSpec<?> helpArg = parser.acceptsAll(a("h", "help")).forHelp();
+        OptionSpec<File> libArg = parser.acceptsAll(a("e", "lib")).withRequiredArg().ofType(File.class);
+        OptionSpec<Path> inputArg = parser.acceptsAll(a("in", "input", "srcRoot")).withRequiredArg().withValuesConvertedBy(PATH_CONVERTER).required();
+        OptionSpec<Path> outArg = parser.acceptsAll(a("out", "output", "outDir")).withRequiredArg().withValuesConvertedBy(PATH_CONVERTER).required();
+        OptionSpec<Path> rangeArg = parser.acceptsAll(a("rm", "range", "srcRangeMap")).withRequiredArg().withValuesConvertedBy(PATH_CONVERTER);
+        OptionSpec<Void> splitArg = parser.accepts("split"); //Range output is a directory or zip with an entry per file, see SplitRangeMap
+        OptionSpec<Path> excArg = parser.acceptsAll(a("exc", "excFiles")).withRequiredArg().withValuesConvertedBy(PATH_CONVERTER);
+        OptionSpec<Path> mappingArg = parser.acceptsAll(a("map", "srg", "srgFiles")).withRequiredArg().withValuesConvertedBy(PATH_CONVERTER).required();
+        OptionSpec<Boolean> batch = parser.accepts("batch").withOptionalArg().ofType(Boolean.class).defaultsTo(true);
+        OptionSpec<String> batchSizeArg = parser.accepts("batchSize").withRequiredArg().defaultsTo("0"); //Files per batch group, 0 for all at once, or auto
+        OptionSpec<Boolean> mixins = parser.accepts("mixins").withOptionalArg().ofType(Boolean.class).defaultsTo(true);
+        OptionSpec<Boolean> mixins_fatal = parser.accepts("fatalmixins").withOptionalArg().ofType(Boolean.class).defaultsTo(false);
+        OptionSpec<SourceVersion> jversionArg = parser.acceptsAll(a("sc", "source-compatibility")).withRequiredArg().ofType(SourceVersion.class).defaultsTo(SourceVersion.JAVA_1_8)
+            .withValuesConvertedBy(new ValueConverter<SourceVersion>() {
+                @Override
+                public SourceVersion convert(String value) {
+                    return SourceVersion.parse(value);
+                }
+
+                @Override
+                public Class<? extends SourceVersion> valueType() {
+                    return SourceVersion.class;
+                }
+
+                @Override
+                public String valuePattern() {
+                    List<String> ret = new ArrayList<>();
+                    for (SourceVersion v : SourceVersion.values()) {
+                        ret.add(v.name());
+                        ret.add(v.getSpec());
+                    }
+                    return ret.stream().collect(Collectors.joining(","));
+                }
+            });
+        OptionSpec<Boolean> importArg = parser.acceptsAll(a("keepImports")).withOptionalArg().ofType(Boolean.class).defaultsTo(true);
+        OptionSpec<Void> sortImportArg = parser.acceptsAll(a("sortImports"));
+        OptionSpec<Void> guessLambdasArg = parser.acceptsAll(a("guessLambdas"));
+        OptionSpec<Void> guessLocalsArg = parser.acceptsAll(a("guessLocals"));
+        OptionSpec<Void> asyncOutputArg = parser.acceptsAll(a("asyncOutput"));
+
+        try {
+            OptionSet options = parser.parse(args);
+
+            if (options.has(helpArg)) {
+                parser.printHelpOn(System.out);
+                return;
+            }
+
+            boolean enableMixins = options.has(mixins) && options.valueOf(mixins);
+            boolean fatalMixins = enableMixins && (options.has(mixins_fatal) && options.valueOf(mixins_fatal));
+            boolean keepImports = options.has(importArg) && options.valueOf(importArg);
+
+            System.out.println("Compat:  " + options.valueOf(jversionArg));
+            System.out.println("Output:  " + options.valueOf(outArg));
+            System.out.println("Range:   " + options.valueOf(rangeArg));
+            System.out.println("Batch:   " + options.valueOf(batch));
+            System.out.println("Size:    " + options.valueOf(batchSizeArg));
+            System.out.println("Mixins:  " + enableMixins);
+            System.out.println("Fatal:   " + fatalMixins);
+            System.out.println("Imports: " + keepImports);
+            System.out.println("Sort:    " + options.has(sortImportArg));
+            System.out.println("Lambdas: " + options.has(guessLambdasArg));
+            System.out.println("Locals:  " + options.has(guessLocalsArg));
+            System.out.println("Async:   " + options.has(asyncOutputArg));
+
+            RangeRemapperBuilder builder = new RangeRemapperBuilder()
+                .sourceCompatibility(options.valueOf(jversionArg))
+                .batch(options.valueOf(batch))
+                .batchSize("auto".equalsIgnoreCase(options.valueOf(batchSizeArg)) ? RangeExtractor.AUTO_BATCH_SIZE : Integer.parseInt(options.valueOf(batchSizeArg)))
+                .output(options.valueOf(outArg))
+                .guessLambdas(options.has(guessLambdasArg))
+                .guessLocals(options.has(guessLocalsArg))
+                .sortImports(options.has(sortImportArg));
+
+            if (options.has(rangeArg)) {
+                if (options.has(splitArg))
+                    builder.splitRangeOutput(options.valueOf(rangeArg));
+                else
+                    builder.rangeOutput(options.valueOf(rangeArg));
+            }
+
+            if (options.has(asyncOutputArg))
+                builder.asyncOutput();
+
+            options.valuesOf(libArg).forEach(v -> {
+                System.out.println("Lib:     " + v);
+                builder.library(v);
+            });
+
+            options.valuesOf(mappingArg).forEach(v -> {
+                System.out.println("Map:     " + v);
+                builder.srg(v);
+            });
+
+            options.valuesOf(inputArg).forEach(v -> {
+                System.out.println("Input:   " + v);
+                builder.input(v);
+            });
+
+            options.valuesOf(excArg).forEach(v -> {
+                System.out.println("Exc:     " + v);
+                builder.exc(v);
+            });
+
+            if (enableMixins)
+                builder.enableMixins();
+            if (fatalMixins)
+                builder.fatalMixins();
+
+            if (keepImports)
+                builder.keepImports();
+            else
+                builder.trimImports();
+
+            builder.build().run();
+        } catch (OptionException e) {
+            parser.printHelpOn(System.out);
+            e.printStackTrace();
+        }
+    }
+
+    private static List<String> a(String... values) {
+        return Arrays.asList(values);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import joptsimple.OptionException;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+import joptsimple.ValueConverter;
+import joptsimple.util.PathConverter;
+import net.minecraftforge.srg2source.api.RangeVerifierBuilder;
+
+/**
+ * Checks that a range map is up to date with the sources, so it's safe to apply. Nothing is written.
+ */
+public class RangeVerifyMain {
+    private static final ValueConverter<Path> PATH_CONVERTER = new PathConverter();
+
+    public static void main(String[] args) throws IOException {
+        OptionParser parser = new OptionParser();
+        OptionSpec<?> helpArg = parser.acceptsAll(a("h", "help")).forHelp();
+        OptionSpec<Path> inputArg = parser.acceptsAll(a("in", "input", "srcRoot")).withRequiredArg().withValuesConvertedBy(PATH_CONVERTER).required();
+        OptionSpec<Path> rangeArg = parser.acceptsAll(a("rm", "range", "srcRangeMap")).withRequiredArg().withValuesConvertedBy(PATH_CONVERTER).required();
+        OptionSpec<Integer> spotCheckArg = parser.accepts("spotCheck").withRequiredArg().ofType(Integer.class).defaultsTo(0); //Entries per file to check the text of
+
+        try {
+            OptionSet options = parser.parse(args);
+
+            if (options.has(helpArg)) {
+                parser.printHelpOn(System.out);
+                return;
+            }
+
+            System.out.println("Range:   " + options.valueOf(rangeArg));
+            System.out.println("Spot:    " + options.valueOf(spotCheckArg));
+
+            RangeVerifierBuilder builder = new RangeVerifierBuilder()
+                .range(options.valueOf(rangeArg))
+                .spotChecks(options.valueOf(spotCheckArg));
+
+            options.valuesOf(inputArg).forEach(v -> {
+                System.out.println("Input:   " + v);
+                builder.input(v);
+            });
+
+            if (!builder.build().run())
+                throw new IllegalStateException("Range map is out of date");
+        } catch (OptionException e) {
+            parser.printHelpOn(System.out);
+            e.printStackTrace();
+        }
+    }
+
+    private static List<String> a(String... values) {
+        return Arrays.asList(values);
+    }
+}
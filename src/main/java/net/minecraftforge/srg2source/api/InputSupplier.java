@@ -20,12 +20,15 @@
 package net.minecraftforge.srg2source.api;
 
 import java.io.Closeable;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.List;
 
 import javax.annotation.Nullable;
 
+import net.minecraftforge.srg2source.util.Util;
+
 public interface InputSupplier extends Closeable {
     /**
      * The absolute path of the root entity of the given resource, be it a file or directory.
@@ -45,6 +48,33 @@ public interface InputSupplier extends Closeable {
     @Nullable
     InputStream getInput(String relPath);
 
+    /**
+     * Reads the entire contents of the specified resource in one go.
+     * Returns null if the resource does not exist.
+     * The default implementation drains {@link #getInput(String)}, implementations that know the size of their
+     * resources, or already hold them in memory, should override this to avoid the intermediate copies.
+     * The returned array may be shared with the supplier, so callers must not modify it.
+     *
+     * @param relPath Relative path separated with '/' and having no preceding slash.
+     * @return The full contents of the specified path
+     */
+    @Nullable
+    default byte[] getBytes(String relPath) throws IOException {
+        try (InputStream stream = getInput(relPath)) {
+            return stream == null ? null : Util.readStream(stream);
+        }
+    }
+
+    /**
+     * The size in bytes of the specified resource, if it can be determined without reading it.
+     *
+     * @param relPath Relative path separated with '/' and having no preceding slash.
+     * @return The size of the resource, or -1 if unknown or the resource does not exist.
+     */
+    default long size(String relPath) {
+        return -1;
+    }
+
     /**
      * Gathers all the names of all the resources with the given ending in their name.
      * These paths are guaranteed to be relative. This will never return null, and return an empty list instead.
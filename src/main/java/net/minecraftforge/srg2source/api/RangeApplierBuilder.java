@@ -32,16 +32,19 @@ import java.util.Locale;
 import java.util.function.Consumer;
 
 import net.minecraftforge.srg2source.apply.RangeApplier;
+import net.minecraftforge.srg2source.util.io.AsyncOutputSupplier;
 import net.minecraftforge.srg2source.util.io.ChainedInputSupplier;
 import net.minecraftforge.srg2source.util.io.FolderSupplier;
+import net.minecraftforge.srg2source.util.io.ParallelZipOutputSupplier;
+import net.minecraftforge.srg2source.util.io.ZipFileInputSupplier;
 import net.minecraftforge.srg2source.util.io.ZipInputSupplier;
 import net.minecraftforge.srg2source.util.io.ZipOutputSupplier;
 
 public class RangeApplierBuilder {
     private PrintStream logStd = System.out;
     private PrintStream logErr = System.err;
-    private List<InputSupplier> inputs = new ArrayList<>();
-    private OutputSupplier output = null;
+    private List<Factory<InputSupplier>> inputs = new ArrayList<>();
+    private Factory<OutputSupplier> output = null;
     private Consumer<RangeApplier> range = null;
     private List<Consumer<RangeApplier>> srgs = new ArrayList<>();
     private List<Consumer<RangeApplier>> excs = new ArrayList<>();
@@ -49,6 +52,13 @@ public class RangeApplierBuilder {
     private boolean guessLambdas = false;
     private boolean guessLocals = false;
     private boolean sortImports = false;
+    private int asyncQueue = 0;
+    private boolean skipUnchanged = false;
+    private boolean deleteStale = false;
+    private boolean parallel = false;
+    private boolean copyResources = false;
+    private boolean jarPipeline = false;
+    private List<RangeApplierBuilder> targets = new ArrayList<>();
 
     public RangeApplierBuilder logger(PrintStream value) {
         this.logStd = value;
@@ -62,10 +72,11 @@ public class RangeApplierBuilder {
 
     public RangeApplierBuilder output(Path value) {
         try {
-            if (Files.isDirectory(value))
-                this.output = FolderSupplier.create(value, null);
-            else
-                this.output = new ZipOutputSupplier(value);
+            if (Files.isDirectory(value)) {
+                FolderSupplier folder = FolderSupplier.create(value, null);
+                this.output = pipeline -> folder;
+            } else
+                this.output = pipeline -> pipeline ? new ParallelZipOutputSupplier(value) : new ZipOutputSupplier(value);
         } catch (IOException e) {
             throw new IllegalArgumentException("Invalid output: " + value, e);
         }
@@ -114,6 +125,66 @@ public class RangeApplierBuilder {
         return this;
     }
 
+    /**
+     * Writes outputs on a background thread, so rewriting the next file doesn't wait on disk or zip I/O.
+     */
+    public RangeApplierBuilder asyncOutput() {
+        return asyncOutput(AsyncOutputSupplier.DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * @param queueSize Maximum number of finished files held in memory waiting to be written, 0 to write synchronously.
+     */
+    public RangeApplierBuilder asyncOutput(int queueSize) {
+        this.asyncQueue = queueSize;
+        return this;
+    }
+
+    /**
+     * Leaves output files alone if their contents haven't changed. Only works for directory outputs.
+     *
+     * @see FolderSupplier#setSkipUnchanged(boolean)
+     */
+    public RangeApplierBuilder skipUnchanged() {
+        this.skipUnchanged = true;
+        return this;
+    }
+
+    /**
+     * Deletes java files in the output directory that weren't written by this run. Only works for directory outputs.
+     *
+     * @see FolderSupplier#setDeleteStale(String)
+     */
+    public RangeApplierBuilder deleteStale() {
+        this.deleteStale = true;
+        return this;
+    }
+
+    /**
+     * @see RangeApplier#setParallel(boolean)
+     */
+    public RangeApplierBuilder parallel() {
+        this.parallel = true;
+        return this;
+    }
+
+    /**
+     * @see RangeApplier#setCopyResources(boolean)
+     */
+    public RangeApplierBuilder copyResources() {
+        this.copyResources = true;
+        return this;
+    }
+
+    /**
+     * Reads jars with {@link ZipFileInputSupplier} and writes them with {@link ParallelZipOutputSupplier}, which is always
+     * done when {@link #parallel()} is set. Otherwise jars are read and written one entry at a time, like they always have been.
+     */
+    public RangeApplierBuilder jarPipeline() {
+        this.jarPipeline = true;
+        return this;
+    }
+
     @SuppressWarnings("resource")
     public RangeApplierBuilder input(Path value, Charset encoding) {
         if (value == null || !Files.exists(value))
@@ -121,10 +192,11 @@ public class RangeApplierBuilder {
 
         String filename = value.getFileName().toString().toLowerCase(Locale.ENGLISH);
         try {
-            if (Files.isDirectory(value))
-                inputs.add(FolderSupplier.create(value, encoding));
-            else if (filename.endsWith(".jar") || filename.endsWith(".zip")) {
-                inputs.add(ZipInputSupplier.create(value, encoding));
+            if (Files.isDirectory(value)) {
+                FolderSupplier folder = FolderSupplier.create(value, encoding);
+                inputs.add(pipeline -> folder);
+            } else if (filename.endsWith(".jar") || filename.endsWith(".zip")) {
+                inputs.add(pipeline -> pipeline ? ZipFileInputSupplier.create(value, encoding) : ZipInputSupplier.create(value, encoding));
             } else
                 throw new IllegalArgumentException("Invalid input value: " + value);
         } catch (IOException e) {
@@ -135,7 +207,7 @@ public class RangeApplierBuilder {
     }
 
     public RangeApplierBuilder input(InputSupplier value) {
-        this.inputs.add(value);
+        this.inputs.add(pipeline -> value);
         return this;
     }
 
@@ -149,6 +221,15 @@ public class RangeApplierBuilder {
         return this;
     }
 
+    /**
+     * Also applies the same inputs and range map to another set of mappings, writing to that builder's output.
+     * Only the target's output, mappings, excs, and options are used, sources and ranges are read once for all targets.
+     */
+    public RangeApplierBuilder target(RangeApplierBuilder value) {
+        this.targets.add(value);
+        return this;
+    }
+
     public RangeApplierBuilder trimImports() {
         this.keepImports = false;
         return this;
@@ -160,22 +241,54 @@ public class RangeApplierBuilder {
     }
 
     public RangeApplier build() {
+        return build(true);
+    }
+
+    // RangeRemapperBuilder feeds ranges in as they are extracted, so doesn't need a range map.
+    RangeApplier build(boolean needsRange) {
+        return build(needsRange, false);
+    }
+
+    // Targets use the same zip suppliers as the main output, so resources can be copied raw to all of them.
+    private RangeApplier build(boolean needsRange, boolean pipeline) {
         if (output == null)
             throw new IllegalStateException("Builder State Exception: Missing Output");
-        if (range == null)
+        if (needsRange && range == null)
             throw new IllegalArgumentException("Builder State Exception: Missing Range Map");
 
+        boolean usePipeline = pipeline || parallel || jarPipeline;
         RangeApplier ret = new RangeApplier();
         ret.setLogger(logStd);
         ret.setErrorLogger(logErr);
 
-        if (this.inputs.size() == 1)
-            ret.setInput(this.inputs.get(0));
+        List<InputSupplier> inputs = new ArrayList<>();
+        OutputSupplier output;
+        try {
+            for (Factory<InputSupplier> input : this.inputs)
+                inputs.add(input.create(usePipeline));
+            output = this.output.create(usePipeline);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid input or output", e);
+        }
+
+        if (inputs.size() == 1)
+            ret.setInput(inputs.get(0));
         else
-            ret.setInput(new ChainedInputSupplier(this.inputs));
+            ret.setInput(new ChainedInputSupplier(inputs));
 
-        ret.setOutput(output);
-        range.accept(ret);
+        if (skipUnchanged || deleteStale) {
+            if (!(output instanceof FolderSupplier))
+                throw new IllegalStateException("Builder State Exception: Only directory outputs can skip unchanged or delete stale files");
+            ((FolderSupplier)output).setSkipUnchanged(skipUnchanged);
+            ((FolderSupplier)output).setDeleteStale(deleteStale ? ".java" : null);
+        }
+
+        // Zips are already written in the background, and need to be seen as zips to copy resources without recompressing them.
+        ret.setOutput(asyncQueue > 0 && !(output instanceof ParallelZipOutputSupplier) ? new AsyncOutputSupplier(output, asyncQueue) : output);
+        ret.setParallel(parallel);
+        ret.setCopyResources(copyResources);
+        if (range != null)
+            range.accept(ret);
 
         ret.setGuessLambdas(guessLambdas);
         ret.setGuessLocals(guessLocals);
@@ -186,6 +299,14 @@ public class RangeApplierBuilder {
 
         ret.keepImports(keepImports);
 
+        targets.forEach(t -> ret.addTarget(t.build(false, usePipeline)));
+
         return ret;
     }
+
+    // Zips are opened once we know which suppliers to use for them.
+    @FunctionalInterface
+    private interface Factory<T> {
+        T create(boolean pipeline) throws IOException;
+    }
 }
@@ -21,10 +21,8 @@ package net.minecraftforge.srg2source.api;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintStream;
 import java.io.PrintWriter;
@@ -39,6 +37,8 @@ import java.util.Locale;
 import javax.annotation.Nullable;
 
 import net.minecraftforge.srg2source.extract.RangeExtractor;
+import net.minecraftforge.srg2source.range.RangeCache;
+import net.minecraftforge.srg2source.range.SplitRangeMap;
 import net.minecraftforge.srg2source.util.io.ChainedInputSupplier;
 import net.minecraftforge.srg2source.util.io.FolderSupplier;
 import net.minecraftforge.srg2source.util.io.ZipInputSupplier;
@@ -48,7 +48,12 @@ public class RangeExtractorBuilder {
     private PrintStream logStd = System.out;
     private PrintStream logErr = System.err;
     private PrintWriter output = null;
+    private Path splitOutput = null;
+    private boolean compact = false;
     private boolean batch = true;
+    private int batchSize = 0;
+    private int shardIndex = 0;
+    private int shardCount = 1;
     private List<File> libraries = new ArrayList<>();
     private List<InputSupplier> inputs = new ArrayList<>();
     private File cache = null;
@@ -56,6 +61,10 @@ public class RangeExtractorBuilder {
     private boolean fatalMixins = false;
     private boolean logWarnings = false;
     private boolean enablePreview = false;
+    private boolean incremental = false;
+    private Path cacheDir = null;
+    private long cacheSize = RangeCache.DEFAULT_MAX_SIZE;
+    private List<RangeExtractor.ASTConsumer> astConsumers = new ArrayList<>();
 
     public RangeExtractorBuilder sourceCompatibility(SourceVersion value) {
         this.sourceVersion = value;
@@ -132,12 +141,61 @@ public class RangeExtractorBuilder {
         return this;
     }
 
+    /**
+     * Writes every file's range map as it's own entry in a directory, or a zip if the path ends in .zip.
+     * Existing directories are updated in place, only rewriting the entries that changed.
+     */
+    public RangeExtractorBuilder splitOutput(Path value) {
+        this.splitOutput = value;
+        return this;
+    }
+
+    /**
+     * Writes range maps without indentation or structure comments.
+     */
+    public RangeExtractorBuilder compact() {
+        return compact(true);
+    }
+
+    public RangeExtractorBuilder compact(boolean value) {
+        this.compact = value;
+        return this;
+    }
+
     public RangeExtractorBuilder batch() {
         return this.batch(true);
     }
 
     public RangeExtractorBuilder batch(boolean value) {
-        this.batch = true;
+        this.batch = value;
+        return this;
+    }
+
+    /**
+     * Processes batches in groups of at most this many files, to bound how much memory JDT uses at once.
+     *
+     * @see RangeExtractor#setBatchSize(int)
+     */
+    public RangeExtractorBuilder batchSize(int value) {
+        this.batchSize = value;
+        return this;
+    }
+
+    /**
+     * Picks the batch group size based on the max heap size.
+     */
+    public RangeExtractorBuilder autoBatchSize() {
+        return batchSize(RangeExtractor.AUTO_BATCH_SIZE);
+    }
+
+    /**
+     * Only extract one contiguous slice of the sorted input files.
+     *
+     * @see RangeExtractor#setShard(int, int)
+     */
+    public RangeExtractorBuilder shard(int index, int count) {
+        this.shardIndex = index;
+        this.shardCount = count;
         return this;
     }
 
@@ -185,6 +243,37 @@ public class RangeExtractorBuilder {
         return this;
     }
 
+    public RangeExtractorBuilder cacheDirectory(Path value) {
+        return cacheDirectory(value, RangeCache.DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @see RangeExtractor#setCacheDirectory(Path, long)
+     */
+    public RangeExtractorBuilder cacheDirectory(Path value, long maxSize) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("Invalid cache size: " + maxSize);
+        this.cacheDir = value;
+        this.cacheSize = maxSize;
+        return this;
+    }
+
+    /**
+     * @see RangeExtractor#enableIncremental()
+     */
+    public RangeExtractorBuilder incremental() {
+        this.incremental = true;
+        return this;
+    }
+
+    /**
+     * @see RangeExtractor#addASTConsumer(RangeExtractor.ASTConsumer)
+     */
+    public RangeExtractorBuilder astConsumer(RangeExtractor.ASTConsumer value) {
+        this.astConsumers.add(value);
+        return this;
+    }
+
     public RangeExtractorBuilder enableMixins() {
         this.enableMixins = true;
         return this;
@@ -212,11 +301,27 @@ public class RangeExtractorBuilder {
 
         if (output != null)
             ret.setOutput(output);
+        if (splitOutput != null) {
+            try {
+                ret.setOutput(SplitRangeMap.writer(splitOutput, !compact));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Invalid output: " + splitOutput, e);
+            }
+        }
         ret.setSourceCompatibility(sourceVersion);
+        ret.setCompactOutput(compact);
         ret.setBatchASTs(batch);
+        ret.setBatchSize(batchSize);
+        ret.setShard(shardIndex, shardCount);
 
         libraries.forEach(ret::addLibrary);
 
+        // Folders cache their listing, so rescan them in case this builder has been used before, like when watching for changes.
+        for (InputSupplier input : this.inputs) {
+            if (input instanceof FolderSupplier)
+                ((FolderSupplier)input).invalidate();
+        }
+
         if (this.inputs.size() == 1)
             ret.setInput(this.inputs.get(0));
         else
@@ -230,10 +335,15 @@ public class RangeExtractorBuilder {
             ret.logWarnings();
         if (this.enablePreview)
             ret.enablePreview();
+        if (this.incremental)
+            ret.enableIncremental();
+        if (this.cacheDir != null)
+            ret.setCacheDirectory(this.cacheDir, this.cacheSize);
+        astConsumers.forEach(ret::addASTConsumer);
 
         if (this.cache != null) {
-            try (InputStream fin = new FileInputStream(this.cache)) {
-                ret.loadCache(fin);
+            try {
+                ret.loadCache(this.cache.toPath());
             } catch (IOException e) {
                 System.out.println("Error Loading Caching: " + this.cache);
                 e.printStackTrace();
@@ -0,0 +1,213 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import javax.annotation.Nullable;
+
+import net.minecraftforge.srg2source.apply.RangeApplier;
+import net.minecraftforge.srg2source.apply.RangeRemapper;
+import net.minecraftforge.srg2source.extract.RangeExtractor;
+import net.minecraftforge.srg2source.util.io.FolderSupplier;
+import net.minecraftforge.srg2source.util.io.ZipInputSupplier;
+
+/**
+ * Extracts and applies in a single pass. Each file is remapped as soon as its range map has been extracted,
+ * the range map is only written out if {@link #rangeOutput(Path)} is specified.
+ */
+public class RangeRemapperBuilder {
+    private final RangeExtractorBuilder extract = new RangeExtractorBuilder();
+    private final RangeApplierBuilder apply = new RangeApplierBuilder();
+    private boolean enableMixins = false;
+
+    public RangeRemapperBuilder logger(PrintStream value) {
+        extract.logger(value);
+        apply.logger(value);
+        return this;
+    }
+
+    public RangeRemapperBuilder errorLogger(PrintStream value) {
+        extract.errorLogger(value);
+        apply.errorLogger(value);
+        return this;
+    }
+
+    public RangeRemapperBuilder sourceCompatibility(SourceVersion value) {
+        extract.sourceCompatibility(value);
+        return this;
+    }
+
+    public RangeRemapperBuilder batch(boolean value) {
+        extract.batch(value);
+        return this;
+    }
+
+    /**
+     * @see RangeExtractorBuilder#batchSize(int)
+     */
+    public RangeRemapperBuilder batchSize(int value) {
+        extract.batchSize(value);
+        return this;
+    }
+
+    public RangeRemapperBuilder library(File value) {
+        extract.library(value);
+        return this;
+    }
+
+    public RangeRemapperBuilder input(Path value) {
+        return input(value, StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("resource")
+    public RangeRemapperBuilder input(Path value, @Nullable Charset encoding) {
+        if (value == null || !Files.exists(value))
+            throw new IllegalArgumentException("Invalid input value: " + value);
+
+        String filename = value.getFileName().toString().toLowerCase(Locale.ENGLISH);
+        try {
+            if (Files.isDirectory(value))
+                return input(FolderSupplier.create(value, encoding));
+            else if (filename.endsWith(".jar") || filename.endsWith(".zip"))
+                return input(ZipInputSupplier.create(value, encoding));
+            else
+                throw new IllegalArgumentException("Invalid input value: " + value);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid input: " + value, e);
+        }
+    }
+
+    // Both sides share the same supplier, so zips are only read once.
+    public RangeRemapperBuilder input(InputSupplier value) {
+        extract.input(value);
+        apply.input(value);
+        return this;
+    }
+
+    public RangeRemapperBuilder enableMixins() {
+        this.enableMixins = true;
+        extract.enableMixins();
+        return this;
+    }
+
+    public RangeRemapperBuilder fatalMixins() {
+        extract.fatalMixins();
+        return this;
+    }
+
+    public RangeRemapperBuilder logWarnings() {
+        extract.logWarnings();
+        return this;
+    }
+
+    public RangeRemapperBuilder enablePreview() {
+        extract.enablePreview();
+        return this;
+    }
+
+    /**
+     * Optional, also write the extracted range map here.
+     */
+    public RangeRemapperBuilder rangeOutput(Path value) {
+        extract.output(value);
+        return this;
+    }
+
+    /**
+     * @see RangeExtractorBuilder#splitOutput(Path)
+     */
+    public RangeRemapperBuilder splitRangeOutput(Path value) {
+        extract.splitOutput(value);
+        return this;
+    }
+
+    public RangeRemapperBuilder rangeOutput(PrintWriter value) {
+        extract.output(value);
+        return this;
+    }
+
+    public RangeRemapperBuilder output(Path value) {
+        apply.output(value);
+        return this;
+    }
+
+    public RangeRemapperBuilder srg(Path value) {
+        apply.srg(value);
+        return this;
+    }
+
+    public RangeRemapperBuilder exc(Path value) {
+        apply.exc(value);
+        return this;
+    }
+
+    public RangeRemapperBuilder guessLambdas(boolean value) {
+        apply.guessLambdas(value);
+        return this;
+    }
+
+    public RangeRemapperBuilder guessLocals(boolean value) {
+        apply.guessLocals(value);
+        return this;
+    }
+
+    public RangeRemapperBuilder sortImports(boolean value) {
+        apply.sortImports(value);
+        return this;
+    }
+
+    public RangeRemapperBuilder asyncOutput() {
+        apply.asyncOutput();
+        return this;
+    }
+
+    /**
+     * @see RangeApplierBuilder#target(RangeApplierBuilder)
+     */
+    public RangeRemapperBuilder target(RangeApplierBuilder value) {
+        apply.target(value);
+        return this;
+    }
+
+    public RangeRemapperBuilder trimImports() {
+        apply.trimImports();
+        return this;
+    }
+
+    public RangeRemapperBuilder keepImports() {
+        apply.keepImports();
+        return this;
+    }
+
+    public RangeRemapper build() {
+        RangeExtractor extractor = extract.build();
+        RangeApplier applier = apply.build(false);
+        return new RangeRemapper(extractor, applier, enableMixins);
+    }
+}
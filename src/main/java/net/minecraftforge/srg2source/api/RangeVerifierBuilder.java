@@ -0,0 +1,118 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.api;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import net.minecraftforge.srg2source.apply.RangeVerifier;
+import net.minecraftforge.srg2source.util.io.ChainedInputSupplier;
+import net.minecraftforge.srg2source.util.io.FolderSupplier;
+import net.minecraftforge.srg2source.util.io.ZipInputSupplier;
+
+public class RangeVerifierBuilder {
+    private PrintStream logStd = System.out;
+    private PrintStream logErr = System.err;
+    private List<InputSupplier> inputs = new ArrayList<>();
+    private Path range = null;
+    private int spotChecks = 0;
+
+    public RangeVerifierBuilder logger(PrintStream value) {
+        this.logStd = value;
+        return this;
+    }
+
+    public RangeVerifierBuilder errorLogger(PrintStream value) {
+        this.logErr = value;
+        return this;
+    }
+
+    public RangeVerifierBuilder input(Path value) {
+        return input(value, StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("resource")
+    public RangeVerifierBuilder input(Path value, Charset encoding) {
+        if (value == null || !Files.exists(value))
+            throw new IllegalArgumentException("Invalid input value: " + value);
+
+        String filename = value.getFileName().toString().toLowerCase(Locale.ENGLISH);
+        try {
+            if (Files.isDirectory(value))
+                inputs.add(FolderSupplier.create(value, encoding));
+            else if (filename.endsWith(".jar") || filename.endsWith(".zip"))
+                inputs.add(ZipInputSupplier.create(value, encoding));
+            else
+                throw new IllegalArgumentException("Invalid input value: " + value);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid input: " + value, e);
+        }
+
+        return this;
+    }
+
+    public RangeVerifierBuilder input(InputSupplier value) {
+        this.inputs.add(value);
+        return this;
+    }
+
+    public RangeVerifierBuilder range(Path value) {
+        this.range = value;
+        return this;
+    }
+
+    /**
+     * @see RangeVerifier#setSpotChecks(int)
+     */
+    public RangeVerifierBuilder spotChecks(int value) {
+        this.spotChecks = value;
+        return this;
+    }
+
+    public RangeVerifier build() {
+        if (range == null)
+            throw new IllegalArgumentException("Builder State Exception: Missing Range Map");
+
+        RangeVerifier ret = new RangeVerifier();
+        ret.setLogger(logStd);
+        ret.setErrorLogger(logErr);
+
+        if (this.inputs.size() == 1)
+            ret.setInput(this.inputs.get(0));
+        else
+            ret.setInput(new ChainedInputSupplier(this.inputs));
+
+        try {
+            ret.readRangeMap(range);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid range map: " + range, e);
+        }
+
+        ret.setSpotChecks(spotChecks);
+        return ret;
+    }
+}
@@ -19,6 +19,7 @@
 
 package net.minecraftforge.srg2source.apply;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -30,36 +31,93 @@ import net.minecraftforge.srg2source.range.entries.MixinAccessorMeta;
 public class ClassMeta {
     public static ClassMeta create(RangeApplier applier, Map<String, RangeMap> ranges) {
         ClassMeta ret = new ClassMeta(applier);
-        for (RangeMap range : ranges.values()) {
-            for (MetaEntry entry : range.getMeta()) {
-                switch (entry.getType()) {
-                    case MIXIN_ACCESSOR: {
-                        MixinAccessorMeta acc = (MixinAccessorMeta)entry;
-                        ret.accessors.computeIfAbsent(acc.getOwner().getOwner(), k -> new HashMap<>()).put(acc.getOwner().getName() + acc.getOwner().getDesc(), acc);
-                        break;
-                    }
+        for (RangeMap range : ranges.values())
+            ret.add(range);
+        return ret;
+    }
+
+    static ClassMeta create(RangeApplier applier, Collection<RangeMap> ranges) {
+        ClassMeta ret = new ClassMeta(applier);
+        for (RangeMap range : ranges)
+            ret.add(range);
+        return ret;
+    }
+
+    private void add(RangeMap range) {
+        for (MetaEntry entry : range.getMeta()) {
+            switch (entry.getType()) {
+                case MIXIN_ACCESSOR: {
+                    MixinAccessorMeta acc = (MixinAccessorMeta)entry;
+                    accessors.put(getKey(acc.getOwner().getOwner(), acc.getOwner().getName(), acc.getOwner().getDesc()), acc);
+                    break;
                 }
             }
         }
-        return ret;
+    }
+
+    private static String getKey(String owner, String name, String desc) {
+        return owner + ' ' + name + desc;
     }
 
     private final RangeApplier applier;
-    private final Map<String, Map<String, MixinAccessorMeta>> accessors = new HashMap<>();
+    private final Map<String, MixinAccessorMeta> accessors;
+    /*
+     * The final name of every accessor, owner + ' ' + name + desc -> name. Built the first time it's needed, so all the
+     * mappings have been loaded, and then every lookup is a single probe instead of mapping the target all over again.
+     */
+    private volatile Map<String, String> renames = null;
+    private boolean building = false;
 
     private ClassMeta(RangeApplier applier) {
+        this(applier, new HashMap<>());
+    }
+
+    private ClassMeta(RangeApplier applier, Map<String, MixinAccessorMeta> accessors) {
         this.applier = applier; //TODO: Abstract this  to a IMapper interface?
+        this.accessors = accessors;
+    }
+
+    /**
+     * The metadata only depends on the range maps, so other appliers working on the same ranges can share it.
+     * The renames depend on the mappings, so each applier builds it's own.
+     */
+    ClassMeta withApplier(RangeApplier applier) {
+        return new ClassMeta(applier, this.accessors);
     }
 
     public String mapMethod(String owner, String name, String desc) {
-        Map<String, MixinAccessorMeta> tmp = accessors.get(owner);
-        if (tmp == null)
+        if (accessors.isEmpty())
             return name;
 
-        MixinAccessorMeta acc = tmp.get(name + desc);
-        if (acc == null)
-            return name;
+        Map<String, String> renames = this.renames;
+        if (renames == null) {
+            synchronized (this) {
+                renames = this.renames;
+                if (renames == null) {
+                    // An accessor's target can be another accessor, which gets looked up while we're still building.
+                    if (building) {
+                        MixinAccessorMeta acc = accessors.get(getKey(owner, name, desc));
+                        return acc == null ? name : rename(acc);
+                    }
+
+                    building = true;
+                    try {
+                        Map<String, String> ret = new HashMap<>();
+                        accessors.forEach((k, v) -> ret.put(k, rename(v)));
+                        this.renames = renames = ret;
+                    } finally {
+                        building = false;
+                    }
+                }
+            }
+        }
+
+        String ret = renames.get(getKey(owner, name, desc));
+        return ret == null ? name : ret;
+    }
 
+    private String rename(MixinAccessorMeta acc) {
+        String name = acc.getOwner().getName();
         String tName = acc.getTarget().getName();
 
         if (acc.getTarget().getDesc().indexOf('(') == -1) { //Fields
@@ -21,108 +21,183 @@ package net.minecraftforge.srg2source.apply;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 
+/**
+ * Everything from one EXC file, layered on top of the files loaded before it.
+ *
+ * Entries are kept as they are in the file, keyed by {@code owner.name+desc}, so a lookup is one probe per layer and
+ * nothing is split until it's asked for. Layers are immutable, and a later layer only has to be checked first to
+ * override an earlier one, so loading another file never copies what's already loaded.
+ */
 public class ExceptorClass {
+    public static ExceptorClass load(Path path) throws IOException {
+        return load(path, StandardCharsets.UTF_8);
+    }
+    public static ExceptorClass load(Path path, Charset encoding) throws IOException {
+        return load(path, encoding, null);
+    }
+    public static ExceptorClass load(Path path, Charset encoding, @Nullable ExceptorClass parent) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, encoding)) {
+            return read(reader, parent);
+        }
+    }
+
+    /**
+     * @deprecated Use {@link #load(Path)}, which returns one lookup for every class.
+     */
+    @Deprecated
     public static Map<String, ExceptorClass> create(Path path) throws IOException {
         return create(path, StandardCharsets.UTF_8);
     }
+    /**
+     * @deprecated Use {@link #load(Path, Charset)}, which returns one lookup for every class.
+     */
+    @Deprecated
     public static Map<String, ExceptorClass> create(Path path, Charset encoding) throws IOException {
         return create(path, encoding, null);
     }
-    public static Map<String, ExceptorClass> create(Path path, Charset encoding, Map<String, ExceptorClass> parent) throws IOException {
-        Map<String, Map<String, String[]>> params = new HashMap<>();
-        Map<String, Map<String, String[]>> exceptions = new HashMap<>();
-        Set<String> known = new HashSet<>();
-
-        parent.forEach((k,v) -> {
-            if (v.params != null)
-                params.put(k, new HashMap<>(v.params));
-            if (v.exceptions != null)
-                exceptions.put(k, new HashMap<>(v.exceptions));
-            known.add(k);
-        });
-
-        try (InputStream stream = Files.newInputStream(path)) {
-            List<String> lines = new BufferedReader(new InputStreamReader(stream, encoding)).lines().collect(Collectors.toList());
-            for (int x = 0; x < lines.size(); x++) {
-                String line = stripComment(lines.get(x)).trim();
-
-                if (line.isEmpty())
-                    continue;
-
-                int idx = line.indexOf('=');
-                if (idx == -1)
-                    throw new IllegalArgumentException("Invalid Exceptor line #" + x + ": " + lines.get(x));
-
-                String key = line.substring(0, idx);
-                String value = line.substring(idx + 1);
-
-                idx = key.indexOf('.');
-                if (idx == -1 || value.isEmpty())
-                    throw new IllegalArgumentException("Invalid Exceptor line #" + x + ": " + lines.get(x));
-                String cls = key.substring(0, idx);
-                String mtd = key.substring(idx + 1);
-
-                idx = value.indexOf('|');
-                String excps = idx == -1 ? value : value.substring(0, idx);
-                String args  = idx == -1 ? ""    : value.substring(idx + 1);
-
-                if (!excps.isEmpty())
-                    exceptions.computeIfAbsent(cls, k -> new HashMap<>()).put(mtd, excps.split(","));
-                if (!args.isEmpty())
-                    params.computeIfAbsent(cls, k -> new HashMap<>()).put(mtd, args.split(","));
-                known.add(cls);
-            }
-        }
+    /**
+     * The old per class maps, for code that hasn't moved to {@link #load(Path, Charset, ExceptorClass)} yet.
+     * Every value is a view of the same lookup, bound to it's class so {@link #mapParam(String, String, int, String)} works.
+     *
+     * @deprecated Use {@link #load(Path, Charset, ExceptorClass)}, which returns one lookup for every class.
+     */
+    @Deprecated
+    public static Map<String, ExceptorClass> create(Path path, Charset encoding, @Nullable Map<String, ExceptorClass> parent) throws IOException {
+        ExceptorClass layers = parent == null || parent.isEmpty() ? null : parent.values().iterator().next().forOwner(null);
+        ExceptorClass loaded = load(path, encoding, layers);
 
         Map<String, ExceptorClass> ret = new HashMap<>();
-        for (String cls : known)
-            ret.put(cls, new ExceptorClass(params.get(cls), exceptions.get(cls)));
-
+        for (ExceptorClass layer = loaded; layer != null; layer = layer.parent) {
+            for (String key : layer.params.keySet())
+                ret.computeIfAbsent(key.substring(0, key.indexOf('.')), loaded::forOwner);
+            for (String key : layer.exceptions.keySet())
+                ret.computeIfAbsent(key.substring(0, key.indexOf('.')), loaded::forOwner);
+        }
         return ret;
     }
 
+    public static ExceptorClass read(BufferedReader reader, @Nullable ExceptorClass parent) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        Map<String, String> exceptions = new HashMap<>();
+
+        String raw;
+        for (int x = 0; (raw = reader.readLine()) != null; x++) {
+            String line = stripComment(raw).trim();
+
+            if (line.isEmpty())
+                continue;
+
+            int idx = line.indexOf('=');
+            if (idx == -1)
+                throw new IllegalArgumentException("Invalid Exceptor line #" + x + ": " + raw);
+
+            String key = line.substring(0, idx);
+            if (key.indexOf('.') == -1 || idx == line.length() - 1)
+                throw new IllegalArgumentException("Invalid Exceptor line #" + x + ": " + raw);
+
+            int split = line.indexOf('|', idx + 1);
+            int end = split == -1 ? line.length() : split;
+            if (end > idx + 1)
+                exceptions.put(key, line.substring(idx + 1, end));
+            if (split != -1 && split < line.length() - 1)
+                params.put(key, line.substring(split + 1));
+        }
+
+        return new ExceptorClass(params, exceptions, parent);
+    }
+
     private static String stripComment(String line) {
         int idx = line.indexOf('#');
         return idx == -1 ? line : line.substring(0, idx);
     }
 
+    private final Map<String, String> params;
+    private final Map<String, String> exceptions;
     @Nullable
-    private final Map<String, String[]> params;
+    private final ExceptorClass parent;
     @Nullable
-    private final Map<String, String[]> exceptions;
+    private final String owner; // Only set on the views returned by the deprecated create methods
+
+    private ExceptorClass(Map<String, String> params, Map<String, String> exceptions, @Nullable ExceptorClass parent) {
+        this(params, exceptions, parent, null);
+    }
+
+    private ExceptorClass(Map<String, String> params, Map<String, String> exceptions, @Nullable ExceptorClass parent, @Nullable String owner) {
+        this.params = params;
+        this.exceptions = exceptions;
+        this.parent = parent;
+        this.owner = owner;
+    }
 
-    private ExceptorClass(Map<String, String[]> params, Map<String, String[]> exceptions) {
-        if (params != null && !params.isEmpty())
-            this.params = Collections.unmodifiableMap(params);
-        else
-            this.params = null;
-        if (exceptions != null && !exceptions.isEmpty())
-            this.exceptions = Collections.unmodifiableMap(exceptions);
-        else
-            this.exceptions = null;
+    private ExceptorClass forOwner(@Nullable String owner) {
+        return new ExceptorClass(params, exceptions, parent, owner);
     }
 
+    /**
+     * @deprecated Use {@link #mapParam(String, String, String, int, String)} on the lookup returned by {@link #load(Path)}.
+     */
+    @Deprecated
     @Nullable
     public String mapParam(String name, String desc, int index, String old) {
-        String[] args = this.params.get(name + desc);
-        if (args == null || index >= args.length)
+        if (owner == null)
+            throw new IllegalStateException("Only the per class views from create(...) know their owner, pass it to mapParam instead");
+        return mapParam(owner, name, desc, index, old);
+    }
+
+    @Nullable
+    public String mapParam(String owner, String name, String desc, int index, String old) {
+        String args = find(owner + '.' + name + desc, true);
+        return args == null ? null : getEntry(args, index);
+    }
+
+    @Nullable
+    public String[] getExceptions(String owner, String name, String desc) {
+        String excs = find(owner + '.' + name + desc, false);
+        return excs == null ? null : excs.split(",");
+    }
+
+    @Nullable
+    private String find(String key, boolean params) {
+        for (ExceptorClass layer = this; layer != null; layer = layer.parent) {
+            String ret = (params ? layer.params : layer.exceptions).get(key);
+            if (ret != null)
+                return ret;
+        }
+        return null;
+    }
+
+    /*
+     * The same as args.split(",")[index] without building the array, so trailing empty entries don't count either.
+     */
+    @Nullable
+    private static String getEntry(String args, int index) {
+        int start = 0;
+        for (int x = 0; x < index; x++) {
+            start = args.indexOf(',', start) + 1;
+            if (start == 0)
+                return null;
+        }
+
+        int end = args.indexOf(',', start);
+        if (end == -1)
+            end = args.length();
+
+        if (start == end) {
+            for (int x = end; x < args.length(); x++) {
+                if (args.charAt(x) != ',')
+                    return args.substring(start, end);
+            }
             return null;
-        return args[index];
+        }
+        return args.substring(start, end);
     }
 }
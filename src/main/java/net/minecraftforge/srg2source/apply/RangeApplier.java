@@ -39,10 +39,14 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+
+import javax.annotation.Nullable;
 
 import net.minecraftforge.srg2source.api.InputSupplier;
 import net.minecraftforge.srg2source.api.OutputSupplier;
@@ -57,7 +61,12 @@ import net.minecraftforge.srg2source.range.entries.MethodReference;
 import net.minecraftforge.srg2source.range.entries.ParameterReference;
 import net.minecraftforge.srg2source.range.entries.RangeEntry;
 import net.minecraftforge.srg2source.util.Util;
+import net.minecraftforge.srg2source.util.io.AsyncOutputSupplier;
 import net.minecraftforge.srg2source.util.io.ConfLogger;
+import net.minecraftforge.srg2source.util.io.FolderSupplier;
+import net.minecraftforge.srg2source.util.io.IOExecutor;
+import net.minecraftforge.srg2source.util.io.ParallelZipOutputSupplier;
+import net.minecraftforge.srg2source.util.io.ZipFileInputSupplier;
 import net.minecraftforge.srgutils.IMappingFile;
 
 @SuppressWarnings("unused")
@@ -66,32 +75,35 @@ public class RangeApplier extends ConfLogger<RangeApplier> {
 
     private List<IMappingFile> srgs = new ArrayList<>();
     private Map<String, String> clsSrc2Internal = new HashMap<>();
-    private Map<String, ExceptorClass> excs = Collections.emptyMap();
+    private ExceptorClass excs = null;
     private boolean keepImports = false; // Keep imports that are not referenced anywhere in code.
     private InputSupplier input = null;
     private OutputSupplier output = null;
     private Map<String, RangeMap> range = new HashMap<>();
     private ClassMeta meta = null;
-    private Map<String, String> guessLambdas = null;
+    private boolean guessLambdas = false;
+    // Parameter names to guess lambda parameters from, only built once one is needed. See getLambdaParams
+    private Map<String, String> lambdaParams = null;
+    @Nullable
+    private Set<String> lambdaNames = null; // Every lambda parameter in the range maps, null if they aren't all known up front.
     private boolean guessLocals = false;
+    // Var type -> old name -> new name, the same locals show up over and over in decompiled code. Unchanged names map to themselves.
+    private Map<String, Map<String, String>> localCache = new ConcurrentHashMap<>();
+    private int localLookups = 0;
+    private int localHits = 0;
     private boolean sortImports = false;
+    private boolean parallel = false;
+    private boolean copyResources = false;
+    private List<RangeApplier> targets = new ArrayList<>();
 
     public void readSrg(Path srg) {
         try (InputStream in = Files.newInputStream(srg)) {
             IMappingFile map = IMappingFile.load(in);
             srgs.add(map); //TODO: Add merge function to SrgUtils?
 
-            map.getClasses().forEach(cls -> {
-                clsSrc2Internal.put(cls.getOriginal().replace('/', '.').replace('$', '.'), cls.getOriginal());
-
-                if (guessLambdas != null) {
-                    cls.getMethods().stream()
-                    .filter(Objects::nonNull)
-                    .flatMap(mtd -> mtd.getParameters().stream())
-                    .filter(Objects::nonNull)
-                    .forEach(p -> this.guessLambdas.put(p.getOriginal(), p.getMapped()));
-                }
-            });
+            map.getClasses().forEach(cls -> clsSrc2Internal.put(cls.getOriginal().replace('/', '.').replace('$', '.'), cls.getOriginal()));
+            this.lambdaParams = null;
+            this.localCache.clear();
         } catch (IOException e) {
             throw new IllegalStateException("Failed to read SRG: " + srg, e);
         }
@@ -103,23 +115,15 @@ public class RangeApplier extends ConfLogger<RangeApplier> {
 
     public void readExc(Path value, Charset encoding) {
         try {
-            this.excs = ExceptorClass.create(value, encoding, this.excs);
+            this.excs = ExceptorClass.load(value, encoding, this.excs);
         } catch (IOException e) {
             throw new IllegalStateException("Failed to read EXC: " + value, e);
         }
     }
 
     public void setGuessLambdas(boolean value) {
-        if (!value) {
-            this.guessLambdas = null;
-        } else {
-            this.guessLambdas = new HashMap<>();
-            this.srgs.stream()
-                .flatMap(srg -> srg.getClasses().stream())
-                .flatMap(cls -> cls.getMethods().stream())
-                .flatMap(mtd -> mtd.getParameters().stream())
-                .forEach(p -> this.guessLambdas.put(p.getOriginal(), p.getMapped()));
-        }
+        this.guessLambdas = value;
+        this.lambdaParams = null;
     }
 
     public void setGuessLocals(boolean value) {
@@ -130,6 +134,23 @@ public class RangeApplier extends ConfLogger<RangeApplier> {
         this.sortImports = value;
     }
 
+    /**
+     * Reads, rewrites and writes every file at once, see {@link IOExecutor}. The output has to be safe to use from multiple threads, like
+     * {@link FolderSupplier}, {@link ParallelZipOutputSupplier} or {@link AsyncOutputSupplier}, and files
+     * are logged as they finish, so the log is no longer in order.
+     */
+    public void setParallel(boolean value) {
+        this.parallel = value;
+    }
+
+    /**
+     * Copies everything in the input that isn't java source to the output, and every target's output, as is.
+     * Entries going from one zip to another aren't even decompressed, see {@link ZipFileInputSupplier#getRaw(String)}.
+     */
+    public void setCopyResources(boolean value) {
+        this.copyResources = value;
+    }
+
     public void setInput(InputSupplier value) {
         this.input = value;
     }
@@ -138,17 +159,22 @@ public class RangeApplier extends ConfLogger<RangeApplier> {
         this.output = value;
     }
 
+    /**
+     * Adds another set of mappings and output to apply the same inputs and range map to.
+     * Each file is only read once, and then rewritten for this applier and every target in turn.
+     * Targets only need their mappings, excs, options, and output, everything else comes from this applier.
+     */
+    public void addTarget(RangeApplier value) {
+        this.targets.add(value);
+    }
+
     public void readRangeMap(File value) {
-        try (InputStream in = Files.newInputStream(value.toPath())) {
-            this.range.putAll(RangeMap.readAll(in));
-        } catch (IOException e) {
-            throw new IllegalArgumentException("Invalid range map: " + value);
-        }
+        readRangeMap(value.toPath());
     }
 
     public void readRangeMap(Path value) {
-        try (InputStream in = Files.newInputStream(value)) {
-            this.range.putAll(RangeMap.readAll(in));
+        try {
+            this.range.putAll(RangeMap.readAll(value));
         } catch (IOException e) {
             throw new IllegalArgumentException("Invalid range map: " + value);
         }
@@ -161,54 +187,166 @@ public class RangeApplier extends ConfLogger<RangeApplier> {
     public void run() throws IOException {
         if (input == null)
             throw new IllegalStateException("Missing Range Apply input");
-        if (output == null)
-            throw new IllegalStateException("Missing Range Apply output");
         if (range == null)
             throw new IllegalStateException("Missing Range Apply range");
 
-        meta = ClassMeta.create(this, range);
+        if (guessLambdas) {
+            Set<String> names = new HashSet<>();
+            for (RangeMap map : range.values()) {
+                for (RangeEntry entry : map.getEntries()) {
+                    if (entry.getType() == RangeEntry.Type.PARAMETER && ((ParameterReference)entry).getName().startsWith("lambda$"))
+                        names.add(entry.getText());
+                }
+            }
+            setLambdaNames(names);
+        }
+
+        start(ClassMeta.create(this, range));
 
         List<String> paths = new ArrayList<>(range.keySet());
         Collections.sort(paths);
 
         log("Processing " + paths.size() + " files");
 
-        for (String filePath : paths) {
-            log("Start Processing: " + filePath);
-            InputStream stream = input.getInput(filePath);
+        if (parallel)
+            IOExecutor.forEach(paths, this::apply);
+        else {
+            for (String filePath : paths)
+                apply(filePath);
+        }
 
-            //no stream? what?
-            if (stream == null) {
-                // yeah.. nope.
-                log("Data not found: " + filePath);
-                continue;
-            }
-            Charset encoding = input.getEncoding(filePath);
-            if (encoding == null)
-                encoding = StandardCharsets.UTF_8;
+        if (copyResources)
+            copyResources();
 
-            String data = new String(Util.readStream(stream), encoding);
-            stream.close();
+        try {
+            finish();
+        } finally {
+            input.close();
+        }
+    }
 
-            // process
-            List<String> out = processJavaSourceFile(filePath, data, range.get(filePath), meta);
-            filePath = out.get(0);
-            data = out.get(1);
+    private void apply(String filePath) throws IOException {
+        log("Start Processing: " + filePath);
+        byte[] bytes = input.getBytes(filePath);
 
-            // write.
+        //no data? what?
+        if (bytes == null) {
+            // yeah.. nope.
+            log("Data not found: " + filePath);
+            return;
+        }
+        Charset encoding = input.getEncoding(filePath);
+        if (encoding == null)
+            encoding = StandardCharsets.UTF_8;
+
+        apply(filePath, new String(bytes, encoding), encoding, range.get(filePath));
+    }
+
+    private void copyResources() throws IOException {
+        List<String> resources = input.gatherAll("").stream().filter(f -> !f.endsWith(".java")).collect(Collectors.toList());
+        log("Copying " + resources.size() + " resources");
+
+        for (String resource : resources) {
+            ZipFileInputSupplier.RawEntry raw = input instanceof ZipFileInputSupplier ? ((ZipFileInputSupplier)input).getRaw(resource) : null;
+            byte[] data = raw != null && raw.getMethod() == ZipEntry.STORED ? raw.getData() : null;
+            copyResource(resource, raw, data);
+        }
+    }
+
+    private void copyResource(String resource, @Nullable ZipFileInputSupplier.RawEntry raw, @Nullable byte[] data) throws IOException {
+        if (raw != null && output instanceof ParallelZipOutputSupplier)
+            ((ParallelZipOutputSupplier)output).copyRaw(raw);
+        else {
+            if (data == null)
+                data = input.getBytes(resource);
             if (data != null) {
-                OutputStream outStream = output.getOutput(filePath);
-                if (outStream == null)
-                    throw new IllegalStateException("Could not get output stream form: " + filePath);
-                outStream.write(data.getBytes(encoding));
-                outStream.close();
+                try (OutputStream out = output.getOutput(resource)) {
+                    if (out == null)
+                        throw new IllegalStateException("Could not get output stream form: " + resource);
+                    out.write(data);
+                }
             }
+        }
 
-            log("End  Processing: " + filePath);
-            log("");
+        for (RangeApplier target : targets)
+            target.copyResource(resource, raw, data);
+    }
+
+    private void setLambdaNames(Set<String> value) {
+        this.lambdaNames = value;
+        this.lambdaParams = null;
+        for (RangeApplier target : targets)
+            target.setLambdaNames(value);
+    }
+
+    /*
+     * Split out of run so that RangeRemapper can feed us files as they are extracted, without a range map on disk.
+     */
+    void start(ClassMeta meta) {
+        if (output == null)
+            throw new IllegalStateException("Missing Range Apply output");
+        this.meta = meta;
+        for (RangeApplier target : targets)
+            target.start(meta == null ? null : meta.withApplier(target));
+    }
+
+    void apply(String fileName, String source, Charset encoding, RangeMap rangeList) throws IOException {
+        // process
+        List<String> out = processJavaSourceFile(fileName, source, rangeList, meta);
+        String filePath = out.get(0);
+        String data = out.get(1);
+
+        // write.
+        if (data != null) {
+            OutputStream outStream = output.getOutput(filePath);
+            if (outStream == null)
+                throw new IllegalStateException("Could not get output stream form: " + filePath);
+            outStream.write(data.getBytes(encoding));
+            outStream.close();
+        }
+
+        log("End  Processing: " + filePath);
+        log("");
+
+        for (RangeApplier target : targets)
+            target.apply(fileName, source, encoding, rangeList);
+    }
+
+    /*
+     * Every target's output is closed even if an earlier one fails, so none of them are left half written.
+     * The first failure is thrown, with any others added to it as suppressed.
+     */
+    void finish() throws IOException {
+        Throwable error = null;
+        try {
+            if (localLookups > 0)
+                log("Guessed " + localLookups + " local variables, " + localHits + " cached (" + (localHits * 100L / localLookups) + "%)");
+            output.close();
+
+            OutputSupplier out = output instanceof AsyncOutputSupplier ? ((AsyncOutputSupplier)output).getDelegate() : output;
+            if (out instanceof FolderSupplier) {
+                FolderSupplier folder = (FolderSupplier)out;
+                log("Wrote " + folder.getWritten() + " files, skipped " + folder.getSkipped() + " unchanged, deleted " + folder.getDeleted() + " stale");
+            }
+        } catch (IOException | RuntimeException e) {
+            error = e;
+        }
+
+        for (RangeApplier target : targets) {
+            try {
+                target.finish();
+            } catch (IOException | RuntimeException e) {
+                if (error == null)
+                    error = e;
+                else
+                    error.addSuppressed(e);
+            }
         }
 
-        output.close();
+        if (error instanceof IOException)
+            throw (IOException)error;
+        if (error != null)
+            throw (RuntimeException)error;
     }
 
     private List<String> processJavaSourceFile(String fileName, String data, RangeMap rangeList, ClassMeta meta) throws IOException {
@@ -656,8 +794,7 @@ public class RangeApplier extends ConfLogger<RangeApplier> {
     }
 
     private String mapParam(String owner, String name, String desc, int index, String old) {
-        ExceptorClass exc = this.excs.get(owner);
-        String ret = exc == null ? null : exc.mapParam(name, desc, index, old);
+        String ret = this.excs == null ? null : this.excs.mapParam(owner, name, desc, index, old);
         if (ret == null) {
             for (IMappingFile srg : srgs) {
                 IMappingFile.IClass cls = srg.getClass(owner);
@@ -673,17 +810,70 @@ public class RangeApplier extends ConfLogger<RangeApplier> {
                 }
             }
         }
-        if (ret == null && this.guessLambdas != null && name.startsWith("lambda$"))
-            ret = this.guessLambdas.get(old);
+        if (ret == null && this.guessLambdas && name.startsWith("lambda$"))
+            ret = getLambdaParams().get(old);
 
         return ret == null ? old : ret;
     }
 
-    // Guess JAD style local variables, and some Fernflower quarks
+    /*
+     * Every parameter name in every mapping, so lambdas can be given the name of the parameter they are passed.
+     * For a full set of mappings that's millions of names, so if we know which lambda parameters are in the range maps
+     * only those are kept, and it isn't built at all until a lambda parameter has no other mapping.
+     */
+    private synchronized Map<String, String> getLambdaParams() {
+        if (lambdaParams == null) {
+            Map<String, String> ret = new HashMap<>();
+            if (lambdaNames == null || !lambdaNames.isEmpty()) {
+                this.srgs.stream()
+                    .flatMap(srg -> srg.getClasses().stream())
+                    .flatMap(cls -> cls.getMethods().stream())
+                    .filter(Objects::nonNull)
+                    .flatMap(mtd -> mtd.getParameters().stream())
+                    .filter(p -> p != null && (lambdaNames == null || lambdaNames.contains(p.getOriginal())))
+                    .forEach(p -> ret.put(p.getOriginal(), p.getMapped()));
+            }
+            log("Guessing lambda parameters from " + ret.size() + " names");
+            lambdaParams = ret;
+        }
+        return lambdaParams;
+    }
+
+    /**
+     * @return How many local variables have had their names guessed, see {@link #setGuessLocals(boolean)}.
+     */
+    public int getLocalLookups() {
+        return this.localLookups;
+    }
+
+    /**
+     * @return How many of the local variable guesses were already known from an earlier variable with the same type and name.
+     */
+    public int getLocalCacheHits() {
+        return this.localHits;
+    }
+
     private String mapLocal(String owner, String name, String desc, int index, String type, String old) {
         if (!guessLocals || type.indexOf(';') == -1)
             return old;
 
+        Map<String, String> cache = localCache.computeIfAbsent(type, k -> new ConcurrentHashMap<>());
+        String ret = cache.get(old);
+        synchronized (this) {
+            localLookups++;
+            if (ret != null)
+                localHits++;
+        }
+        if (ret != null)
+            return ret;
+
+        ret = guessLocal(type, old);
+        cache.put(old, ret);
+        return ret;
+    }
+
+    // Guess JAD style local variables, and some Fernflower quarks
+    private String guessLocal(String type, String old) {
         String prefix = "";
 
         // Arrays are 'a' + type name
@@ -0,0 +1,103 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.apply;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import net.minecraftforge.srg2source.extract.RangeExtractor;
+import net.minecraftforge.srg2source.range.RangeMap;
+
+/**
+ * Runs extraction and hands every file's range map directly to the applier, so the range map never has to be
+ * written out and parsed back in. The extractor may still be given an output if the range map is wanted as well.
+ */
+public class RangeRemapper {
+    private final RangeExtractor extractor;
+    private final RangeApplier applier;
+    private final boolean deferred;
+    private final List<Pending> pending = new ArrayList<>();
+    private IOException error = null;
+
+    /**
+     * @param deferred Hold on to every file until extraction has finished before applying any of them.
+     *                 Needed when mixins are enabled, as accessor metadata from any file can affect every other file.
+     */
+    public RangeRemapper(RangeExtractor extractor, RangeApplier applier, boolean deferred) {
+        this.extractor = extractor;
+        this.applier = applier;
+        this.deferred = deferred;
+        this.extractor.addRangeConsumer(this::accept);
+    }
+
+    public boolean run() throws IOException {
+        applier.start(deferred ? null : ClassMeta.create(applier, Collections.emptyMap()));
+
+        boolean ret = extractor.run();
+
+        if (deferred && error == null) {
+            applier.start(ClassMeta.create(applier, pending.stream().map(p -> p.range).collect(Collectors.toList())));
+            for (Pending file : pending)
+                applier.apply(file.path, file.data, file.encoding, file.range);
+            pending.clear();
+        }
+
+        applier.finish();
+
+        if (error != null)
+            throw error;
+        return ret;
+    }
+
+    private void accept(String path, String data, Charset encoding, RangeMap range) {
+        if (error != null)
+            return;
+
+        if (deferred) {
+            pending.add(new Pending(path, data, encoding, range));
+            return;
+        }
+
+        try {
+            applier.apply(path, data, encoding, range);
+        } catch (IOException e) {
+            // The extractor just logs IO errors and moves on, we want the whole run to fail.
+            error = e;
+        }
+    }
+
+    private static class Pending {
+        private final String path;
+        private final String data;
+        private final Charset encoding;
+        private final RangeMap range;
+
+        private Pending(String path, String data, Charset encoding, RangeMap range) {
+            this.path = path;
+            this.data = data;
+            this.encoding = encoding;
+            this.range = range;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.apply;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import net.minecraftforge.srg2source.api.InputSupplier;
+import net.minecraftforge.srg2source.range.RangeMap;
+import net.minecraftforge.srg2source.range.entries.RangeEntry;
+import net.minecraftforge.srg2source.util.Util;
+import net.minecraftforge.srg2source.util.io.ConfLogger;
+import net.minecraftforge.srg2source.util.io.IOExecutor;
+
+/**
+ * Checks if a range map still matches the sources, without applying anything.
+ * Every input is hashed in parallel and compared to the hash in it's range map, and optionally a few entries
+ * from each file are spot checked against the text they should point at.
+ */
+public class RangeVerifier extends ConfLogger<RangeVerifier> {
+    private InputSupplier input = null;
+    private Map<String, RangeMap> range = null;
+    private int spotChecks = 0;
+
+    private final Set<String> stale = Collections.synchronizedSet(new TreeSet<>());
+    private final Set<String> missing = new TreeSet<>();
+    private final Set<String> extra = new TreeSet<>();
+    private final List<String> mismatches = Collections.synchronizedList(new ArrayList<>());
+
+    public void setInput(InputSupplier value) {
+        this.input = value;
+    }
+
+    public void setRange(Map<String, RangeMap> value) {
+        this.range = value;
+    }
+
+    public void readRangeMap(Path value) throws IOException {
+        this.range = RangeMap.readAll(value);
+    }
+
+    /**
+     * Number of entries in every up to date file to check the text of, spread evenly through the file. 0 to just check hashes.
+     */
+    public void setSpotChecks(int value) {
+        this.spotChecks = value;
+    }
+
+    /**
+     * @return True if every input has an up to date range map, and every range map has an input.
+     */
+    public boolean run() {
+        if (input == null)
+            throw new IllegalStateException("Missing Range Verify input");
+        if (range == null)
+            throw new IllegalStateException("Missing Range Verify range map");
+
+        try {
+            return verifyAll();
+        } finally {
+            try {
+                input.close();
+            } catch (IOException e) {
+                e.printStackTrace(getErrorLogger());
+            }
+        }
+    }
+
+    private boolean verifyAll() {
+        List<String> files = input.gatherAll(".java").stream()
+                .map(f -> f.replaceAll("\\\\", "/")) // Normalize directory separators.
+                .sorted()
+                .collect(Collectors.toList());
+
+        Set<String> found = new HashSet<>(files);
+        for (String file : files) {
+            if (!range.containsKey(file))
+                extra.add(file);
+        }
+        for (String file : range.keySet()) {
+            if (!found.contains(file))
+                missing.add(file);
+        }
+
+        try {
+            IOExecutor.forEach(files.stream().filter(range::containsKey).collect(Collectors.toList()), this::verify);
+        } catch (IOException e) {
+            e.printStackTrace(getErrorLogger());
+            return false;
+        }
+
+        stale.forEach(f -> log("Stale:    " + f));
+        mismatches.stream().sorted().forEach(m -> log("Mismatch: " + m));
+        missing.forEach(f -> log("Missing:  " + f));
+        extra.forEach(f -> log("Extra:    " + f));
+        log("Verified " + files.size() + " files: " + stale.size() + " stale, " + mismatches.size() + " mismatched entries, " +
+            missing.size() + " missing, " + extra.size() + " extra");
+
+        return isUpToDate();
+    }
+
+    private void verify(String file) throws IOException {
+        RangeMap info = range.get(file);
+        Charset encoding = input.getEncoding(file);
+        if (encoding == null)
+            encoding = StandardCharsets.UTF_8;
+
+        byte[] bytes = input.getBytes(file);
+        if (bytes == null)
+            throw new IOException("Data not found: " + file);
+        String data = new String(bytes, encoding);
+
+        if (!Util.md5(data, encoding).equals(info.getHash())) {
+            stale.add(file);
+            return;
+        }
+
+        List<RangeEntry> entries = info.getEntries();
+        int checks = Math.min(spotChecks, entries.size());
+        for (int x = 0; x < checks; x++) {
+            RangeEntry entry = entries.get((int)((long)entries.size() * x / checks));
+            int end = entry.getStart() + entry.getLength();
+            String actual = end > data.length() ? null : data.substring(entry.getStart(), end);
+            if (!entry.getText().equals(actual))
+                mismatches.add(file + " @ " + entry.getStart() + ": expected '" + entry.getText() + "' but found '" + actual + "'");
+        }
+    }
+
+    public boolean isUpToDate() {
+        return stale.isEmpty() && mismatches.isEmpty() && missing.isEmpty() && extra.isEmpty();
+    }
+
+    /**
+     * @return Files whose contents no longer match the hash in their range map.
+     */
+    public Set<String> getStale() {
+        return Collections.unmodifiableSet(stale);
+    }
+
+    /**
+     * @return Files in the range map that aren't in the inputs.
+     */
+    public Set<String> getMissing() {
+        return Collections.unmodifiableSet(missing);
+    }
+
+    /**
+     * @return Files in the inputs that aren't in the range map.
+     */
+    public Set<String> getExtra() {
+        return Collections.unmodifiableSet(extra);
+    }
+
+    /**
+     * @return A description of every spot checked entry that didn't match the source.
+     */
+    public List<String> getMismatches() {
+        return Collections.unmodifiableList(mismatches);
+    }
+}
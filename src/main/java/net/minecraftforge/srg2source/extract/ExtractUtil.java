@@ -20,6 +20,7 @@
 package net.minecraftforge.srg2source.extract;
 
 import java.util.List;
+import java.util.Set;
 
 import javax.annotation.Nullable;
 
@@ -85,6 +86,31 @@ public class ExtractUtil {
         return prefix == null ? ret : prefix + ret;
     }
 
+    /**
+     * Adds the top level type every source type in a type's hierarchy is declared in, which is what a range map depends on
+     * when it uses that type. Types in {@code seen} are skipped, along with everything above them.
+     */
+    public static void addSourceHierarchy(@Nullable ITypeBinding type, Set<ITypeBinding> seen, Set<String> ret) {
+        if (type == null)
+            return;
+        if (type.isArray())
+            type = type.getElementType();
+        type = type.getTypeDeclaration();
+        if (type.isPrimitive() || type.isTypeVariable() || type.isCapture() || type.isWildcardType() || type.isIntersectionType() || type.isRecovered())
+            return;
+        if (!type.isFromSource() || !seen.add(type))
+            return;
+
+        ITypeBinding top = type;
+        while (top.getDeclaringClass() != null)
+            top = top.getDeclaringClass();
+        ret.add(getInternalName(top));
+
+        addSourceHierarchy(type.getSuperclass(), seen, ret);
+        for (ITypeBinding intf : type.getInterfaces())
+            addSourceHierarchy(intf, seen, ret);
+    }
+
     @Nullable
     public static IMethodBinding findRoot(ITypeBinding type, String name, String desc) {
         for (IMethodBinding bind : type.getDeclaredMethods()) {
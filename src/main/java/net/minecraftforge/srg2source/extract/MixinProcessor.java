@@ -20,11 +20,13 @@
 package net.minecraftforge.srg2source.extract;
 
 import java.util.EnumMap;
-import java.util.HashMap;
 import java.util.Map;
 
 import javax.annotation.Nullable;
 
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.Annotation;
+import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.IMethodBinding;
 import org.eclipse.jdt.core.dom.ITypeBinding;
 import org.eclipse.jdt.core.dom.MarkerAnnotation;
@@ -33,6 +35,7 @@ import org.eclipse.jdt.core.dom.SimpleName;
 import org.eclipse.jdt.core.dom.SingleMemberAnnotation;
 import net.minecraftforge.srg2source.mixin.IAnnotationProcessor;
 import net.minecraftforge.srg2source.mixin.MixinAnnotation;
+import net.minecraftforge.srg2source.mixin.MixinIndex;
 import net.minecraftforge.srg2source.mixin.MixinInfo;
 import net.minecraftforge.srg2source.mixin.MixinInfo.InterfaceInfo;
 import net.minecraftforge.srg2source.mixin.MixinInfo.ShadowInfo;
@@ -47,11 +50,61 @@ import net.minecraftforge.srg2source.range.RangeMapBuilder;
 
 public class MixinProcessor {
     private final SymbolReferenceWalker walker;
-    private final Map<String, MixinInfo> mixins = new HashMap<>();
+    private final MixinIndex mixins;
     private final Map<MixinAnnotation, IAnnotationProcessor> annotations = new EnumMap<>(MixinAnnotation.class);
+    private final boolean collectOnly; // Filling in the index before anything is walked, see collect
 
-    MixinProcessor(SymbolReferenceWalker walker) {
+    MixinProcessor(SymbolReferenceWalker walker, @Nullable MixinIndex mixins) {
+        this(walker, mixins, false);
+    }
+
+    private MixinProcessor(SymbolReferenceWalker walker, @Nullable MixinIndex mixins, boolean collectOnly) {
         this.walker = walker;
+        this.mixins = mixins == null ? new MixinIndex() : mixins;
+        this.collectOnly = collectOnly;
+    }
+
+    /*
+     * Runs the annotation processors over every annotation in a file, and nothing else, to fill in the index before it's frozen.
+     * Anything they add to the range map is thrown away, and errors are left for when the file is really walked.
+     */
+    static void collect(RangeExtractor extractor, MixinIndex mixins, String path, CompilationUnit cu) {
+        SymbolReferenceWalker walker = new SymbolReferenceWalker(extractor, new RangeMapBuilder(extractor, path, ""), false);
+        MixinProcessor processor = new MixinProcessor(walker, mixins, true);
+        cu.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(NormalAnnotation node) {
+                return processor.process(node, getName(node));
+            }
+
+            @Override
+            public boolean visit(SingleMemberAnnotation node) {
+                return processor.process(node, getName(node));
+            }
+
+            @Override
+            public boolean visit(MarkerAnnotation node) {
+                return processor.process(node, getName(node));
+            }
+
+            private String getName(Annotation node) {
+                return ExtractUtil.getInternalName(path, (ITypeBinding)node.getTypeName().resolveBinding(), node.getTypeName());
+            }
+        });
+    }
+
+    /**
+     * @return True if annotations should add what they find to the index, which is only before it's been frozen.
+     */
+    public boolean isCollecting() {
+        return !this.mixins.isFrozen();
+    }
+
+    /**
+     * @return True if this is only filling in the index, and nothing is going to be written.
+     */
+    public boolean isCollectOnly() {
+        return this.collectOnly;
     }
 
     boolean process(NormalAnnotation node, String name) {
@@ -71,12 +124,16 @@ public class MixinProcessor {
 
     @Nullable
     public MixinInfo getInfo(String owner) {
-        return this.mixins.get(owner);
+        return this.mixins.getInfo(owner);
     }
 
+    /**
+     * @return The info for a type with a {@code @Mixin} annotation, null if the index is frozen and it wasn't collected.
+     */
+    @Nullable
     public MixinInfo getOrCreateInfo(ITypeBinding owner) {
         String name = ExtractUtil.getInternalName(getBuilder().getFilename(), owner, null);
-        return this.mixins.computeIfAbsent(name, k -> new MixinInfo(name, owner));
+        return isCollecting() ? this.mixins.getOrCreateInfo(name) : this.mixins.getInfo(name);
     }
 
     public SymbolReferenceWalker getWalker() {
@@ -97,7 +154,7 @@ public class MixinProcessor {
 
 
     String getFieldOwner(String owner, String name, String type) {
-        MixinInfo info = this.mixins.get(owner);
+        MixinInfo info = this.mixins.getInfo(owner);
         if (info == null)
             return owner;
         String ret = info.getShadedOwner(name, type);
@@ -105,13 +162,16 @@ public class MixinProcessor {
     }
 
    boolean processMethodReference(SimpleName node, IMethodBinding root, String owner, String name, String desc) {
-       MixinInfo info = this.mixins.get(owner);
+       MixinInfo info = this.mixins.getInfo(owner);
        if (info == null || info.getTarget() == null)
            return false;
 
        if (info.isOverwrite(name, desc)) {
-           IMethodBinding mtd = ExtractUtil.findRoot(info.getTargetType(), name, desc);
-           String towner = ExtractUtil.getInternalName("{unknown}", mtd.getDeclaringClass(), node);
+           // Targets we couldn't resolve, or that don't have the method, are assumed to declare it themselves.
+           walker.addDependencies(info.getDependencies(info.getTarget()));
+           String towner = info.getOverwriteOwner(name, desc);
+           if (towner == null)
+               towner = info.getTarget();
            getBuilder().addMethodReference(node.getStartPosition(), node.getLength(), node.toString(), towner, name, desc);
            return true;
        }
@@ -0,0 +1,200 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.extract;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import net.minecraftforge.srg2source.range.RangeMap;
+import net.minecraftforge.srg2source.range.SplitRangeMap;
+import net.minecraftforge.srg2source.util.io.ConfLogger;
+
+/**
+ * Keeps a range map up to date while the sources are being edited.
+ *
+ * Every pass builds a new extractor, and gives it the range maps from the last pass as it's cache, so only the files that
+ * changed and the files that depend on them are parsed again, see {@link RangeExtractor#enableIncremental()}. JDT builds
+ * a new environment for every parse anyway, so the range maps are the only thing worth keeping between passes.
+ * A single output file is written next to the old one and moved over it, so nothing reading it ever sees half a file.
+ */
+public class RangeExtractWatcher extends ConfLogger<RangeExtractWatcher> {
+    private static final long SETTLE = 100; // Milliseconds without any events before extracting, editors tend to save in a few steps.
+
+    private final Supplier<RangeExtractor> factory;
+    private final Path output;
+    private final boolean split;
+    private final boolean pretty;
+    private final List<Path> roots = new ArrayList<>();
+    private final Map<WatchKey, Path> dirs = new HashMap<>();
+    private Map<String, RangeMap> last = Collections.emptyMap();
+
+    /**
+     * @param factory Creates an extractor with everything but it's output setup, called once for every pass.
+     * @param split True to write the output as a {@link SplitRangeMap} instead of a single file.
+     */
+    public RangeExtractWatcher(Supplier<RangeExtractor> factory, Path output, boolean split, boolean pretty) {
+        this.factory = factory;
+        this.output = output;
+        this.split = split;
+        this.pretty = pretty;
+    }
+
+    /**
+     * Watches a source directory, and every directory under it, for changes to java files.
+     */
+    public void addRoot(Path value) {
+        this.roots.add(value);
+    }
+
+    /**
+     * Extracts everything once, then again every time a java file under one of the roots changes. Never returns unless interrupted.
+     */
+    public void run() throws IOException, InterruptedException {
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            for (Path root : roots)
+                register(watcher, root);
+
+            // Anything we wrote last time can be reused, as long as it was incremental.
+            if (Files.exists(output)) {
+                try {
+                    last = RangeMap.readAll(output);
+                } catch (IOException | RuntimeException e) {
+                    log("Could not read existing output, extracting everything: " + e.getMessage());
+                }
+            }
+
+            extract();
+            log("Watching " + dirs.size() + " directories for changes");
+
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean changed = false;
+                do {
+                    changed |= process(watcher, key);
+                    key = watcher.poll(SETTLE, TimeUnit.MILLISECONDS);
+                } while (key != null);
+
+                if (changed)
+                    extract();
+            }
+        }
+    }
+
+    /**
+     * Runs a single pass, reusing everything from the last one that's still valid.
+     */
+    public boolean extract() throws IOException {
+        long start = System.nanoTime();
+        RangeExtractor extractor = factory.get();
+        extractor.enableIncremental();
+        extractor.loadCache(last);
+
+        Map<String, RangeMap> ranges = Collections.synchronizedMap(new HashMap<>());
+        extractor.addRangeConsumer((path, data, encoding, range) -> ranges.put(path, range));
+
+        Path temp = null;
+        try {
+            if (split)
+                extractor.setOutput(SplitRangeMap.writer(output, pretty));
+            else {
+                Path parent = output.toAbsolutePath().getParent();
+                if (!Files.exists(parent))
+                    Files.createDirectories(parent);
+                temp = Files.createTempFile(parent, output.getFileName().toString(), ".tmp");
+                extractor.setOutput(new PrintWriter(Files.newBufferedWriter(temp, StandardCharsets.UTF_8)));
+            }
+
+            boolean ret = extractor.run();
+            if (temp != null) {
+                try {
+                    Files.move(temp, output, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+
+            last = ranges;
+            log("Extracted " + ranges.size() + " files in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+            return ret;
+        } finally {
+            if (temp != null)
+                Files.deleteIfExists(temp);
+        }
+    }
+
+    private void register(WatchService watcher, Path root) throws IOException {
+        List<Path> children;
+        try (Stream<Path> stream = Files.walk(root)) {
+            children = stream.filter(Files::isDirectory).collect(Collectors.toList());
+        }
+        for (Path dir : children)
+            dirs.put(dir.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+    }
+
+    /*
+     * New directories need to be watched too, and anything already in them counts as a change, as the events
+     * for them may have happened before we started watching. If events were dropped we have no idea what
+     * changed, so just extract again, the hashes will sort it out.
+     */
+    private boolean process(WatchService watcher, WatchKey key) throws IOException {
+        Path dir = dirs.get(key);
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                changed = true;
+                continue;
+            }
+
+            Path child = dir.resolve((Path)event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(child)) {
+                register(watcher, child);
+                changed = true;
+            } else if (child.getFileName().toString().endsWith(".java"))
+                changed = true;
+        }
+
+        if (!key.reset())
+            dirs.remove(key); // Deleted, anything that was in it shows up as missing from the listing.
+        return changed;
+    }
+}
@@ -19,29 +19,49 @@
 
 package net.minecraftforge.srg2source.extract;
 
-import java.io.BufferedReader;
-import java.io.CharArrayWriter;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.Nullable;
 
 import net.minecraftforge.srg2source.api.InputSupplier;
 import net.minecraftforge.srg2source.api.SourceVersion;
+import net.minecraftforge.srg2source.mixin.MixinIndex;
+import net.minecraftforge.srg2source.range.RangeCache;
 import net.minecraftforge.srg2source.range.RangeMap;
 import net.minecraftforge.srg2source.range.RangeMapBuilder;
+import net.minecraftforge.srg2source.range.RangeMapWriter;
+import net.minecraftforge.srg2source.range.SplitRangeMap;
+import net.minecraftforge.srg2source.range.entries.DependencyMeta;
+import net.minecraftforge.srg2source.range.entries.FingerprintMeta;
+import net.minecraftforge.srg2source.range.entries.MetaEntry;
 import net.minecraftforge.srg2source.util.Util;
 import net.minecraftforge.srg2source.util.io.ConfLogger;
+import net.minecraftforge.srg2source.util.io.IOExecutor;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
@@ -50,24 +70,52 @@ import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.FileASTRequestor;
+import org.eclipse.jdt.core.dom.ITypeBinding;
 
 public class RangeExtractor extends ConfLogger<RangeExtractor> {
     private static RangeExtractor INSTANCE = null;
+    public static final int AUTO_BATCH_SIZE = -1;
+    /*
+     * Rough guess at how much JDT holds onto per file in a batch, the ASTs, their bindings, and whatever it had to pull in
+     * to resolve them. Big enough that a full Minecraft tree lands in the 8-12GB people have needed for a single batch.
+     */
+    private static final long BATCH_BYTES_PER_FILE = 2 * 1024 * 1024;
+    private static final int MIN_BATCH_SIZE = 100;
 
     private PrintWriter output;
+    private RangeMapWriter writer;
+    private boolean compact = false;
+    private SplitRangeMap.Writer splitOutput;
     private String sourceVersion;
     private boolean enableBatchedASTs = true;
+    private int batchSize = 0; // Maximum files per createASTs call, 0 for all of them at once
+    private Hashtable<String, String> compilerOptions = null; // Shared by every parser, as they're the same for every batch
+    private int shardIndex = 0;
+    private int shardCount = 1;
     private final Set<File> libs = new LinkedHashSet<File>();
     private String[] libArray = null; //A cache of libs, so we don't have to re-build it over and over.
 
     private InputSupplier input;
+    private final List<RangeConsumer> consumers = new ArrayList<>();
+    private final List<ASTConsumer> astConsumers = new ArrayList<>();
 
     private Map<String, RangeMap> file_cache = new HashMap<>();
     private int cache_hits = 0;
     private boolean enableMixins = false;
     private boolean fatalMixins = false;
+    private MixinIndex mixinIndex = null;
+    private String mixinResolver = null; // Given to the patched JDT as the contents of MixinIndex.RESOLVER_FILE while the index is built
     private boolean logWarnings = false;
     private boolean enablePreview = false;
+    private boolean incremental = false;
+    private Set<String> reusable = Collections.emptySet(); // Cached files that are still valid, see findReusable
+    private String fingerprint = null; // Everything but the sources, see getFingerprint
+    private Path cacheDir = null;
+    private long cacheSize = RangeCache.DEFAULT_MAX_SIZE;
+    private RangeCache rangeCache = null;
+    private Map<String, String> fileHashes = null;
+    private final Map<String, String> declaredIn = new HashMap<>(); // Type -> File that declares it, for everything extracted this run
+    private final List<Pending> pending = new ArrayList<>(); // Stored in the cache, waiting for everything to be declared so they can be indexed
 
     public RangeExtractor(){}
 
@@ -75,14 +123,56 @@ public class RangeExtractor extends ConfLogger<RangeExtractor> {
         this.output = value;
     }
 
+    /**
+     * Writes every file's range map to it's own entry instead of one big file, see {@link SplitRangeMap}.
+     */
+    public void setOutput(SplitRangeMap.Writer value) {
+        this.splitOutput = value;
+    }
+
+    /**
+     * Writes range maps without indentation or structure comments. Smaller and faster, but harder to read.
+     */
+    public void setCompactOutput(boolean value) {
+        this.compact = value;
+    }
+
     public void setSourceCompatibility(SourceVersion value) {
         this.sourceVersion = value.getSpec();
+        this.compilerOptions = null;
     }
 
     public void setBatchASTs(boolean value) {
         this.enableBatchedASTs = value;
     }
 
+    /**
+     * Splits batched processing into groups of at most this many files, so JDT can let go of each group's
+     * ASTs and bindings before starting the next. Types from other groups are resolved from the input roots
+     * as needed, like the non batched mode does.
+     *
+     * @param value Files per group, 0 to process everything in one group, or {@link #AUTO_BATCH_SIZE} to pick from the max heap size.
+     */
+    public void setBatchSize(int value) {
+        if (value < 0 && value != AUTO_BATCH_SIZE)
+            throw new IllegalArgumentException("Invalid batch size: " + value);
+        this.batchSize = value;
+    }
+
+    /**
+     * Only processes one slice of the files. The sorted file list is split into {@code count} contiguous slices,
+     * so every shard of the same input gets a different set of files, and putting them back together in order
+     * gives the same output as processing everything at once.
+     *
+     * @param index Zero based index of the slice to process.
+     */
+    public void setShard(int index, int count) {
+        if (count < 1 || index < 0 || index >= count)
+            throw new IllegalArgumentException("Invalid shard: " + index + "/" + count);
+        this.shardIndex = index;
+        this.shardCount = count;
+    }
+
     public void enableMixins() {
         this.enableMixins = true;
     }
@@ -93,11 +183,34 @@ public class RangeExtractor extends ConfLogger<RangeExtractor> {
     public boolean areMixinsFatal() {
         return this.fatalMixins;
     }
+    /**
+     * Records the types every file depends on in it's range map, and reuses cached range maps when neither the file,
+     * or anything it depended on, has changed. So the cache should be the output of an earlier incremental run.
+     * Without this, the cache is never used, as a file's range map can change without the file changing.
+     */
+    public void enableIncremental() {
+        this.incremental = true;
+    }
+    public boolean isIncremental() {
+        return this.incremental;
+    }
+    /**
+     * Shares range maps through a directory, keyed by each file's text and a fingerprint of everything else that can change
+     * the output. This needs to know what every file depends on, so it turns on {@link #enableIncremental()}.
+     *
+     * @param maxSize The size in bytes to trim the directory to when finished.
+     */
+    public void setCacheDirectory(Path value, long maxSize) {
+        this.cacheDir = value;
+        this.cacheSize = maxSize;
+        this.incremental = true;
+    }
     public void logWarnings() {
         this.logWarnings = true;
     }
     public void enablePreview() {
         this.enablePreview = true;
+        this.compilerOptions = null;
     }
 
     public void addLibrary(File value) {
@@ -118,10 +231,35 @@ public class RangeExtractor extends ConfLogger<RangeExtractor> {
         this.input = supplier;
     }
 
+    /**
+     * Registers something to be given every file's range map as soon as it has been built,
+     * along with the source it was built from.
+     */
+    public void addRangeConsumer(RangeConsumer value) {
+        this.consumers.add(value);
+    }
+
+    /**
+     * Registers something else to be given every resolved compilation unit, right after it has been walked.
+     * So other tools that need the same AST can share our parse instead of setting up JDT themselves.
+     * Files reused from a cache still get parsed when there are any of these, they just aren't walked again.
+     */
+    public void addASTConsumer(ASTConsumer value) {
+        this.astConsumers.add(value);
+    }
+
     public void loadCache(InputStream stream) throws IOException {
         this.file_cache = RangeMap.readAll(stream);
     }
 
+    public void loadCache(Path path) throws IOException {
+        this.file_cache = RangeMap.readAll(path);
+    }
+
+    public void loadCache(Map<String, RangeMap> value) {
+        this.file_cache = value;
+    }
+
     @Override //Log everything as a comment in case we merge the output and log as we used to do.
     public void log(String message) {
         super.log("# " + message);
@@ -137,6 +275,25 @@ public class RangeExtractor extends ConfLogger<RangeExtractor> {
                 .map(f -> f.replaceAll("\\\\", "/")) // Normalize directory separators.
                 .sorted()
                 .toArray(String[]::new);
+
+        if (incremental) {
+            try {
+                fingerprint = getFingerprint();
+            } catch (IOException e) {
+                error("Could not fingerprint the libraries, nothing will be reused");
+                e.printStackTrace(getErrorLogger());
+            }
+            reusable = findReusable(files);
+        }
+        if (cacheDir != null)
+            rangeCache = openCache(files);
+
+        String[] all = files;
+        if (shardCount > 1) {
+            int total = files.length;
+            files = Arrays.copyOfRange(files, (int)((long)total * shardIndex / shardCount), (int)((long)total * (shardIndex + 1) / shardCount));
+            log("Shard " + shardIndex + "/" + shardCount + " of " + total + " files");
+        }
         log("Processing " + files.length + " files");
 
         if (files.length == 0) {
@@ -146,47 +303,43 @@ public class RangeExtractor extends ConfLogger<RangeExtractor> {
         }
 
         if (canBatchASTs())
-            return batchGenerate(files);
+            return batchGenerate(files, all);
         else
-            return legacyGenerate(files);
+            return legacyGenerate(files, all);
     }
 
-    private boolean legacyGenerate(String[] files) {
+    /*
+     * Mixins are indexed from every input, not just this shard, as a mixin can use shadows from a parent mixin in any file.
+     */
+    private boolean legacyGenerate(String[] files, String[] all) {
+        if (enableMixins)
+            mixinIndex = buildMixinIndex(all);
+
         try {
             for (String path : files) {
                 Charset encoding = input.getEncoding(path);
                 if (encoding == null)
                     encoding = StandardCharsets.UTF_8;
 
-                try (InputStream stream = input.getInput(path)) {
-                    String data = new String(Util.readStream(stream), encoding);
-                    String md5 = Util.md5(data, encoding);
-                    RangeMapBuilder builder = new RangeMapBuilder(this, path, md5);
-
-                    log("startProcessing \"" + path + "\" md5: " + md5);
-
-                    RangeMap cache = this.file_cache.get(path);
-                    if (builder.loadCache(cache)) {
-                        log("Cache Hit!");
-                        RangeExtractor.this.cache_hits++;
-                    } else {
-                        ASTParser parser = createParser(input.getRoot(path));
-                        parser.setUnitName(path);
-                        parser.setSource(data.toCharArray());
-                        CompilationUnit cu = (CompilationUnit)parser.createAST(null);
-                        if (cu.getProblems() != null && cu.getProblems().length > 0)
-                            Arrays.stream(cu.getProblems()).filter(p -> !p.isWarning()).forEach(p -> log("   Compile Error! " + p.toString()));
-
-                        SymbolReferenceWalker walker = new SymbolReferenceWalker(this, builder, enableMixins);
-                        walker.safeWalk(cu);
-                    }
+                byte[] bytes = input.getBytes(path);
+                if (bytes == null) {
+                    error("Data not found: " + path);
+                    continue;
+                }
+
+                String data = new String(bytes, encoding);
+                String md5 = Util.md5(data, encoding);
+                RangeMap range = getCached(path, md5);
 
-                    RangeMap range = builder.build();
-                    if (output != null)
-                        range.write(output, true);
-                    log("endProcessing \"" + path + "\"");
-                    log("");
+                CompilationUnit cu = null;
+                if (range == null || !astConsumers.isEmpty()) {
+                    ASTParser parser = createParser(input.getRoot(path));
+                    parser.setUnitName(path);
+                    parser.setSource(data.toCharArray());
+                    cu = (CompilationUnit)parser.createAST(null);
                 }
+
+                process(path, data, encoding, md5, cu, range);
             }
         } catch (Exception e) {
             e.printStackTrace(getErrorLogger());
@@ -196,66 +349,516 @@ public class RangeExtractor extends ConfLogger<RangeExtractor> {
         return true;
     }
 
-    private boolean batchGenerate(String[] files) {
+    private boolean batchGenerate(String[] files, String[] all) {
         if (RangeExtractor.INSTANCE != null)
             throw new IllegalStateException("Can not do batched processing while another is running!");
         RangeExtractor.INSTANCE = this;
 
-        //TODO: Check org.eclipse.jdt.internal.compiler.batch.FileSystem.getClasspath(String, String, boolean, AccessRuleSet, String, Map<String, String>, String)
-        // That is where it loads sourceDirs as classpath entries. Try and hijack to include InputSuppliers?
-        ASTParser parser = createParser(null);
+        // Has to happen after INSTANCE is set, the patched JDT reads sources through it while resolving named targets.
+        if (enableMixins)
+            mixinIndex = buildMixinIndex(all);
+
+        int size = getBatchSize(files.length);
+        boolean canSkip = !reusable.isEmpty() || rangeCache != null;
+        String[] roots = null;
+        if (size < files.length || canSkip || files.length < all.length) {
+            // Files in other batches or shards, or that aren't parsed because they're cached, are only found through the source path.
+            roots = getSourceRoots(files);
+            if (roots == null) {
+                log("Could not find the root of every input, processing all files in one batch");
+                size = files.length;
+                canSkip = false;
+            } else if (size < files.length)
+                log("Processing in batches of " + size + " files");
+        }
+
+        IProgressMonitor monitor = new NullProgressMonitor();
+
+        for (int start = 0; start < files.length; start += size) {
+            String[] chunk = start == 0 && size >= files.length ? files : Arrays.copyOfRange(files, start, Math.min(files.length, start + size));
+
+            // Cached files don't need to be parsed at all, unless something else wants their AST.
+            Map<String, RangeMap> cached = new HashMap<>();
+            for (String path : chunk) {
+                RangeMap range = getCached(path);
+                if (range != null)
+                    cached.put(path, range);
+            }
+            String[] parse = chunk;
+            if (canSkip && !cached.isEmpty() && astConsumers.isEmpty())
+                parse = Arrays.stream(chunk).filter(p -> !cached.containsKey(p)).toArray(String[]::new);
+
+            if (size < files.length || parse.length != chunk.length)
+                log("Batch " + (start / size + 1) + ": " + parse.length + "/" + chunk.length + " files to parse, " + (getUsedMemory() / (1024 * 1024)) + "MB used");
+
+            BatchRequestor requestor = new BatchRequestor(chunk, cached, parse.length != chunk.length);
+            if (parse.length > 0) {
+                //TODO: Check org.eclipse.jdt.internal.compiler.batch.FileSystem.getClasspath(String, String, boolean, AccessRuleSet, String, Map<String, String>, String)
+                // That is where it loads sourceDirs as classpath entries. Try and hijack to include InputSuppliers?
+                // createASTs resets the parser when it's done, and builds a new lookup environment every time, so nothing from the last batch is kept.
+                ASTParser parser = createParser(roots);
+                parser.createASTs(parse, null, new String[0], requestor, monitor);
+            }
+            requestor.finish();
+        }
+
+        cleanup();
+
+        RangeExtractor.INSTANCE = null;
+        return true;
+    }
+
+    /*
+     * Walks a file, or takes the range map cached for it, and gives the result to everything that wants it.
+     * The AST is null if the file was cached and nothing else needed it parsed.
+     */
+    private void process(String path, String data, Charset encoding, String md5, @Nullable CompilationUnit cu, @Nullable RangeMap range) throws IOException {
+        log("startProcessing \"" + path + "\" md5: " + md5);
+
+        if (range != null) {
+            log("Cache Hit!");
+            this.cache_hits++;
+        } else {
+            if (cu.getProblems() != null && cu.getProblems().length > 0)
+                Arrays.stream(cu.getProblems()).filter(p -> logWarnings || !p.isWarning()).forEach(p -> log("   Compile Error! " + p.toString()));
+
+            RangeMapBuilder builder = new RangeMapBuilder(this, path, md5);
+            if (fingerprint != null)
+                builder.addFingerprint(fingerprint);
+            SymbolReferenceWalker walker = new SymbolReferenceWalker(this, builder, enableMixins && mixinIndex.hasMixins(path));
+            walker.safeWalk(cu);
+            walker.writeDependencies(cu);
+            range = builder.build();
+            store(range);
+        }
+        addDeclared(range);
+
+        if (cu != null) {
+            for (ASTConsumer consumer : astConsumers)
+                consumer.accept(path, data, cu);
+        }
+
+        if (output != null)
+            getWriter().write(range);
+        if (splitOutput != null)
+            splitOutput.write(range);
+        for (RangeConsumer consumer : consumers)
+            consumer.accept(path, data, encoding, range);
+        log("endProcessing \"" + path + "\"");
+        log("");
+    }
+
+    /*
+     * JDT gives us files in the order we asked for them, so cached files that weren't parsed are slotted back in
+     * before the next parsed file that comes after them. That way the output is in the same order either way.
+     */
+    private class BatchRequestor extends FileASTRequestor {
+        private final String[] files;
+        private final Map<String, RangeMap> cached;
+        private final boolean skipped; // Cached files weren't parsed
+        private int next = 0;
+
+        private BatchRequestor(String[] files, Map<String, RangeMap> cached, boolean skipped) {
+            this.files = files;
+            this.cached = cached;
+            this.skipped = skipped;
+        }
+
+        @Override
+        public void acceptAST(String path, CompilationUnit cu) {
+            path = path.replace(File.separatorChar, '/');
+            skipTo(path);
+            process(path, cu, cached.get(path));
+        }
+
+        private void finish() {
+            skipTo(null);
+        }
+
+        private void skipTo(@Nullable String path) {
+            while (next < files.length) {
+                String file = files[next++];
+                if (file.equals(path))
+                    return;
+                RangeMap range = cached.get(file);
+                if (range != null && skipped)
+                    process(file, null, range);
+            }
+        }
+
+        private void process(String path, @Nullable CompilationUnit cu, @Nullable RangeMap range) {
+            Charset encoding = input.getEncoding(path);
+            if (encoding == null)
+                encoding = StandardCharsets.UTF_8;
+
+            try {
+                byte[] bytes = input.getBytes(path);
+                if (bytes == null)
+                    throw new IOException("Data not found: " + path);
+                String data = new String(bytes, encoding);
+                String md5 = range != null ? range.getHash() : Util.md5(data, encoding);
+                RangeExtractor.this.process(path, data, encoding, md5, cu, range);
+            } catch (IOException e) {
+                e.printStackTrace(getErrorLogger());
+            }
+        }
+    }
+
+    /*
+     * Works out which cached range maps are still valid. A file has to be extracted again if it has changed, or if any
+     * type it depended on was declared in a file that has changed or been removed. Every file records the whole hierarchy
+     * above the types it used, so this catches things like a new override in a super class without having to follow
+     * dependents of dependents. Files that are extracted again because of a dependency haven't changed themselves, so
+     * they can't invalidate anything else. New files count as changing the type named after them, files record the names
+     * a new type in their package could take from them, see SymbolReferenceWalker.addNameDependency.
+     * Nothing is reused if the cache was extracted with different libraries or options, as any file could have changed.
+     */
+    private Set<String> findReusable(String[] files) {
+        if (file_cache.isEmpty())
+            return Collections.emptySet();
+
+        for (RangeMap cache : file_cache.values()) {
+            if (fingerprint == null || !fingerprint.equals(getFingerprint(cache))) {
+                log("Incremental: fingerprint changed, nothing is reusable");
+                return Collections.emptySet();
+            }
+        }
+
+        Set<String> found = new HashSet<>();
+        Set<String> unchanged = new HashSet<>();
+        Set<String> changedTypes = new HashSet<>();
+        int changed = 0;
+
+        for (String path : files) {
+            found.add(path);
+            RangeMap cache = file_cache.get(path);
+            if (cache == null) {
+                changedTypes.add(path.substring(0, path.length() - ".java".length()));
+                changed++;
+                continue;
+            }
+
+            Charset encoding = input.getEncoding(path);
+            if (encoding == null)
+                encoding = StandardCharsets.UTF_8;
+
+            String md5 = null;
+            try {
+                byte[] bytes = input.getBytes(path);
+                if (bytes != null)
+                    md5 = Util.md5(new String(bytes, encoding), encoding);
+            } catch (IOException e) {
+                e.printStackTrace(getErrorLogger());
+            }
+
+            if (cache.getHash().equals(md5) && hasDependencies(cache))
+                unchanged.add(path);
+            else {
+                addTypes(cache, MetaEntry.Type.DECLARES, changedTypes);
+                changed++;
+            }
+        }
+
+        for (RangeMap cache : file_cache.values()) {
+            if (!found.contains(cache.getFilename()))
+                addTypes(cache, MetaEntry.Type.DECLARES, changedTypes);
+        }
+
+        Set<String> ret = new HashSet<>();
+        Set<String> depends = new HashSet<>();
+        for (String path : unchanged) {
+            depends.clear();
+            addTypes(file_cache.get(path), MetaEntry.Type.DEPENDS, depends);
+            if (Collections.disjoint(depends, changedTypes))
+                ret.add(path);
+        }
+
+        log("Incremental: " + changed + " changed, " + (unchanged.size() - ret.size()) + " dependents of changed types, " + ret.size() + " reusable");
+        return ret;
+    }
+
+    private static boolean hasDependencies(RangeMap range) {
+        for (MetaEntry meta : range.getMeta()) {
+            if (meta.getType() == MetaEntry.Type.DECLARES || meta.getType() == MetaEntry.Type.DEPENDS)
+                return true;
+        }
+        return false;
+    }
 
-        FileASTRequestor requestor = new FileASTRequestor() {
-            @Override
-            public void acceptAST(String path, CompilationUnit cu) {
-                path = path.replace(File.separatorChar, '/');
+    @Nullable
+    private static String getFingerprint(RangeMap range) {
+        for (MetaEntry meta : range.getMeta()) {
+            if (meta.getType() == MetaEntry.Type.FINGERPRINT)
+                return ((FingerprintMeta)meta).getHash();
+        }
+        return null;
+    }
+
+    private static void addTypes(RangeMap range, MetaEntry.Type type, Set<String> types) {
+        for (MetaEntry meta : range.getMeta()) {
+            if (meta.getType() == type)
+                types.add(((DependencyMeta)meta).getTypeName());
+        }
+    }
+
+    /*
+     * What we know is cached before reading anything, so batches can leave those files out. Reusable files have
+     * already been checked against their hash, and the range cache already has the hash of every input.
+     */
+    @Nullable
+    private RangeMap getCached(String path) {
+        RangeMap cache = reusable.contains(path) ? file_cache.get(path) : null;
+        if (cache != null || rangeCache == null)
+            return cache;
+        String md5 = fileHashes.get(path);
+        return md5 == null ? null : rangeCache.get(path, md5, fileHashes::get);
+    }
+
+    @Nullable
+    private RangeMap getCached(String path, String md5) {
+        RangeMap cache = reusable.contains(path) ? file_cache.get(path) : null;
+        if (cache != null && md5.equals(cache.getHash()))
+            return cache;
+        return rangeCache == null ? null : rangeCache.get(path, md5, fileHashes::get);
+    }
+
+    /*
+     * Everything that can change a range map other then the sources. A tool jar with the same version can still have
+     * different code during development, so the jar itself is hashed. Libraries are hashed in classpath order, jars by
+     * their contents, and directories by the size and modified time of every file in them.
+     */
+    private String getFingerprint() throws IOException {
+        StringBuilder buf = new StringBuilder();
+        buf.append("tool ").append(getToolHash()).append('\n');
+        buf.append("source ").append(sourceVersion).append('\n');
+        buf.append("preview ").append(enablePreview).append('\n');
+        buf.append("mixins ").append(enableMixins).append(' ').append(fatalMixins).append('\n');
+        for (File lib : libs) {
+            Path path = lib.toPath();
+            buf.append("lib ").append(lib.getName()).append(' ');
+            if (Files.isDirectory(path)) {
+                List<Path> children;
+                try (Stream<Path> stream = Files.walk(path)) {
+                    children = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+                }
+                StringBuilder dir = new StringBuilder();
+                for (Path child : children)
+                    dir.append(path.relativize(child)).append(' ').append(Files.size(child)).append(' ').append(Files.getLastModifiedTime(child).toMillis()).append('\n');
+                buf.append(Util.md5(dir.toString(), StandardCharsets.UTF_8));
+            } else
+                buf.append(Util.md5(path));
+            buf.append('\n');
+        }
+        return Util.md5(buf.toString(), StandardCharsets.UTF_8);
+    }
+
+    private static String getToolHash() {
+        try {
+            Path self = Paths.get(RangeExtractor.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            if (Files.isRegularFile(self))
+                return Util.md5(self);
+        } catch (IOException | URISyntaxException | RuntimeException e) {
+            // Not somewhere we can read, so the best we can do is treat every build as the same.
+        }
+        return "dev";
+    }
 
+    @Nullable
+    private RangeCache openCache(String[] files) {
+        try {
+            // Hashes of every input, not just this shard, as anything can be a dependency.
+            Map<String, String> hashes = new ConcurrentHashMap<>();
+            IOExecutor.forEach(Arrays.asList(files), path -> {
                 Charset encoding = input.getEncoding(path);
                 if (encoding == null)
                     encoding = StandardCharsets.UTF_8;
+                byte[] bytes = input.getBytes(path);
+                if (bytes != null)
+                    hashes.put(path, Util.md5(new String(bytes, encoding), encoding));
+            });
+            fileHashes = hashes;
 
-                try (InputStream stream = input.getInput(path)) {
-                    String data = new String(Util.readStream(stream), encoding);
-                    String md5 = Util.md5(data, encoding);
+            if (fingerprint == null)
+                throw new IOException("Could not fingerprint the libraries");
+            log("Range cache: " + cacheDir + " fingerprint: " + fingerprint);
+            return new RangeCache(cacheDir, fingerprint, cacheSize);
+        } catch (IOException e) {
+            error("Could not open range cache: " + cacheDir);
+            e.printStackTrace(getErrorLogger());
+            return null;
+        }
+    }
 
-                    RangeMapBuilder builder = new RangeMapBuilder(RangeExtractor.this, path, md5);
+    private void store(RangeMap range) {
+        if (rangeCache == null)
+            return;
 
-                    log("startProcessing \"" + path + "\" md5: " + md5);
+        try {
+            Set<String> depends = new HashSet<>();
+            addTypes(range, MetaEntry.Type.DEPENDS, depends);
+            pending.add(new Pending(range.getFilename(), range.getHash(), rangeCache.store(range), depends, getSourceRoot(range)));
+        } catch (IOException e) {
+            e.printStackTrace(getErrorLogger());
+        }
+    }
 
-                    RangeMap cache = RangeExtractor.this.file_cache.get(path);
-                    if (builder.loadCache(cache)) {
-                        log("Cache Hit!");
-                        RangeExtractor.this.cache_hits++;
-                    } else {
-                        if (cu.getProblems() != null && cu.getProblems().length > 0)
-                            Arrays.stream(cu.getProblems()).filter(p -> logWarnings || !p.isWarning()).forEach(p -> log("   Compile Error! " + p.toString()));
+    private void addDeclared(RangeMap range) {
+        if (rangeCache == null)
+            return;
 
-                        SymbolReferenceWalker walker = new SymbolReferenceWalker(RangeExtractor.this, builder, enableMixins);
-                        walker.safeWalk(cu);
-                    }
+        Set<String> declares = new HashSet<>();
+        addTypes(range, MetaEntry.Type.DECLARES, declares);
+        for (String type : declares)
+            declaredIn.put(type, range.getFilename());
+    }
 
-                    RangeMap range = builder.build();
-                    if (output != null)
-                        range.write(output, true);
-                    log("endProcessing \"" + path + "\"");
-                    log("");
-                } catch (IOException e) {
-                    e.printStackTrace(getErrorLogger());
+    /*
+     * The part of a file's path before it's package, found from a type it declares that's named after it.
+     * Empty if it doesn't declare one, which is what we'd assume anyways.
+     */
+    private static String getSourceRoot(RangeMap range) {
+        for (MetaEntry meta : range.getMeta()) {
+            if (meta.getType() != MetaEntry.Type.DECLARES)
+                continue;
+            String file = ((DependencyMeta)meta).getTypeName() + ".java";
+            if (range.getFilename().endsWith(file) && (range.getFilename().length() == file.length() || range.getFilename().charAt(range.getFilename().length() - file.length() - 1) == '/'))
+                return range.getFilename().substring(0, range.getFilename().length() - file.length());
+        }
+        return "";
+    }
+
+    /*
+     * Now that every file has been extracted we know where each type is declared, so the new range maps can be indexed
+     * with the hash of every file they depend on. Types that weren't declared by anything we extracted, like ones from
+     * other shards, or names that could be taken by a new type in the file's package, are assumed to be in the file
+     * named after them, in the same source root as the file that used them. That's true for anything public, and means
+     * the variant is missed as soon as that file is created.
+     */
+    private void finishCache() {
+        try {
+            for (Pending entry : pending) {
+                Map<String, String> depends = new TreeMap<>();
+                for (String type : entry.depends) {
+                    String file = declaredIn.get(type);
+                    if (file == null)
+                        file = entry.root + type + ".java";
+                    depends.put(file, fileHashes.get(file));
                 }
+                rangeCache.index(entry.filename, entry.hash, entry.key, depends);
             }
-        };
+            int trimmed = rangeCache.trim();
+            log("Range cache: " + rangeCache.getHits() + " hits, " + rangeCache.getMisses() + " misses, " + rangeCache.getStored() + " stored, " + trimmed + " trimmed");
+        } catch (IOException | UncheckedIOException e) {
+            e.printStackTrace(getErrorLogger());
+        }
 
-        IProgressMonitor monitor = new NullProgressMonitor();
+        pending.clear();
+        declaredIn.clear();
+        rangeCache = null;
+        fileHashes = null;
+    }
 
-        parser.createASTs(files, null, new String[0], requestor, monitor);
+    /*
+     * Finds every mixin and resolves the targets that are only given by name, before anything is walked.
+     * Then parses the files that have mixins, and collects everything their annotations say, so the index can be
+     * frozen before the first walk. Mixins are only ever a small part of a project, so this only needs to compile
+     * a few files, and every other file is walked without any mixin processing at all.
+     */
+    private MixinIndex buildMixinIndex(String[] files) {
+        MixinIndex ret = new MixinIndex();
+        String[] roots = getSourceRoots(files);
+        // Files in one createASTs call can only find each other through the source path, so without it they're parsed one at a time.
+        boolean batch = canBatchASTs() && roots != null;
+        Map<String, String> sources = new HashMap<>();
+        for (String path : files) {
+            Charset encoding = input.getEncoding(path);
+            if (encoding == null)
+                encoding = StandardCharsets.UTF_8;
 
-        cleanup();
+            try {
+                byte[] bytes = input.getBytes(path);
+                if (bytes != null) {
+                    String data = new String(bytes, encoding);
+                    ret.scan(path, data);
+                    if (!batch && ret.hasMixins(path))
+                        sources.put(path, data);
+                }
+            } catch (IOException e) {
+                e.printStackTrace(getErrorLogger());
+            }
+        }
 
-        RangeExtractor.INSTANCE = null;
-        return true;
+        if (batch && !ret.getFiles().isEmpty())
+            batchCollectMixins(ret, roots);
+        else
+            legacyCollectMixins(ret, roots, sources);
+        ret.freeze();
+
+        log("Found mixin annotations in " + ret.getFiles().size() + "/" + files.length + " files, resolved " + ret.getResolvedCount() + "/" + ret.getTargets().size() + " named targets");
+        return ret;
+    }
+
+    /*
+     * Every mixin, and the class that resolves named targets, in one environment. JDT gives us files in the order we asked
+     * for them, so the targets are resolved before any mixin is frozen. Each mixin is frozen as soon as it's file has been
+     * collected, so nothing needs the bindings once createASTs returns.
+     */
+    private void batchCollectMixins(MixinIndex mixins, String[] roots) {
+        String resolver = mixins.getResolverSource();
+        List<String> parse = new ArrayList<>();
+        if (resolver != null)
+            parse.add(MixinIndex.RESOLVER_FILE);
+        parse.addAll(mixins.getFiles());
+
+        Map<String, ITypeBinding> named = new HashMap<>();
+        mixinResolver = resolver;
+        try {
+            createParser(roots).createASTs(parse.toArray(new String[parse.size()]), null, new String[0], new FileASTRequestor() {
+                @Override
+                public void acceptAST(String path, CompilationUnit cu) {
+                    path = path.replace(File.separatorChar, '/');
+                    if (MixinIndex.RESOLVER_FILE.equals(path)) {
+                        named.putAll(mixins.resolve(cu));
+                        return;
+                    }
+                    try {
+                        MixinProcessor.collect(RangeExtractor.this, mixins, path, cu);
+                    } catch (RuntimeException e) {
+                        // Anything wrong with the file is reported when it's walked.
+                    }
+                    mixins.freezeCollected(named::get);
+                }
+            }, new NullProgressMonitor());
+        } finally {
+            mixinResolver = null;
+        }
+    }
+
+    private void legacyCollectMixins(MixinIndex mixins, @Nullable String[] roots, Map<String, String> sources) {
+        Map<String, ITypeBinding> named = mixins.getTargets().isEmpty() ? Collections.emptyMap() : mixins.resolve(createParser(roots));
+
+        for (String path : mixins.getFiles()) {
+            ASTParser parser = roots == null ? createParser(input.getRoot(path)) : createParser(roots);
+            parser.setUnitName(path);
+            parser.setSource(sources.get(path).toCharArray());
+            try {
+                MixinProcessor.collect(this, mixins, path, (CompilationUnit)parser.createAST(null));
+            } catch (RuntimeException e) {
+                // Anything wrong with the file is reported when it's walked.
+            }
+            mixins.freezeCollected(named::get);
+        }
+    }
+
+    @Nullable
+    MixinIndex getMixinIndex() {
+        return this.mixinIndex;
     }
 
     private void cleanup() {
+        if (rangeCache != null)
+            finishCache();
+
         try {
             input.close();
         } catch (IOException e) {
@@ -263,10 +866,69 @@ public class RangeExtractor extends ConfLogger<RangeExtractor> {
         }
 
         if (output != null) {
+            try {
+                if (writer != null)
+                    writer.flush();
+            } catch (IOException e) {
+                e.printStackTrace(getErrorLogger());
+            }
             output.flush();
             output.close();
             output = null;
+            writer = null;
+        }
+
+        if (splitOutput != null) {
+            try {
+                splitOutput.close();
+                log("Wrote " + splitOutput.getWritten() + " changed range map entries");
+            } catch (IOException e) {
+                e.printStackTrace(getErrorLogger());
+            }
+            splitOutput = null;
+        }
+    }
+
+    // One writer for every file, so it's buffer gets reused.
+    private RangeMapWriter getWriter() {
+        if (writer == null)
+            writer = new RangeMapWriter(output, !compact);
+        return writer;
+    }
+
+    private int getBatchSize(int files) {
+        if (batchSize == 0)
+            return files;
+        if (batchSize != AUTO_BATCH_SIZE)
+            return Math.min(batchSize, files);
+
+        // Leave half the heap for everything else, the output, cached range maps, and the lookup environment's own types.
+        long max = Runtime.getRuntime().maxMemory();
+        if (max == Long.MAX_VALUE)
+            return files;
+        long ret = (max / 2) / BATCH_BYTES_PER_FILE;
+        return (int)Math.min(files, Math.max(MIN_BATCH_SIZE, ret));
+    }
+
+    private static long getUsedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /*
+     * Files in other batches are no longer part of the same compile, so JDT needs to be able to find them on the sourcepath.
+     * Returns null if any of the files don't have a root we can give it.
+     */
+    @Nullable
+    private String[] getSourceRoots(String[] files) {
+        Set<String> ret = new LinkedHashSet<>();
+        for (String file : files) {
+            String root = input.getRoot(file);
+            if (root == null)
+                return null;
+            ret.add(root);
         }
+        return ret.toArray(new String[ret.size()]);
     }
 
     private String[] getLibArray() {
@@ -284,8 +946,12 @@ public class RangeExtractor extends ConfLogger<RangeExtractor> {
     }
 
     private ASTParser createParser(String srcRoot) {
+        return createParser(srcRoot == null ? null : new String[] {srcRoot});
+    }
+
+    private ASTParser createParser(@Nullable String[] srcRoots) {
         ASTParser parser = ASTParser.newParser(AST.getJLSLatest());
-        parser.setEnvironment(getLibArray(), srcRoot == null ? null : new String[] {srcRoot}, null, true);
+        parser.setEnvironment(getLibArray(), srcRoots, null, true);
         return setOptions(parser);
     }
 
@@ -293,11 +959,14 @@ public class RangeExtractor extends ConfLogger<RangeExtractor> {
         parser.setKind(ASTParser.K_COMPILATION_UNIT);
         parser.setResolveBindings(true);
         parser.setBindingsRecovery(true);
-        Hashtable<String, String> options = JavaCore.getDefaultOptions();
-        JavaCore.setComplianceOptions(sourceVersion, options);
-        if (enablePreview)
-            options.put(JavaCore.COMPILER_PB_ENABLE_PREVIEW_FEATURES, JavaCore.ENABLED);
-        parser.setCompilerOptions(options);
+        if (compilerOptions == null) {
+            Hashtable<String, String> options = JavaCore.getDefaultOptions();
+            JavaCore.setComplianceOptions(sourceVersion, options);
+            if (enablePreview)
+                options.put(JavaCore.COMPILER_PB_ENABLE_PREVIEW_FEATURES, JavaCore.ENABLED);
+            compilerOptions = options;
+        }
+        parser.setCompilerOptions(compilerOptions);
         return parser;
     }
 
@@ -305,19 +974,18 @@ public class RangeExtractor extends ConfLogger<RangeExtractor> {
     public static char[] getFileCharContent(String path, String encoding) {
         RangeExtractor range = RangeExtractor.INSTANCE; //TODO: Find a way to make this non-static
 
+        if (range.mixinResolver != null && MixinIndex.RESOLVER_FILE.equals(path))
+            return range.mixinResolver.toCharArray();
+
         Charset charset = range.input.getEncoding(path);
-        encoding = charset == null ? StandardCharsets.UTF_8.name() : charset.name();
-
-        try(InputStream input = RangeExtractor.INSTANCE.input.getInput(path);
-            BufferedReader reader = new BufferedReader(new InputStreamReader(input, encoding));
-        ) {
-            CharArrayWriter writer = new CharArrayWriter();
-            char[] buf = new char[1024];
-            int len;
-            while ((len = reader.read(buf, 0, 1024)) > 0) {
-                writer.write(buf, 0, len);
-            }
-            return writer.toCharArray();
+        if (charset == null)
+            charset = StandardCharsets.UTF_8;
+
+        try {
+            byte[] data = range.input.getBytes(path);
+            if (data == null)
+                throw new IOException("Data not found: " + path);
+            return Util.decode(data, charset);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -333,4 +1001,34 @@ public class RangeExtractor extends ConfLogger<RangeExtractor> {
     public static boolean hasBeenASMPatched() {
         return false;
     }
+
+    @FunctionalInterface
+    public interface RangeConsumer {
+        void accept(String path, String data, Charset encoding, RangeMap range) throws IOException;
+    }
+
+    /**
+     * Given the same resolved AST the range map was built from. The AST and it's bindings are only valid until this returns,
+     * as JDT is free to throw them away once we're done with the file.
+     */
+    @FunctionalInterface
+    public interface ASTConsumer {
+        void accept(String path, String data, CompilationUnit cu) throws IOException;
+    }
+
+    private static class Pending {
+        private final String filename;
+        private final String hash;
+        private final String key;
+        private final Set<String> depends;
+        private final String root;
+
+        private Pending(String filename, String hash, String key, Set<String> depends, String root) {
+            this.filename = filename;
+            this.hash = hash;
+            this.key = key;
+            this.depends = depends;
+            this.root = root;
+        }
+    }
 }
@@ -19,8 +19,16 @@
 
 package net.minecraftforge.srg2source.extract;
 
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.Nullable;
 
 import org.eclipse.jdt.core.dom.*;
 import org.objectweb.asm.Opcodes;
@@ -43,8 +51,10 @@ public class SymbolReferenceWalker {
     private final RangeExtractor extractor;
     private final SymbolReferenceWalker parent;
     private final MixinProcessor mixins;
-    private HashMap<String, ParamInfo> parameterInfo = new HashMap<>();
-    private HashMap<String, LocalInfo> localVarInfo = new HashMap<>();
+    private final Scopes scopes;
+    @Nullable
+    private final Dependencies depends; // Only tracked for incremental extraction
+    private final int scope; // Where the scope stack was when this walker was created, popped back to by exit()
     private int anonCount = 0; // Number off encountered anonymous classes
 
     public SymbolReferenceWalker(RangeExtractor extractor, RangeMapBuilder builder, boolean enableMixins) {
@@ -52,9 +62,12 @@ public class SymbolReferenceWalker {
         this.builder = builder;
         this.className = null;
         this.parent = null;
-        this.mixins = enableMixins ? new MixinProcessor(this) : null;
+        this.mixins = enableMixins ? new MixinProcessor(this, extractor == null ? null : extractor.getMixinIndex()) : null;
         this.methodName = null;
         this.methodDesc = null;
+        this.scopes = new Scopes();
+        this.depends = extractor != null && extractor.isIncremental() ? new Dependencies() : null;
+        this.scope = 0;
     }
 
     private SymbolReferenceWalker(SymbolReferenceWalker parent, String className, String methodName, String methodDesc) {
@@ -65,6 +78,9 @@ public class SymbolReferenceWalker {
         this.methodDesc = methodDesc;
         this.parent = parent;
         this.mixins = parent.mixins;
+        this.scopes = parent.scopes;
+        this.depends = parent.depends;
+        this.scope = this.scopes.mark();
     }
 
     /**
@@ -105,23 +121,27 @@ public class SymbolReferenceWalker {
         return ExtractUtil.getInternalName(builder.getFilename(), binding, node);
     }
 
+    /*
+     * Called once a child walker has finished walking, anything it tracked goes out of scope.
+     */
+    private void exit() {
+        scopes.pop(scope);
+    }
+
     private void trackLocalVariable(SimpleName name, IVariableBinding binding) {
-        localVarInfo.put(name.resolveBinding().getKey(), new LocalInfo(className, methodName, methodDesc, binding.getVariableId(), ExtractUtil.getTypeSignature(binding.getType())));
+        scopes.push(scopes.locals, binding, new LocalInfo(className, methodName, methodDesc, binding.getVariableId(), ExtractUtil.getTypeSignature(binding.getType())));
     }
 
-    private LocalInfo findLocal(String key) {
-        LocalInfo ret = localVarInfo.get(key);
-        if (ret != null)
-            return ret;
-        return parent == null ? null : parent.findLocal(key);
+    private LocalInfo findLocal(IVariableBinding binding) {
+        return scopes.find(scopes.locals, binding);
     }
 
     private void trackParameters(List<? extends VariableDeclaration> params, int synthetics) {
         //ITypeBinding[] args = mtd.getParameterTypes();
         int index = synthetics;
         for (int x = 0; x < params.size(); x++) {
-            String key = params.get(x).getName().resolveBinding().getKey();
-            parameterInfo.put(key, new ParamInfo(className, methodName, methodDesc, index));
+            IVariableBinding binding = params.get(x).resolveBinding();
+            scopes.push(scopes.params, binding, new ParamInfo(className, methodName, methodDesc, index));
 
             index++; // We output the arguments in source indexs. Not Bytecode indexs. Because the applier has no idea if a method is static/synthetic/whatever.
             /*
@@ -134,11 +154,8 @@ public class SymbolReferenceWalker {
         }
     }
 
-    private ParamInfo findParameter(String key) {
-        ParamInfo ret = parameterInfo.get(key);
-        if (ret != null)
-            return ret;
-        return parent == null ? null : parent.findParameter(key);
+    private ParamInfo findParameter(IVariableBinding binding) {
+        return scopes.find(scopes.params, binding);
     }
 
     @SuppressWarnings("unused")
@@ -163,6 +180,53 @@ public class SymbolReferenceWalker {
     public RangeExtractor getExtractor() {
         return this.extractor;
     }
+
+    /**
+     * Records that this file's range map depends on a type, and so on every type above it, if incremental extraction is on.
+     */
+    public void addDependency(@Nullable ITypeBinding type) {
+        if (this.depends != null)
+            this.depends.add(type);
+    }
+
+    /**
+     * Records types that were already worked out from a type's hierarchy, like the targets in the mixin index.
+     */
+    public void addDependencies(Collection<String> types) {
+        if (this.depends != null)
+            this.depends.types.addAll(types);
+    }
+
+    /*
+     * A type used by it's simple name, that wasn't imported by name, can be taken over by a new type with the same name
+     * in this file's package. Nothing we can resolve points there yet, so the file depends on that name instead.
+     */
+    private void addNameDependency(SimpleName node) {
+        if (this.depends != null && !this.depends.imported.contains(node.getIdentifier()))
+            this.depends.types.add(this.depends.pkg + node.getIdentifier());
+    }
+
+    /**
+     * Adds the types this file declares, and every source type it's entries depended on, to it's range map as meta entries.
+     */
+    @SuppressWarnings("unchecked")
+    public void writeDependencies(CompilationUnit cu) {
+        if (this.depends == null)
+            return;
+
+        Set<String> declared = new TreeSet<>();
+        for (AbstractTypeDeclaration type : (List<AbstractTypeDeclaration>)cu.types()) {
+            ITypeBinding bind = type.resolveBinding();
+            if (bind != null)
+                declared.add(ExtractUtil.getInternalName(bind));
+        }
+
+        declared.forEach(builder::addDeclaredType);
+        for (String type : this.depends.types) {
+            if (!declared.contains(type))
+                builder.addTypeDependency(type);
+        }
+    }
     /* ===================================================================================================== */
 
     private boolean process(AnnotationTypeDeclaration node) {
@@ -185,6 +249,7 @@ public class SymbolReferenceWalker {
         SymbolReferenceWalker walker = new SymbolReferenceWalker(this, name, null, null);
         builder.addClassDeclaration(node.getStartPosition(), node.getLength(), name);
         walker.acceptChildren(node.bodyDeclarations());
+        walker.exit();
         return false; //We manually walk so don't do so on this visitor
     }
 
@@ -222,6 +287,7 @@ public class SymbolReferenceWalker {
         walker.acceptChildren(node.superInterfaceTypes());
         walker.acceptChildren(node.enumConstants());
         walker.acceptChildren(node.bodyDeclarations());
+        walker.exit();
         return false;
     }
 
@@ -260,10 +326,12 @@ public class SymbolReferenceWalker {
 
             iwalker.trackParameters(params, 0);
             iwalker.acceptChildren(params);
+            iwalker.exit();
         }
 
         walker.acceptChildren(node.superInterfaceTypes());
         walker.acceptChildren(node.bodyDeclarations());
+        walker.exit();
         return false;
     }
 
@@ -320,6 +388,7 @@ public class SymbolReferenceWalker {
 
         walker.acceptChildren(params);
         walker.acceptChild(node.getBody());
+        walker.exit();
 
         return false;
     }
@@ -370,6 +439,7 @@ public class SymbolReferenceWalker {
         } else
             walker.acceptChildren(node.thrownExceptions());
         walker.acceptChild(node.getBody());
+        walker.exit();
 
         return false;
     }
@@ -382,6 +452,7 @@ public class SymbolReferenceWalker {
         if (node.getAST().apiLevel() >= JLS3)
             walker.acceptChildren(node.modifiers());
         walker.acceptChild(node.getBody());
+        walker.exit();
 
         return false;
     }
@@ -390,6 +461,7 @@ public class SymbolReferenceWalker {
         IBinding bind = node.resolveBinding();
 
         if (bind == null) {
+            addNameDependency(node); // Could be a type that doesn't exist yet
             /*if (node.getParent() instanceof MethodInvocation)
                 error("Could not resolve method binding: " + builder.getFilename() + " @ " + node.getStartPosition() + " Text: " + node.toString());
             else */
@@ -403,6 +475,9 @@ public class SymbolReferenceWalker {
                 if (type.isTypeVariable()) //Generic type names can't be remapped at this time.. should we allow it?
                     return false;
 
+                addDependency(type);
+                if (!node.isVar())
+                    addNameDependency(node);
                 String clsName = getInternalName(type, node);
                 if (!node.isVar()) {
                     // If it's a var type, we don't need to add it to the rangemap
@@ -414,13 +489,14 @@ public class SymbolReferenceWalker {
                 IVariableBinding var = (IVariableBinding)bind;
                 if (var.isField()) { //Fields and Enum Constants
                     if (var.getDeclaringClass() != null) { // Things like array.lenth is a Field reference, but has no declaring class.
+                        addDependency(var.getDeclaringClass());
                         String owner = getInternalName(var.getDeclaringClass(), node);
                         if (this.mixins != null)
                             owner = this.mixins.getFieldOwner(owner, node.toString(), ExtractUtil.getTypeSignature(var.getType()));
                         builder.addFieldReference(node.getStartPosition(), node.getLength(), node.toString(), owner);
                     }
                 } else if (var.isParameter() || var.isRecordComponent()) {
-                    ParamInfo info = findParameter(var.getKey());
+                    ParamInfo info = findParameter(var);
                     if (info == null)
                         error(node, "Illegal Argument: " + var.getKey());
                     else
@@ -433,7 +509,7 @@ public class SymbolReferenceWalker {
                      *  As well as defining removal of local variables...
                      *  Honestly this would be cool, but it's out of scope of Minecraft and a lot of work so I'm putting it off.
                      */
-                    LocalInfo info = findLocal(var.getKey());
+                    LocalInfo info = findLocal(var);
                     if (info == null)
                         error(node, "Illegal Local Variable: " + var.getKey());
                     else
@@ -441,6 +517,7 @@ public class SymbolReferenceWalker {
                 }
                 return true;
             case IBinding.METHOD:
+                addDependency(((IMethodBinding)bind).getDeclaringClass()); // findRoot looks through everything above this
                 IMethodBinding mtd = ExtractUtil.findRoot((IMethodBinding)bind);
                 String owner = getInternalName(mtd.getDeclaringClass(), node);
                 String name = mtd.isConstructor() ? "<init>" : mtd.getName();
@@ -490,6 +567,7 @@ public class SymbolReferenceWalker {
                     else // If it's anything else it should recurse properly.
                         acceptChild(node.getQualifier());
 
+                    addDependency(type);
                     String clsName = getInternalName(type, node);
                     builder.addClassReference(name.getStartPosition(), name.getLength(), name.toString(), clsName, true);
                 }
@@ -546,6 +624,7 @@ public class SymbolReferenceWalker {
             walker.acceptChildren(node.bodyDeclarations());
         }
 
+        walker.exit();
         return false;
     }
 
@@ -555,6 +634,8 @@ public class SymbolReferenceWalker {
      * We may expose this information in the future, if there becomes a need for it.
      */
     private boolean process(ImportDeclaration node) {
+        if (depends != null && !node.isOnDemand() && !node.isStatic() && node.getName().isQualifiedName())
+            depends.imported.add(((QualifiedName)node.getName()).getName().getIdentifier());
         return false; //Do not walk children, ignore it all
     }
 
@@ -571,6 +652,8 @@ public class SymbolReferenceWalker {
         //acceptChild(node.getName());
         Name name = node.getName();
         builder.addPackageReference(name.getStartPosition(), name.getLength(), name.getFullyQualifiedName());
+        if (depends != null)
+            depends.pkg = name.getFullyQualifiedName().replace('.', '/') + '/';
         return false;
     }
 
@@ -639,6 +722,75 @@ public class SymbolReferenceWalker {
         return this.mixins.process(node, name);
     }
 
+    /*
+     * One of these is shared by every walker for a file. Tracked variables are looked up by binding identity,
+     * which is canonical within a compilation unit, so we don't have to build binding key strings or a map per walker.
+     * Everything pushed is also recorded on a stack, so a child walker can drop what it tracked when it's done.
+     */
+    private static class Scopes {
+        private final Map<IVariableBinding, ParamInfo> params = new IdentityHashMap<>();
+        private final Map<IVariableBinding, LocalInfo> locals = new IdentityHashMap<>();
+        private IVariableBinding[] stack = new IVariableBinding[64];
+        private int size = 0;
+
+        private int mark() {
+            return size;
+        }
+
+        private <T extends ParamInfo> void push(Map<IVariableBinding, T> map, IVariableBinding binding, T info) {
+            if (map.put(binding, info) != null)
+                return; // Already on the stack
+            if (size == stack.length) {
+                IVariableBinding[] tmp = new IVariableBinding[size * 2];
+                System.arraycopy(stack, 0, tmp, 0, size);
+                stack = tmp;
+            }
+            stack[size++] = binding;
+        }
+
+        private <T extends ParamInfo> T find(Map<IVariableBinding, T> map, IVariableBinding binding) {
+            T ret = map.get(binding);
+            if (ret != null)
+                return ret;
+
+            /*
+             * Lambdas can be resolved more then once during inference, which in theory could give us a different
+             * binding object for the same variable. So before giving up, fall back to comparing keys like we used to.
+             * This only happens on a miss, which should be an error anyways.
+             */
+            for (int x = size - 1; x >= 0; x--) {
+                if (stack[x].isEqualTo(binding) && (ret = map.get(stack[x])) != null)
+                    return ret;
+            }
+            return null;
+        }
+
+        private void pop(int mark) {
+            while (size > mark) {
+                IVariableBinding binding = stack[--size];
+                stack[size] = null;
+                params.remove(binding);
+                locals.remove(binding);
+            }
+        }
+    }
+
+    /*
+     * Top level names of every source type a file used, and everything above them. Where a method or field reference
+     * ends up depends on the whole hierarchy above the type it was found in, so if any of those change the file has to
+     * be extracted again. Library types are skipped, they can't change between runs without changing everything.
+     */
+    private static class Dependencies {
+        private final Set<ITypeBinding> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Set<String> types = new TreeSet<>();
+        private final Set<String> imported = new HashSet<>(); // Simple names of single type imports, nothing in the package can shadow them
+        private String pkg = ""; // Internal name of the file's package, with a trailing slash unless it's the default package
+
+        private void add(@Nullable ITypeBinding type) {
+            ExtractUtil.addSourceHierarchy(type, seen, types);
+        }
+    }
+
     private static class ParamInfo {
         private final String owner;
         private final String name;
@@ -58,7 +58,16 @@ public abstract class AnnotationBase implements IAnnotationProcessor {
         return processor.getInfo(owner);
     }
 
+    /*
+     * Annotations only add to the index before it's frozen, after that they just read what was collected.
+     */
+    protected boolean isCollecting() {
+        return processor.isCollecting();
+    }
+
     protected boolean error(ASTNode node, String message) {
+        if (processor.isCollectOnly()) // Reported when the file is walked
+            return true;
         String error = "ERROR: " + getFilename() + " @ " + node.getStartPosition() + ": " + message;
         getWalker().error(error);
         if (getWalker().getExtractor().areMixinsFatal())
@@ -106,7 +106,10 @@ public class Interface extends AnnotationBase {
             return error(node, "Could not determine prefix/iface for @Interface annotation: " + node.toString());
 
         MixinInfo info = processor.getOrCreateInfo(parent);
-        info.addInterface(prefix, iface);
+        if (info == null)
+            return error(node, "Could not find @Interface owner " + parent.getQualifiedName() + " in the index");
+        if (isCollecting())
+            info.addInterface(prefix, iface);
 
         return true;
     }
@@ -105,8 +105,13 @@ public class Mixin extends AnnotationBase {
         }
 
         MixinInfo info  = processor.getOrCreateInfo(owner);
-        types.forEach(info::addTarget);
-        targets.forEach(info::addTarget);
+        if (info == null)
+            return error(node, "Could not find @Mixin " + owner.getQualifiedName() + " in the index");
+        if (isCollecting()) {
+            types.forEach(info::addTarget);
+            targets.forEach(info::addTarget);
+        }
+        targets.forEach(t -> getWalker().addDependencies(info.getDependencies(t)));
 
         return true;
     }
@@ -122,8 +127,13 @@ public class Mixin extends AnnotationBase {
         Collection<String> targets = readClassReferences(node.getValue(), types);
 
         MixinInfo info  = processor.getOrCreateInfo(owner);
-        types.forEach(info::addTarget);
-        targets.forEach(info::addTarget);
+        if (info == null)
+            return error(node, "Could not find @Mixin " + owner.getQualifiedName() + " in the index");
+        if (isCollecting()) {
+            types.forEach(info::addTarget);
+            targets.forEach(info::addTarget);
+        }
+        targets.forEach(t -> getWalker().addDependencies(info.getDependencies(t)));
 
         return true;
     }
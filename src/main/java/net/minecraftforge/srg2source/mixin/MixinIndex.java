@@ -0,0 +1,257 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.mixin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+
+/**
+ * Every mixin in an extraction run, shared by all of it's walkers.
+ *
+ * Before anything is walked the sources are scanned as plain text for {@code @Mixin} annotations. This is cheap, and finds
+ * every file that could use mixin annotations, and every target that is only given by name. Those targets can't be resolved
+ * from the mixin's own AST, so they are resolved by a tiny class with a field of each type, parsed along with the mixins.
+ * Then the annotations in those files are processed to fill in every {@link MixinInfo}, and the index is frozen, all before
+ * anything is walked. So a mixin sees the shadows of a mixin it extends from another file no matter which is walked first.
+ * Files that can't have mixins are walked without any of this.
+ *
+ * Only names are kept once a mixin is frozen, so nothing here holds on to the environment the bindings came from.
+ */
+public class MixinIndex {
+    private static final String RESOLVER = "Srg2Source$MixinTargets";
+    public static final String RESOLVER_FILE = RESOLVER + ".java";
+    private static final String PACKAGE = "org.spongepowered.asm.mixin";
+    private static final Pattern MIXIN = Pattern.compile("@(?:org\\.spongepowered\\.asm\\.mixin\\.)?Mixin\\b\\s*(\\()?");
+    private static final Pattern TARGETS = Pattern.compile("\\btargets\\s*=\\s*(\\{[^}]*\\}|\"[^\"]*\")");
+    private static final Pattern STRING = Pattern.compile("\"([^\"\\\\]*)\"");
+
+    private final Set<String> files = new TreeSet<>();
+    private final Set<String> targets = new TreeSet<>();
+    private final Map<String, MixinInfo> mixins = new HashMap<>();
+    private final List<MixinInfo> collected = new ArrayList<>(); // Not frozen yet, see freezeCollected
+    private int resolved = 0;
+    private boolean frozen = false;
+
+    /**
+     * Looks for {@code @Mixin} annotations in the text of a file, comments and all, so it can find more than there really is.
+     * That's fine, anything extra just never gets used.
+     *
+     * A file can only use the annotations we process if it names their package somewhere, in an import, a qualified name,
+     * or it's own package. So anything that doesn't is skipped without looking any further.
+     */
+    public void scan(String path, String data) {
+        if (data.indexOf(PACKAGE) == -1)
+            return;
+
+        files.add(path);
+        Matcher matcher = MIXIN.matcher(data);
+        while (matcher.find()) {
+            if (matcher.group(1) == null)
+                continue;
+
+            int end = findClose(data, matcher.end());
+            Matcher tmatcher = TARGETS.matcher(data.substring(matcher.end(), end));
+            while (tmatcher.find()) {
+                Matcher smatcher = STRING.matcher(tmatcher.group(1));
+                while (smatcher.find())
+                    targets.add(smatcher.group(1).replace('.', '/'));
+            }
+        }
+    }
+
+    // Index of the ) that closes the annotation, skipping over any in string literals.
+    private static int findClose(String data, int start) {
+        int depth = 1;
+        boolean string = false;
+        for (int x = start; x < data.length(); x++) {
+            char c = data.charAt(x);
+            if (string) {
+                if (c == '\\')
+                    x++;
+                else if (c == '"')
+                    string = false;
+            } else if (c == '"')
+                string = true;
+            else if (c == '(')
+                depth++;
+            else if (c == ')' && --depth == 0)
+                return x;
+        }
+        return data.length();
+    }
+
+    /**
+     * A class with a field of every named target found by {@link #scan(String, String)}, so parsing it resolves them all.
+     * It needs to be parsed with the environment setup the same as it is for the real sources, see {@link #resolve(CompilationUnit)}.
+     *
+     * @return Null if there is nothing to resolve.
+     */
+    @Nullable
+    public String getResolverSource() {
+        StringBuilder buf = new StringBuilder();
+        buf.append("class ").append(RESOLVER).append(" {\n");
+        int count = 0;
+        for (String target : getValidTargets())
+            buf.append("    ").append(target.replace('/', '.').replace('$', '.')).append(" f").append(count++).append(";\n");
+        buf.append("}\n");
+        return count == 0 ? null : buf.toString();
+    }
+
+    /**
+     * Parses the resolver by itself, for when it can't be parsed along with everything else.
+     *
+     * @return The type of every named target that could be found, only valid as long as the parser's environment is.
+     */
+    public Map<String, ITypeBinding> resolve(ASTParser parser) {
+        String source = getResolverSource();
+        if (source == null)
+            return Collections.emptyMap();
+
+        parser.setUnitName(RESOLVER_FILE);
+        parser.setSource(source.toCharArray());
+        return resolve((CompilationUnit)parser.createAST(null));
+    }
+
+    /**
+     * @return The type of every named target that could be found, only valid as long as the parser's environment is.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, ITypeBinding> resolve(CompilationUnit cu) {
+        List<String> names = getValidTargets();
+        Map<String, ITypeBinding> ret = new HashMap<>();
+        int idx = 0;
+        for (AbstractTypeDeclaration type : (List<AbstractTypeDeclaration>)cu.types()) {
+            for (BodyDeclaration body : (List<BodyDeclaration>)type.bodyDeclarations()) {
+                if (!(body instanceof FieldDeclaration))
+                    continue;
+                ITypeBinding bind = ((FieldDeclaration)body).getType().resolveBinding();
+                if (bind != null && !bind.isRecovered())
+                    ret.put(names.get(idx), bind);
+                idx++;
+            }
+        }
+        this.resolved = ret.size();
+        return ret;
+    }
+
+    private List<String> getValidTargets() {
+        List<String> ret = new ArrayList<>();
+        for (String target : targets) {
+            if (isValidName(target))
+                ret.add(target);
+        }
+        return ret;
+    }
+
+    private static boolean isValidName(String name) {
+        for (String part : name.split("[/$]", -1)) {
+            if (part.isEmpty() || !Character.isJavaIdentifierStart(part.charAt(0)))
+                return false;
+            for (int x = 1; x < part.length(); x++) {
+                if (!Character.isJavaIdentifierPart(part.charAt(x)))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Files that look like they use mixin annotations.
+     */
+    public Set<String> getFiles() {
+        return Collections.unmodifiableSet(this.files);
+    }
+
+    /**
+     * @return False if the file can't have any mixin annotations, so there is no need to process it's annotations or references.
+     */
+    public boolean hasMixins(String path) {
+        return this.files.contains(path);
+    }
+
+    /**
+     * @return Every target that is only given by name, resolved or not.
+     */
+    public Set<String> getTargets() {
+        return Collections.unmodifiableSet(this.targets);
+    }
+
+    public int getResolvedCount() {
+        return this.resolved;
+    }
+
+    @Nullable
+    public MixinInfo getInfo(String owner) {
+        return this.mixins.get(owner);
+    }
+
+    public MixinInfo getOrCreateInfo(String owner) {
+        if (this.frozen)
+            throw new IllegalStateException("Can not add mixin " + owner + " once the index is frozen");
+        return this.mixins.computeIfAbsent(owner, k -> {
+            MixinInfo ret = new MixinInfo(owner);
+            this.collected.add(ret);
+            return ret;
+        });
+    }
+
+    /**
+     * Freezes every mixin collected since the last call, while the bindings of the file they came from are still valid.
+     *
+     * @param resolver The type of targets that are only given by name, from {@link #resolve(CompilationUnit)}.
+     */
+    public void freezeCollected(Function<String, ITypeBinding> resolver) {
+        this.collected.forEach(info -> info.freeze(resolver));
+        this.collected.clear();
+    }
+
+    /**
+     * Called once everything has been collected, nothing can change after this. So every walker sees the same thing,
+     * no matter what order files are walked in, and can read it at the same time.
+     */
+    public void freeze() {
+        freezeCollected(t -> null);
+        this.frozen = true;
+    }
+
+    /**
+     * @return False if the walkers still need to fill in the index themselves, like when a walker is used without an extractor.
+     */
+    public boolean isFrozen() {
+        return this.frozen;
+    }
+}
@@ -21,12 +21,16 @@ package net.minecraftforge.srg2source.mixin;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -41,19 +45,28 @@ import net.minecraftforge.srg2source.extract.ExtractUtil;
 
 public class MixinInfo {
     private final String owner;
-    private final ITypeBinding ownerType;
 
     @Nullable
     private String target;
     private final Set<String> targets = new HashSet<>();
-    private final Map<String, ITypeBinding> targetTypes = new HashMap<>();
+    private Map<String, ITypeBinding> targetTypes = new HashMap<>(); // Only kept until it's frozen, see freeze
+    private final Map<String, Set<String>> dependencies = new HashMap<>(); // Target -> What a file using it depends on
+    private final Map<String, String> overwriteOwners = new HashMap<>(); // Name+Desc -> Where the overwritten method is first declared
     private final Map<String, ShadowInfo> shadows = new HashMap<>();
     private final List<InterfaceInfo> interfaces = new ArrayList<>();
     private final Set<String> overwrites = new HashSet<>();
+    private boolean frozen = false;
 
-    public MixinInfo(String owner, ITypeBinding ownerType) {
+    public MixinInfo(String owner) {
         this.owner = owner;
-        this.ownerType = ownerType;
+    }
+
+    /**
+     * @deprecated Nothing is kept from the owner's binding, use {@link #MixinInfo(String)}
+     */
+    @Deprecated
+    public MixinInfo(String owner, ITypeBinding ownerType) {
+        this(owner);
     }
 
     public boolean isValid() {
@@ -64,29 +77,44 @@ public class MixinInfo {
         return owner;
     }
 
-    public ITypeBinding getOwnerType() {
-        return this.ownerType;
-    }
-
     @Nullable
     public String getTarget() {
         return this.targets.size() == 1 ? this.target : null;
     }
 
+    /**
+     * @return The top level source types in the target's hierarchy, empty if it couldn't be resolved.
+     */
+    public Set<String> getDependencies(String target) {
+        if (this.frozen)
+            return this.dependencies.getOrDefault(target, Collections.emptySet());
+        return getDependencies(this.targetTypes.get(target));
+    }
+
+    private static Set<String> getDependencies(@Nullable ITypeBinding bind) {
+        Set<String> ret = new TreeSet<>();
+        ExtractUtil.addSourceHierarchy(bind, Collections.newSetFromMap(new IdentityHashMap<>()), ret);
+        return ret;
+    }
+
+    /**
+     * @return The class that first declares an overwritten method in the target's hierarchy, null if it couldn't be found.
+     */
     @Nullable
-    public ITypeBinding getTargetType() {
-        return this.targets.size() == 1 ? getTargetType(this.target) : null;
+    public String getOverwriteOwner(String name, String desc) {
+        if (this.frozen)
+            return this.overwriteOwners.get(name + desc);
+        return getOverwriteOwner(getTarget() == null ? null : this.targetTypes.get(this.target), name, desc);
     }
 
     @Nullable
-    public ITypeBinding getTargetType(String target) {
-        return this.targetTypes.computeIfAbsent(target, t -> {
-            return null; //TODO: Try and resolve?
-        });
+    private static String getOverwriteOwner(@Nullable ITypeBinding bind, String name, String desc) {
+        IMethodBinding mtd = bind == null ? null : ExtractUtil.findRoot(bind, name, desc);
+        return mtd == null ? null : ExtractUtil.getInternalName(mtd.getDeclaringClass());
     }
 
     public Set<String> getTargets() {
-        return this.targets;
+        return Collections.unmodifiableSet(this.targets);
     }
 
     public void addTarget(String name) {
@@ -94,6 +122,7 @@ public class MixinInfo {
     }
 
     public void addTarget(String name, @Nullable ITypeBinding bind) {
+        checkFrozen();
         targets.add(name);
 
         if (bind != null)
@@ -104,6 +133,7 @@ public class MixinInfo {
     }
 
     public void addShadow(String name, String desc, String prefix) {
+        checkFrozen();
         this.shadows.put(name + ' ' + desc, new ShadowInfo(name, desc, prefix));
     }
 
@@ -113,11 +143,12 @@ public class MixinInfo {
     }
 
     public void addInterface(String prefix, Type type) {
+        checkFrozen();
         this.interfaces.add(new InterfaceInfo(prefix, type));
     }
 
     public List<InterfaceInfo> getInterfaces() {
-        return this.interfaces;
+        return Collections.unmodifiableList(this.interfaces);
     }
 
     public String getShadedOwner(String name, String desc) {
@@ -125,6 +156,7 @@ public class MixinInfo {
     }
 
     public void addOverwrite(String name, String desc) {
+        checkFrozen();
         this.overwrites.add(name + desc);
     }
 
@@ -132,6 +164,47 @@ public class MixinInfo {
         return this.overwrites.contains(name + desc);
     }
 
+    public void freeze() {
+        freeze(t -> null);
+    }
+
+    /**
+     * Works out everything walkers need from the target's bindings, and stops anything else from being added, so it can
+     * be read from any walker at the same time. Only names are kept, so this has to be called while the bindings are still
+     * valid, and doesn't keep JDT's environment around afterwards.
+     *
+     * @param resolver Finds the type of targets that are only given by name, see {@link MixinIndex}.
+     */
+    public void freeze(Function<String, ITypeBinding> resolver) {
+        if (this.frozen)
+            return;
+        for (String target : this.targets) {
+            ITypeBinding bind = this.targetTypes.get(target);
+            if (bind == null)
+                bind = resolver.apply(target);
+            this.dependencies.put(target, getDependencies(bind));
+            if (target.equals(getTarget())) {
+                for (String overwrite : this.overwrites) {
+                    int idx = overwrite.indexOf('(');
+                    String owner = getOverwriteOwner(bind, overwrite.substring(0, idx), overwrite.substring(idx));
+                    if (owner != null)
+                        this.overwriteOwners.put(overwrite, owner);
+                }
+            }
+        }
+        this.targetTypes = null;
+        this.frozen = true;
+    }
+
+    public boolean isFrozen() {
+        return this.frozen;
+    }
+
+    private void checkFrozen() {
+        if (this.frozen)
+            throw new IllegalStateException("Can not change " + this + " once it's frozen");
+    }
+
     @Override
     public String toString() {
         return "Mixin[" + targets.stream().collect(Collectors.joining(",")) + ']';
@@ -256,15 +329,14 @@ public class MixinInfo {
 
     public class InterfaceInfo {
         private final String target;
-        private final ITypeBinding type;
         private final String prefix;
         private final Map<String, String> methods;
 
         private InterfaceInfo(String prefix, Type type) {
+            ITypeBinding bind = type.resolveBinding();
             this.prefix = prefix;
-            this.type = type.resolveBinding();
-            this.target = ExtractUtil.getInternalName(this.type);
-            this.methods = buildMethods(this.type, new HashMap<>());
+            this.target = ExtractUtil.getInternalName(bind);
+            this.methods = buildMethods(bind, new HashMap<>());
         }
 
         private Map<String, String> buildMethods(ITypeBinding binding, Map<String, String> ret) {
@@ -283,10 +355,6 @@ public class MixinInfo {
             return this.target;
         }
 
-        public ITypeBinding getType() {
-            return this.type;
-        }
-
         public String getPrefix() {
             return this.prefix;
         }
@@ -80,7 +80,8 @@ public class Overwrite extends AnnotationBase {
         MixinInfo info = getInfo(ExtractUtil.getInternalName(getBuilder().getFilename(), method.getDeclaringClass(), node));
         if (info == null)
             return error(node, "Could not determine @Mixin owner for @Overwrite method: " + node.toString());
-        info.addOverwrite(method.getName(), ExtractUtil.getDescriptor(method));
+        if (isCollecting())
+            info.addOverwrite(method.getName(), ExtractUtil.getDescriptor(method));
 
         return true;
     }
@@ -93,7 +94,8 @@ public class Overwrite extends AnnotationBase {
         MixinInfo info = getInfo(ExtractUtil.getInternalName(getBuilder().getFilename(), method.getDeclaringClass(), node));
         if (info == null)
             return error(node, "Could not determine @Mixin owner for @Overwrite method: " + node.toString());
-        info.addOverwrite(method.getName(), ExtractUtil.getDescriptor(method));
+        if (isCollecting())
+            info.addOverwrite(method.getName(), ExtractUtil.getDescriptor(method));
         return true;
     }
 }
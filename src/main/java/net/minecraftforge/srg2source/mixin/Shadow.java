@@ -68,7 +68,8 @@ public class Shadow extends AnnotationBase {
                 MixinInfo info = getInfo(owner);
                 if (info == null)
                     return error(node, "Invalid @Sadow on " + name + " owner " + owner + " has no @Mixin");
-                info.addShadow(name, desc, "shadow$");
+                if (isCollecting())
+                    info.addShadow(name, desc, "shadow$");
             }
         } else if (parent.getNodeType() == ASTNode.METHOD_DECLARATION) {
             MethodDeclaration mtd = (MethodDeclaration)parent;
@@ -79,7 +80,8 @@ public class Shadow extends AnnotationBase {
             MixinInfo info = getInfo(owner);
             if (info == null)
                 return error(node, "Invalid @Sadow on " + name + desc + " owner " + owner + " has no @Mixin");
-            info.addShadow(name, desc, "shadow$");
+            if (isCollecting())
+                info.addShadow(name, desc, "shadow$");
         } else
             return error(node, "Invalid @Shadow target: " + parent.getClass().getName());
 
@@ -118,7 +120,8 @@ public class Shadow extends AnnotationBase {
                 MixinInfo info = getInfo(owner);
                 if (info == null)
                     return error(node, "Invalid @Sadow on " + name + " owner " + owner + " has no @Mixin");
-                info.addShadow(name, type, prefix);
+                if (isCollecting())
+                    info.addShadow(name, type, prefix);
             }
         } else if (parent.getNodeType() == ASTNode.METHOD_DECLARATION) {
             MethodDeclaration mtd = (MethodDeclaration)parent;
@@ -129,7 +132,8 @@ public class Shadow extends AnnotationBase {
             MixinInfo info = getInfo(owner);
             if (info == null)
                 return error(node, "Invalid @Sadow on " + name + desc + " owner " + owner + " has no @Mixin");
-            info.addShadow(name, desc, prefix);
+            if (isCollecting())
+                info.addShadow(name, desc, prefix);
         } else
             return error(node, "Invalid @Shadow target: " + parent.getClass().getName());
         return true;
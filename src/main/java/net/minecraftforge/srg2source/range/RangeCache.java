@@ -0,0 +1,319 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.range;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.Nullable;
+
+import net.minecraftforge.srg2source.util.Util;
+
+/**
+ * A directory of range maps that can be shared between branches, checkouts, and builds running at the same time.
+ *
+ * A file's range map doesn't only depend on it's own text, it also depends on the files that declare the types it uses.
+ * So every file has an index, keyed by the fingerprint of the extractor's config, the file's name, and it's hash.
+ * The index lists the range maps that have been extracted from that text, along with the hash every file it depended on
+ * had at the time. A range map is only used if all of those files still have the same hash. Each range map is stored
+ * once, keyed by the hash of it's contents, so it doesn't matter how many indexes point at it.
+ *
+ * Everything is written to a temp file and moved into place, so readers only ever see whole files, and anything that
+ * can't be read is just a miss. The directory is trimmed back to it's maximum size by deleting the least recently used
+ * files first, every hit updates the modified time of the files it used.
+ */
+public class RangeCache {
+    public static final long DEFAULT_MAX_SIZE = 512L * 1024 * 1024;
+    private static final String INDEX = ".index";
+    private static final String RANGE = ".range";
+    private static final String TEMP = ".tmp";
+    private static final String MISSING = "-";
+    private static final int MAX_VARIANTS = 8; // Per index, enough for a handful of branches to share one entry.
+    private static final long TEMP_AGE = 60 * 60 * 1000; // Anything younger could still be being written by someone else.
+
+    private final Path root;
+    private final String fingerprint;
+    private final long maxSize;
+    private int hits = 0;
+    private int misses = 0;
+    private int stored = 0;
+
+    public RangeCache(Path root, String fingerprint, long maxSize) throws IOException {
+        this.root = root;
+        this.fingerprint = fingerprint;
+        this.maxSize = maxSize;
+        if (!Files.exists(root))
+            Files.createDirectories(root);
+    }
+
+    /**
+     * @param hashes The current hash of an input file, or null if it doesn't exist.
+     * @return The range map extracted from this exact text the last time all of it's dependencies were the same as they are now.
+     */
+    @Nullable
+    public RangeMap get(String filename, String hash, Function<String, String> hashes) {
+        Path index = getPath(getIndexKey(filename, hash), INDEX);
+        try {
+            for (Variant variant : readIndex(index)) {
+                if (!variant.matches(hashes))
+                    continue;
+
+                Path path = getPath(variant.range, RANGE);
+                RangeMap ret;
+                try (InputStream in = Files.newInputStream(path)) {
+                    ret = new RangeMap.Reader(in).next();
+                }
+                if (ret == null || !filename.equals(ret.getFilename()) || !hash.equals(ret.getHash()))
+                    continue;
+
+                touch(index);
+                touch(path);
+                synchronized (this) {
+                    hits++;
+                }
+                return ret;
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // Deleted by someone else, or something we can't read, either way it's just a miss.
+        }
+
+        synchronized (this) {
+            misses++;
+        }
+        return null;
+    }
+
+    /**
+     * Stores a range map's contents, it can't be found until it's been added to an index with {@link #index(String, String, String, Map)}.
+     * @return The key to give to the index.
+     */
+    public String store(RangeMap range) throws IOException {
+        byte[] data = toBytes(range);
+        String key = Util.md5(data);
+        Path path = getPath(key, RANGE);
+        if (!Files.exists(path))
+            write(path, data);
+        else
+            touch(path);
+        return key;
+    }
+
+    /**
+     * Adds a stored range map to the index of the text it was extracted from.
+     * @param depends Every input file the range map depends on, and the hash it had when the range map was extracted, null if it didn't exist.
+     */
+    public synchronized void index(String filename, String hash, String key, Map<String, String> depends) throws IOException {
+        Path index = getPath(getIndexKey(filename, hash), INDEX);
+        List<Variant> variants = new ArrayList<>();
+        variants.add(new Variant(key, depends));
+        try {
+            // Newest first, so the oldest are the ones dropped. Anything written by someone else between reading and writing is lost, which is just a miss later.
+            for (Variant old : readIndex(index)) {
+                if (variants.size() < MAX_VARIANTS && !(old.range.equals(key) && old.depends.equals(depends)))
+                    variants.add(old);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // Start over, the old index is no use to anyone.
+        }
+
+        StringBuilder buf = new StringBuilder();
+        for (Variant variant : variants) {
+            buf.append("range ").append(variant.range).append('\n');
+            variant.depends.forEach((name, value) -> buf.append("depends ").append(Util.quote(value == null ? MISSING : value, name)).append('\n'));
+        }
+        write(index, buf.toString().getBytes(StandardCharsets.UTF_8));
+        stored++;
+    }
+
+    /**
+     * Deletes the least recently used files until the directory is no larger then it's maximum size.
+     * @return The number of files deleted.
+     */
+    public int trim() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(root)) {
+            files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+
+        long now = System.currentTimeMillis();
+        long total = 0;
+        List<Entry> entries = new ArrayList<>();
+        int deleted = 0;
+        for (Path file : files) {
+            BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                continue;
+            }
+            long modified = attrs.lastModifiedTime().toMillis();
+            if (file.getFileName().toString().endsWith(TEMP)) {
+                if (now - modified > TEMP_AGE && Files.deleteIfExists(file)) // Left behind by something that died half way through a write.
+                    deleted++;
+                continue;
+            }
+            total += attrs.size();
+            entries.add(new Entry(file, attrs.size(), modified));
+        }
+
+        if (total <= maxSize)
+            return deleted;
+
+        entries.sort(Comparator.comparingLong(e -> e.modified));
+        for (Entry entry : entries) {
+            if (total <= maxSize)
+                break;
+            try {
+                if (Files.deleteIfExists(entry.path))
+                    deleted++;
+            } catch (IOException e) {
+                // In use on a system that cares, it'll get picked up next time.
+            }
+            total -= entry.size;
+        }
+        return deleted;
+    }
+
+    public synchronized int getHits() {
+        return this.hits;
+    }
+
+    public synchronized int getMisses() {
+        return this.misses;
+    }
+
+    public synchronized int getStored() {
+        return this.stored;
+    }
+
+    private String getIndexKey(String filename, String hash) {
+        return Util.md5((fingerprint + '\n' + filename + '\n' + hash).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Spread out over a few directories, so none of them get too big.
+    private Path getPath(String key, String ext) {
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2) + ext);
+    }
+
+    private static List<Variant> readIndex(Path index) throws IOException {
+        List<Variant> ret = new ArrayList<>();
+        Variant current = null;
+        for (String line : new String(Files.readAllBytes(index), StandardCharsets.UTF_8).split("\n")) {
+            if (line.startsWith("range ")) {
+                current = new Variant(line.substring(6), new TreeMap<>());
+                ret.add(current);
+            } else if (line.startsWith("depends ") && current != null) {
+                List<String> pts = Util.unquote(line.substring(8), 1);
+                if (pts.size() != 2)
+                    throw new IllegalArgumentException("Invalid index line: " + line);
+                String name = pts.get(1);
+                if (name.startsWith("\"") && name.endsWith("\""))
+                    name = name.substring(1, name.length() - 1).replace("\\\"", "\"");
+                current.depends.put(name, pts.get(0));
+            }
+        }
+        return ret;
+    }
+
+    private static void write(Path target, byte[] data) throws IOException {
+        Path parent = target.getParent();
+        if (!Files.exists(parent))
+            Files.createDirectories(parent);
+
+        Path temp = Files.createTempFile(parent, target.getFileName().toString(), TEMP);
+        try {
+            Files.write(temp, data);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void touch(Path path) {
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Only used for eviction, not worth failing over.
+        }
+    }
+
+    private static byte[] toBytes(RangeMap range) {
+        StringWriter buf = new StringWriter();
+        try (RangeMapWriter out = new RangeMapWriter(buf, false)) {
+            out.write(range);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringWriter never throws
+        }
+        return buf.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class Variant {
+        private final String range;
+        private final Map<String, String> depends;
+
+        private Variant(String range, Map<String, String> depends) {
+            this.range = range;
+            this.depends = depends;
+        }
+
+        private boolean matches(Function<String, String> hashes) {
+            for (Map.Entry<String, String> entry : depends.entrySet()) {
+                String current = hashes.apply(entry.getKey());
+                if (!entry.getValue().equals(current == null ? MISSING : current))
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    private static class Entry {
+        private final Path path;
+        private final long size;
+        private final long modified;
+
+        private Entry(Path path, long size, long modified) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+        }
+    }
+}
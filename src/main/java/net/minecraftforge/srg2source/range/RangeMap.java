@@ -20,20 +20,23 @@
 package net.minecraftforge.srg2source.range;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
 
 import net.minecraftforge.srg2source.range.entries.MetaEntry;
 import net.minecraftforge.srg2source.range.entries.RangeEntry;
@@ -41,49 +44,94 @@ import net.minecraftforge.srg2source.range.entries.StructuralEntry;
 import net.minecraftforge.srg2source.util.Util;
 
 public class RangeMap {
-    private final int SPEC = 1;
+    /**
+     * Reads a range map in any of the supported formats. A single text file,
+     * or a directory or zip with every file split into it's own entry, see {@link SplitRangeMap}.
+     */
+    public static Map<String, RangeMap> readAll(Path path) throws IOException {
+        if (SplitRangeMap.isSplit(path))
+            return SplitRangeMap.readAll(path);
+        try (InputStream in = Files.newInputStream(path)) {
+            return readAll(in);
+        }
+    }
 
-    //TODO: Support output types:
-    // Directory: every range file is split into it's own file. Would allow for easier navigation/debug
-    // Zip: Same as directory, but also compressed, easier debugging, and lower file size
     public static Map<String, RangeMap> readAll(InputStream stream) throws IOException {
         Map<String, RangeMap> ret = new HashMap<>();
-        List<String> lines = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8)).lines().collect(Collectors.toList());
-        for (int x = 0; x < lines.size(); x++) {
-            String line = stripComment(lines.get(x)).trim();
+        readAll(stream, range -> ret.put(range.getFilename(), range));
+        return ret;
+    }
 
-            if (line.isEmpty())
-                continue;
+    /**
+     * Reads range maps one at a time, giving each one to the consumer as soon as it has been read.
+     * So the whole stream never has to be held in memory, and reading can start before the writer has finished.
+     */
+    public static void readAll(InputStream stream, Consumer<RangeMap> consumer) throws IOException {
+        Reader reader = new Reader(stream);
+        RangeMap range;
+        while ((range = reader.next()) != null)
+            consumer.accept(range);
+    }
 
-            if (line.startsWith("start ")) {
-                List<String> pts = Util.unquote(line, 3);
-                if (pts.size() != 4)
-                    throw new IllegalArgumentException("Invalid RangeMap line #" + x + ": " + lines.get(x));
-                int spec = -1;
-                try {
-                    spec = Integer.parseInt(pts.get(1));
-                } catch (NumberFormatException e) {
-                    throw new IllegalArgumentException("Invalid RangeMap line #" + x + ": " + lines.get(x));
-                }
+    /**
+     * Pulls range maps out of a stream one at a time, in the order they were written.
+     */
+    public static class Reader implements Closeable {
+        private final BufferedReader reader;
+        private final List<String> body = new ArrayList<>();
+        private int line = 0;
 
-                int end = x + 1;
-                while (end < lines.size() && !"end".equals(stripComment(lines.get(end))))
-                    end++;
+        public Reader(InputStream stream) {
+            this.reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        }
 
-                if (end == lines.size())
-                    throw new IllegalArgumentException("Invalid RangeMap. Start on line #" + x + " with no end");
+        /**
+         * @return The next range map, or null if there are no more.
+         */
+        @Nullable
+        public RangeMap next() throws IOException {
+            String raw;
+            for (; (raw = reader.readLine()) != null; line++) {
+                String text = stripComment(raw).trim();
+
+                if (text.isEmpty())
+                    continue;
+
+                if (text.startsWith("start ")) {
+                    int x = line;
+                    List<String> pts = Util.unquote(text, 3);
+                    if (pts.size() != 4)
+                        throw new IllegalArgumentException("Invalid RangeMap line #" + x + ": " + raw);
+                    int spec = -1;
+                    try {
+                        spec = Integer.parseInt(pts.get(1));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid RangeMap line #" + x + ": " + raw);
+                    }
 
-                if (spec == 1)
-                    ret.put(pts.get(2), new RangeMap(spec, pts.get(2), pts.get(3), lines, x + 1, end));
-                else
-                    throw new IllegalArgumentException("Invalid RangeMap line #" + x + " Unknown Spec: " + lines.get(x));
+                    body.clear();
+                    String next;
+                    while ((next = reader.readLine()) != null && !"end".equals(stripComment(next)))
+                        body.add(next);
 
-                x = end;
-            } else if ("end".equals(stripComment(line))) {
-                throw new IllegalArgumentException("Invalid RangeMap. End on line #" + x + " with no start");
+                    if (next == null)
+                        throw new IllegalArgumentException("Invalid RangeMap. Start on line #" + x + " with no end");
+                    if (spec != 1)
+                        throw new IllegalArgumentException("Invalid RangeMap line #" + x + " Unknown Spec: " + raw);
+
+                    line += body.size() + 2;
+                    return new RangeMap(spec, pts.get(2), pts.get(3), body, x + 1);
+                } else if ("end".equals(stripComment(text))) {
+                    throw new IllegalArgumentException("Invalid RangeMap. End on line #" + line + " with no start");
+                }
             }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
         }
-        return ret;
     }
 
     private final String filename;
@@ -92,7 +140,10 @@ public class RangeMap {
     private final List<StructuralEntry> structures;
     private final List<MetaEntry> meta;
 
-    private RangeMap(int spec, String filename, String hash, List<String> lines, int start, int end) {
+    /*
+     * Lines is just the body between the start and end lines, offset is the line number of the first one, for error messages.
+     */
+    private RangeMap(int spec, String filename, String hash, List<String> lines, int offset) {
         this.filename = filename;
         this.hash = hash;
         final List<RangeEntry> entries = new ArrayList<>();
@@ -102,13 +153,13 @@ public class RangeMap {
         this.structures = Collections.unmodifiableList(structures);
         this.meta = Collections.unmodifiableList(meta);
 
-        for (int x = start; x < end; x++) {
+        for (int x = 0; x < lines.size(); x++) {
             String line = stripComment(lines.get(x)).trim();
             if (line.isEmpty())
                 continue;
             int idx = line.indexOf(' ');
             if (idx == -1)
-                throw new IllegalArgumentException("Invalid RangeMap line #" + x + ": " + lines.get(x));
+                throw new IllegalArgumentException("Invalid RangeMap line #" + (offset + x) + ": " + lines.get(x));
 
             try {
                 String type = line.substring(0, idx);
@@ -119,7 +170,7 @@ public class RangeMap {
                 else //entry
                     entries.add(RangeEntry.read(spec, type, line.substring(idx + 1)));
             } catch (Exception e) {
-                throw new IllegalArgumentException("Invalid RangeMap line #" + x + ": " + lines.get(x), e);
+                throw new IllegalArgumentException("Invalid RangeMap line #" + (offset + x) + ": " + lines.get(x), e);
             }
         }
     }
@@ -153,95 +204,13 @@ public class RangeMap {
     }
 
     public void write(PrintWriter out, boolean pretty) {
-        Writer writer = new Writer(out);
-        writer.accept(Util.quote("start", Integer.toString(SPEC), filename, hash));
-
-        if (!meta.isEmpty()) {
-            if (pretty) {
-                writer.accept("# Start Meta");
-                writer.tabs++;
-            }
-
-            for (MetaEntry entry : this.meta)
-                entry.write(writer);
-
-            if (pretty) {
-                writer.tabs--;
-                writer.accept("# End Meta");
-            }
+        RangeMapWriter writer = new RangeMapWriter(out, pretty);
+        writer.write(this);
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // PrintWriters don't actually throw, but we have to catch it anyways.
         }
-
-        Stack<StructuralEntry> stack = new Stack<>();
-        Iterator<StructuralEntry> segments = structures.iterator();
-
-        StructuralEntry last = null;
-        StructuralEntry next = segments.hasNext() ? segments.next() : null;
-
-        for (RangeEntry entry : entries) {
-            if (pretty) {
-                while (last != null) {
-                    if (entry.getStart() < end(last))
-                        break;
-                    writer.tabs--;
-                    writer.accept("# End " + last.getType().name());
-                    last = stack.empty() ? null : stack.pop();
-                }
-            }
-
-            if (next != null) {
-                if (entry.getStart() > next.getStart()) {
-                    next.write(writer);
-                    if (pretty) {
-                        writer.accept("# Start " + next.getType().name() + ' ' + next.getName() + (next.getDescriptor() == null ? "" : next.getDescriptor()));
-                        writer.tabs++;
-                        if (last != null)
-                            stack.push(last);
-                        last = next;
-                        next = segments.hasNext() ? segments.next() : null;
-                    }
-                }
-            }
-
-            entry.write(writer);
-        }
-
-        //Grab all the trailing things that don't have entries inside them?
-        //Should never be the case because we should have a entry for the name of the object at least, but hey why not.
-        if (next != null) {
-            next.write(writer);
-            while (segments.hasNext())
-                segments.next().write(writer);
-        }
-
-        if (pretty) {
-            while (last != null) {
-                writer.tabs--;
-                writer.accept("# End " + last.getType().name());
-                last = stack.empty() ? null : stack.pop();
-            }
-        }
-
-        writer.tabs = 0;
-        writer.accept("end");
-    }
-
-    private static class Writer implements Consumer<String> {
-        private int tabs = 0;
-        private final PrintWriter out;
-        private Writer(PrintWriter out) {
-            this.out = out;
-        }
-
-        @Override
-        public void accept(String line) {
-            for (int x = 0; x < tabs; x++)
-                out.write("  ");
-            out.print(line + '\n'); //Don't use println, as we want consistent line endings.
-        }
-    }
-
-    private int end(IRange e) {
-        return e.getStart() + e.getLength();
     }
 
     private static String stripComment(String line) {
@@ -25,8 +25,10 @@ import java.util.List;
 
 import net.minecraftforge.srg2source.range.entries.ClassLiteral;
 import net.minecraftforge.srg2source.range.entries.ClassReference;
+import net.minecraftforge.srg2source.range.entries.DependencyMeta;
 import net.minecraftforge.srg2source.range.entries.FieldLiteral;
 import net.minecraftforge.srg2source.range.entries.FieldReference;
+import net.minecraftforge.srg2source.range.entries.FingerprintMeta;
 import net.minecraftforge.srg2source.range.entries.LocalVariableReference;
 import net.minecraftforge.srg2source.range.entries.MetaEntry;
 import net.minecraftforge.srg2source.range.entries.MethodLiteral;
@@ -166,4 +168,16 @@ public class RangeMapBuilder extends ConfLogger<RangeMapBuilder> {
     public void addMixinAccessor(String owner, String name, String desc, String targetOwner, String targetName, String targetDesc, String prefix) {
         addMeta(MixinAccessorMeta.create(owner, name, desc, targetOwner, targetName, targetDesc, prefix));
     }
+
+    public void addDeclaredType(String type) {
+        addMeta(DependencyMeta.declares(type));
+    }
+
+    public void addTypeDependency(String type) {
+        addMeta(DependencyMeta.depends(type));
+    }
+
+    public void addFingerprint(String hash) {
+        addMeta(FingerprintMeta.create(hash));
+    }
 }
@@ -0,0 +1,212 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.range;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.zip.ZipFile;
+
+import javax.annotation.Nullable;
+
+/**
+ * Merges several partial range maps, such as the outputs of sharded extraction, into one sorted range map.
+ * <p>
+ * Every input must already be sorted by filename, which is how the extractor writes them, so only the head of each
+ * input is kept in memory. A file found in more than one input is a duplicate if every copy is identical,
+ * the first is kept and the rest are dropped. If the copies differ, it's a conflict, which is recorded and
+ * should be treated as a failure.
+ */
+public class RangeMapMerger {
+    private final List<Path> inputs = new ArrayList<>();
+    private final List<String> conflicts = new ArrayList<>();
+    private int duplicates = 0;
+
+    /**
+     * Adds an input, either a single range map file, or a split range map, see {@link SplitRangeMap}.
+     * When there is a conflict, the input added first wins.
+     */
+    public RangeMapMerger add(Path input) {
+        this.inputs.add(input);
+        return this;
+    }
+
+    /**
+     * Gives every range map from every input to the consumer, in sorted order.
+     *
+     * @return The number of range maps given to the consumer.
+     */
+    public int merge(Consumer<RangeMap> consumer) throws IOException {
+        PriorityQueue<Head> queue = new PriorityQueue<>(Comparator.<Head, String>comparing(h -> h.range.getFilename()).thenComparingInt(h -> h.index));
+        List<Source> sources = new ArrayList<>();
+        int count = 0;
+        try {
+            for (int x = 0; x < inputs.size(); x++) {
+                Source source = open(inputs.get(x));
+                sources.add(source);
+                advance(queue, new Head(x, source));
+            }
+
+            while (!queue.isEmpty()) {
+                Head head = queue.poll();
+                RangeMap range = head.range;
+                String rendered = null;
+
+                while (!queue.isEmpty() && queue.peek().range.getFilename().equals(range.getFilename())) {
+                    Head dupe = queue.poll();
+                    if (rendered == null)
+                        rendered = render(range);
+
+                    if (!range.getHash().equals(dupe.range.getHash()))
+                        conflicts.add(range.getFilename() + ": hash " + range.getHash() + " in " + inputs.get(head.index) + " but " + dupe.range.getHash() + " in " + inputs.get(dupe.index));
+                    else if (!rendered.equals(render(dupe.range)))
+                        conflicts.add(range.getFilename() + ": different entries in " + inputs.get(head.index) + " and " + inputs.get(dupe.index));
+                    else
+                        duplicates++;
+
+                    advance(queue, dupe);
+                }
+
+                consumer.accept(range);
+                count++;
+                advance(queue, head);
+            }
+        } finally {
+            for (Source source : sources)
+                source.close();
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of files that were found in more than one input, with identical range maps.
+     */
+    public int getDuplicates() {
+        return this.duplicates;
+    }
+
+    /**
+     * @return A description of every file that was found in more than one input, with different range maps.
+     */
+    public List<String> getConflicts() {
+        return Collections.unmodifiableList(this.conflicts);
+    }
+
+    private void advance(PriorityQueue<Head> queue, Head head) throws IOException {
+        RangeMap next = head.source.next();
+        if (next == null)
+            return;
+        if (head.range != null && next.getFilename().compareTo(head.range.getFilename()) <= 0)
+            throw new IllegalArgumentException("Can not merge " + inputs.get(head.index) + ", it is not sorted: " + next.getFilename() + " comes after " + head.range.getFilename());
+        head.range = next;
+        queue.add(head);
+    }
+
+    private static String render(RangeMap range) {
+        StringWriter buf = new StringWriter();
+        try (RangeMapWriter out = new RangeMapWriter(buf, false)) {
+            out.write(range);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringWriter never throws
+        }
+        return buf.toString();
+    }
+
+    private static Source open(Path path) throws IOException {
+        if (!SplitRangeMap.isSplit(path)) {
+            RangeMap.Reader reader = new RangeMap.Reader(Files.newInputStream(path));
+            return new Source() {
+                @Override
+                public RangeMap next() throws IOException {
+                    return reader.next();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    reader.close();
+                }
+            };
+        }
+
+        // The manifest is sorted, so reading entries in it's order keeps the split formats sorted too.
+        Iterator<String> names = SplitRangeMap.readManifest(path).keySet().iterator();
+        if (Files.isDirectory(path)) {
+            return new Source() {
+                @Override
+                public RangeMap next() throws IOException {
+                    if (!names.hasNext())
+                        return null;
+                    String name = names.next();
+                    return require(SplitRangeMap.read(path, name), path, name);
+                }
+
+                @Override public void close() {}
+            };
+        }
+
+        ZipFile zip = new ZipFile(path.toFile());
+        return new Source() {
+            @Override
+            public RangeMap next() throws IOException {
+                if (!names.hasNext())
+                    return null;
+                String name = names.next();
+                return require(SplitRangeMap.read(zip, name), path, name);
+            }
+
+            @Override
+            public void close() throws IOException {
+                zip.close();
+            }
+        };
+    }
+
+    private static RangeMap require(@Nullable RangeMap range, Path path, String name) throws IOException {
+        if (range == null)
+            throw new IOException("Missing RangeMap entry for " + name + " in " + path);
+        return range;
+    }
+
+    private interface Source extends Closeable {
+        @Nullable
+        RangeMap next() throws IOException;
+    }
+
+    private static class Head {
+        private final int index;
+        private final Source source;
+        private RangeMap range;
+
+        private Head(int index, Source source) {
+            this.index = index;
+            this.source = source;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.range;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+import net.minecraftforge.srg2source.range.entries.MetaEntry;
+import net.minecraftforge.srg2source.range.entries.RangeEntry;
+import net.minecraftforge.srg2source.range.entries.StructuralEntry;
+
+/**
+ * Streams range maps out a line at a time, building each line directly in a reusable buffer
+ * instead of concatenating strings for every field. One of these can be used for any number of range maps.
+ * <p>
+ * Pretty mode indents entries inside their structures and adds {@code # Start}/{@code # End} comments,
+ * compact mode writes exactly the same lines without either, which is all the reader needs.
+ */
+public class RangeMapWriter implements Flushable, Closeable {
+    private static final int FLUSH_SIZE = 8192;
+    private static final char[] START = "start".toCharArray();
+    private static final char[] END = "end".toCharArray();
+    private static final char[] SPEC = "1".toCharArray();
+    private static final char[] COMMENT_START = "# Start ".toCharArray();
+    private static final char[] COMMENT_END = "# End ".toCharArray();
+    private static final char[] META = "Meta".toCharArray();
+    private static final char[] TRUE = "true".toCharArray();
+    private static final char[] FALSE = "false".toCharArray();
+
+    private final Writer out;
+    private final boolean pretty;
+    private char[] buf = new char[FLUSH_SIZE * 2];
+    private int pos = 0;
+    private int lineStart = -1;
+    private int tabs = 0;
+
+    public RangeMapWriter(Writer out, boolean pretty) {
+        this.out = out;
+        this.pretty = pretty;
+    }
+
+    public boolean isPretty() {
+        return this.pretty;
+    }
+
+    public void write(RangeMap range) {
+        start(START).field(SPEC).field(range.getFilename()).field(range.getHash()).end();
+
+        if (!range.getMeta().isEmpty()) {
+            if (pretty) {
+                start(COMMENT_START).raw(META).end();
+                tabs++;
+            }
+
+            for (MetaEntry entry : range.getMeta())
+                entry.write(this);
+
+            if (pretty) {
+                tabs--;
+                start(COMMENT_END).raw(META).end();
+            }
+        }
+
+        Deque<StructuralEntry> stack = new ArrayDeque<>();
+        Iterator<StructuralEntry> segments = range.getStructures().iterator();
+
+        StructuralEntry last = null;
+        StructuralEntry next = segments.hasNext() ? segments.next() : null;
+
+        for (RangeEntry entry : range.getEntries()) {
+            if (pretty) {
+                while (last != null) {
+                    if (entry.getStart() < last.getStart() + last.getLength())
+                        break;
+                    tabs--;
+                    start(COMMENT_END).raw(last.getType().name()).end();
+                    last = stack.isEmpty() ? null : stack.pop();
+                }
+            }
+
+            if (next != null && entry.getStart() > next.getStart()) {
+                next.write(this);
+                if (pretty) {
+                    start(COMMENT_START).raw(next.getType().name()).raw(' ').raw(String.valueOf(next.getName()));
+                    if (next.getDescriptor() != null)
+                        raw(next.getDescriptor());
+                    end();
+                    tabs++;
+                    if (last != null)
+                        stack.push(last);
+                    last = next;
+                }
+                next = segments.hasNext() ? segments.next() : null;
+            }
+
+            entry.write(this);
+        }
+
+        //Grab all the trailing things that don't have entries inside them?
+        //Should never be the case because we should have a entry for the name of the object at least, but hey why not.
+        if (next != null) {
+            next.write(this);
+            while (segments.hasNext())
+                segments.next().write(this);
+        }
+
+        if (pretty) {
+            while (last != null) {
+                tabs--;
+                start(COMMENT_END).raw(last.getType().name()).end();
+                last = stack.isEmpty() ? null : stack.pop();
+            }
+        }
+
+        tabs = 0;
+        start(END).end();
+    }
+
+    /**
+     * Begins a new line, with the specified token as the first thing on it.
+     */
+    public RangeMapWriter start(char[] token) {
+        if (lineStart != -1)
+            throw new IllegalStateException("Can not start a new line before the last one ended");
+        lineStart = pos;
+        if (pretty) {
+            ensure(tabs * 2);
+            for (int x = 0; x < tabs; x++) {
+                buf[pos++] = ' ';
+                buf[pos++] = ' ';
+            }
+        }
+        return raw(token);
+    }
+
+    /**
+     * Writes a space, followed by the value, quoted if needed. See {@link net.minecraftforge.srg2source.util.Util#quote(String)}
+     */
+    public RangeMapWriter field(String value) {
+        int len = value.length(); // Throw on nulls before we write anything.
+        boolean quote = value.indexOf(' ') != -1 || (len > 0 && value.charAt(0) == '"');
+        if (!quote) {
+            ensure(len + 1);
+            buf[pos++] = ' ';
+            value.getChars(0, len, buf, pos);
+            pos += len;
+            return this;
+        }
+
+        ensure(len * 2 + 3);
+        buf[pos++] = ' ';
+        buf[pos++] = '"';
+        for (int x = 0; x < len; x++) {
+            char c = value.charAt(x);
+            if (c == '"')
+                buf[pos++] = '\\';
+            buf[pos++] = c;
+        }
+        buf[pos++] = '"';
+        return this;
+    }
+
+    /**
+     * Writes a space, followed by a token that never needs quoting.
+     */
+    public RangeMapWriter field(char[] token) {
+        ensure(1);
+        buf[pos++] = ' ';
+        return raw(token);
+    }
+
+    public RangeMapWriter field(boolean value) {
+        return field(value ? TRUE : FALSE);
+    }
+
+    public RangeMapWriter field(int value) {
+        ensure(12);
+        buf[pos++] = ' ';
+        if (value < 0) {
+            if (value == Integer.MIN_VALUE)
+                return raw(Integer.toString(value));
+            buf[pos++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (int x = value; x >= 10; x /= 10)
+            digits++;
+        for (int x = pos + digits - 1; x >= pos; x--) {
+            buf[x] = (char)('0' + value % 10);
+            value /= 10;
+        }
+        pos += digits;
+        return this;
+    }
+
+    /**
+     * Writes the value as is, with no leading space or quoting.
+     */
+    public RangeMapWriter raw(String value) {
+        int len = value.length();
+        ensure(len);
+        value.getChars(0, len, buf, pos);
+        pos += len;
+        return this;
+    }
+
+    public RangeMapWriter raw(char[] value) {
+        ensure(value.length);
+        System.arraycopy(value, 0, buf, pos, value.length);
+        pos += value.length;
+        return this;
+    }
+
+    public RangeMapWriter raw(char value) {
+        ensure(1);
+        buf[pos++] = value;
+        return this;
+    }
+
+    /**
+     * Finishes the current line, does nothing if it has been {@link #discard() discarded}.
+     */
+    public void end() {
+        if (lineStart == -1)
+            return;
+        ensure(1);
+        buf[pos++] = '\n'; //Don't use system line endings, as we want consistent output.
+        lineStart = -1;
+        if (pos >= FLUSH_SIZE)
+            flushBuffer();
+    }
+
+    /**
+     * Throws away everything written since the current line was started.
+     */
+    public void discard() {
+        if (lineStart == -1)
+            return;
+        pos = lineStart;
+        lineStart = -1;
+    }
+
+    private void ensure(int extra) {
+        if (pos + extra > buf.length) {
+            char[] tmp = new char[Math.max(buf.length * 2, pos + extra)];
+            System.arraycopy(buf, 0, tmp, 0, pos);
+            buf = tmp;
+        }
+    }
+
+    private void flushBuffer() {
+        try {
+            out.write(buf, 0, pos);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        pos = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (lineStart != -1)
+            throw new IllegalStateException("Can not flush in the middle of a line");
+        out.write(buf, 0, pos);
+        pos = 0;
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.range;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import javax.annotation.Nullable;
+
+import net.minecraftforge.srg2source.util.Util;
+import net.minecraftforge.srg2source.util.io.IOExecutor;
+
+/**
+ * Range maps stored one file per entry, in a directory or a zip, instead of one big text file.
+ * <p>
+ * Every source file's range map is written to {@code <filename>.range} in the normal text format,
+ * and a {@value #MANIFEST} lists every filename and hash. Entries can be read and written in parallel,
+ * read individually, and a directory can be updated in place, only touching the entries that changed.
+ */
+public class SplitRangeMap {
+    public static final String MANIFEST = "manifest.range";
+    private static final String EXTENSION = ".range";
+
+    /**
+     * Split range maps are either directories or zip files, anything else is the single file format.
+     */
+    public static boolean isSplit(Path path) {
+        if (Files.isDirectory(path))
+            return true;
+        String name = path.getFileName().toString().toLowerCase(Locale.ENGLISH);
+        return name.endsWith(".zip") || name.endsWith(".jar");
+    }
+
+    /**
+     * @return Filename to hash for every entry in the range map, in sorted order.
+     */
+    public static Map<String, String> readManifest(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            Path manifest = path.resolve(MANIFEST);
+            if (!Files.exists(manifest))
+                return new TreeMap<>();
+            try (InputStream in = Files.newInputStream(manifest)) {
+                return readManifest(in);
+            }
+        }
+
+        try (ZipFile zip = new ZipFile(path.toFile())) {
+            ZipEntry entry = zip.getEntry(MANIFEST);
+            if (entry == null)
+                throw new IOException("Missing " + MANIFEST + " in " + path);
+            try (InputStream in = zip.getInputStream(entry)) {
+                return readManifest(in);
+            }
+        }
+    }
+
+    private static Map<String, String> readManifest(InputStream stream) throws IOException {
+        Map<String, String> ret = new TreeMap<>();
+        String[] lines = new String(Util.readStream(stream), StandardCharsets.UTF_8).split("\n");
+        for (int x = 0; x < lines.length; x++) {
+            String line = lines[x].trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            List<String> pts = Util.unquote(line, 2);
+            if (pts.size() != 2)
+                throw new IllegalArgumentException("Invalid RangeMap manifest line #" + x + ": " + lines[x]);
+            ret.put(pts.get(0), pts.get(1));
+        }
+        return ret;
+    }
+
+    /**
+     * Reads a single file's range map, returns null if the range map doesn't have an entry for it.
+     */
+    @Nullable
+    public static RangeMap read(Path path, String filename) throws IOException {
+        if (Files.isDirectory(path)) {
+            Path target = path.resolve(filename + EXTENSION);
+            if (!Files.exists(target))
+                return null;
+            try (InputStream in = Files.newInputStream(target)) {
+                return RangeMap.readAll(in).get(filename);
+            }
+        }
+
+        try (ZipFile zip = new ZipFile(path.toFile())) {
+            return read(zip, filename);
+        }
+    }
+
+    @Nullable
+    static RangeMap read(ZipFile zip, String filename) throws IOException {
+        ZipEntry entry = zip.getEntry(filename + EXTENSION);
+        if (entry == null)
+            return null;
+        try (InputStream in = zip.getInputStream(entry)) {
+            return RangeMap.readAll(in).get(filename);
+        }
+    }
+
+    /**
+     * Reads every entry listed in the manifest, at the same time.
+     */
+    public static Map<String, RangeMap> readAll(Path path) throws IOException {
+        Map<String, String> manifest = readManifest(path);
+        Map<String, RangeMap> ret = new ConcurrentHashMap<>();
+        if (Files.isDirectory(path)) {
+            IOExecutor.forEach(manifest.keySet(), name -> {
+                RangeMap range = read(path, name);
+                if (range == null)
+                    throw new IOException("Missing RangeMap entry for " + name + " in " + path);
+                ret.put(name, range);
+            });
+        } else {
+            try (ZipFile zip = new ZipFile(path.toFile())) {
+                IOExecutor.forEach(manifest.keySet(), name -> {
+                    RangeMap range = read(zip, name);
+                    if (range == null)
+                        throw new IOException("Missing RangeMap entry for " + name + " in " + path);
+                    ret.put(name, range);
+                });
+            }
+        }
+        return ret;
+    }
+
+    public static Writer writer(Path path, boolean pretty) throws IOException {
+        return Files.isDirectory(path) || !isSplit(path) ? new FolderWriter(path, pretty) : new ZipWriter(path, pretty);
+    }
+
+    private static byte[] toBytes(RangeMap range, boolean pretty) {
+        StringWriter buf = new StringWriter();
+        try (RangeMapWriter out = new RangeMapWriter(buf, pretty)) {
+            out.write(range);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringWriter never throws
+        }
+        return buf.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] toBytes(Map<String, String> manifest) {
+        StringBuilder buf = new StringBuilder();
+        manifest.forEach((name, hash) -> buf.append(Util.quote(name, hash)).append('\n'));
+        return buf.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes range maps as they are given to it. Rendering and writing happens in the background,
+     * any errors are thrown from {@link #close()}, which must be called to write the manifest.
+     */
+    public static abstract class Writer implements Closeable {
+        protected final boolean pretty;
+        protected final Map<String, String> manifest = new TreeMap<>();
+        private final List<CompletableFuture<Void>> pending = new ArrayList<>();
+        private int written = 0;
+
+        protected Writer(boolean pretty) {
+            this.pretty = pretty;
+        }
+
+        public void write(RangeMap range) {
+            manifest.put(range.getFilename(), range.getHash());
+            pending.add(CompletableFuture.runAsync(() -> {
+                try {
+                    write(range.getFilename(), toBytes(range, pretty));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, IOExecutor.get()));
+        }
+
+        protected abstract void write(String filename, byte[] data) throws IOException;
+
+        protected synchronized void markWritten() {
+            this.written++;
+        }
+
+        /**
+         * @return The number of entries that were actually written, unchanged entries in a directory are skipped.
+         */
+        public synchronized int getWritten() {
+            return this.written;
+        }
+
+        protected void finish() throws IOException {
+            try {
+                CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof UncheckedIOException)
+                    throw ((UncheckedIOException)cause).getCause();
+                throw new IOException("Failed to write RangeMap", cause);
+            }
+        }
+    }
+
+    /*
+     * Updates the directory in place, entries whose contents haven't changed are left alone,
+     * and entries for files that no longer exist are deleted.
+     */
+    private static class FolderWriter extends Writer {
+        private final Path root;
+        private final Map<String, String> existing;
+
+        private FolderWriter(Path root, boolean pretty) throws IOException {
+            super(pretty);
+            this.root = root;
+            if (!Files.exists(root))
+                Files.createDirectories(root);
+            this.existing = readManifest(root);
+        }
+
+        @Override
+        protected void write(String filename, byte[] data) throws IOException {
+            Path target = root.resolve(filename + EXTENSION);
+            if (Files.exists(target) && Files.size(target) == data.length && Arrays.equals(data, Files.readAllBytes(target)))
+                return;
+
+            Path parent = target.getParent();
+            if (!Files.exists(parent))
+                Files.createDirectories(parent);
+            Files.write(target, data);
+            markWritten();
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+
+            for (String name : existing.keySet()) {
+                if (!manifest.containsKey(name))
+                    Files.deleteIfExists(root.resolve(name + EXTENSION));
+            }
+
+            Files.write(root.resolve(MANIFEST), toBytes(manifest));
+        }
+    }
+
+    /*
+     * Zip entries have to be written one at a time, so we render in parallel and write in sorted order
+     * when closed, so the output is the same no matter which order the files were extracted in.
+     */
+    private static class ZipWriter extends Writer {
+        private final Path path;
+        private final Map<String, byte[]> data = new ConcurrentHashMap<>();
+
+        private ZipWriter(Path path, boolean pretty) throws IOException {
+            super(pretty);
+            this.path = path;
+            Path parent = path.toAbsolutePath().getParent();
+            if (!Files.exists(parent))
+                Files.createDirectories(parent);
+        }
+
+        @Override
+        protected void write(String filename, byte[] data) {
+            this.data.put(filename, data);
+            markWritten();
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+
+            try (OutputStream fos = Files.newOutputStream(path);
+                 ZipOutputStream zout = new ZipOutputStream(fos)) {
+                zout.putNextEntry(new ZipEntry(MANIFEST));
+                zout.write(toBytes(manifest));
+                zout.closeEntry();
+
+                for (String name : manifest.keySet()) {
+                    zout.putNextEntry(new ZipEntry(name + EXTENSION));
+                    zout.write(data.get(name));
+                    zout.closeEntry();
+                }
+            }
+        }
+    }
+}
@@ -20,8 +20,8 @@
 package net.minecraftforge.srg2source.range.entries;
 
 import java.util.List;
-import java.util.function.Consumer;
 
+import net.minecraftforge.srg2source.range.RangeMapWriter;
 import net.minecraftforge.srg2source.util.Util;
 
 public class ClassLiteral extends RangeEntry {
@@ -54,7 +54,7 @@ public class ClassLiteral extends RangeEntry {
     }
 
     @Override
-    protected void writeInternal(Consumer<String> out) {
-        out.accept(Util.quote(className));
+    protected void writeFields(RangeMapWriter out) {
+        out.field(className);
     }
 }
@@ -20,8 +20,8 @@
 package net.minecraftforge.srg2source.range.entries;
 
 import java.util.List;
-import java.util.function.Consumer;
 
+import net.minecraftforge.srg2source.range.RangeMapWriter;
 import net.minecraftforge.srg2source.util.Util;
 
 public class ClassReference extends RangeEntry {
@@ -60,7 +60,7 @@ public class ClassReference extends RangeEntry {
     }
 
     @Override
-    protected void writeInternal(Consumer<String> out) {
-        out.accept(Util.quote(Boolean.toString(qualified), className));
+    protected void writeFields(RangeMapWriter out) {
+        out.field(qualified).field(className);
     }
 }
@@ -0,0 +1,74 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.range.entries;
+
+import net.minecraftforge.srg2source.range.RangeMapWriter;
+
+/**
+ * A top level type a file declares, or one it's entries depended on. Only written for incremental extraction,
+ * so the next run can tell if a cached range map is still valid.
+ *
+ * @see net.minecraftforge.srg2source.extract.RangeExtractor#enableIncremental()
+ */
+public class DependencyMeta extends MetaEntry {
+    public static DependencyMeta declares(String type) {
+        return new DependencyMeta(MetaEntry.Type.DECLARES, type);
+    }
+
+    public static DependencyMeta depends(String type) {
+        return new DependencyMeta(MetaEntry.Type.DEPENDS, type);
+    }
+
+    static DependencyMeta readDeclares(String data) {
+        return declares(read(data));
+    }
+
+    static DependencyMeta readDepends(String data) {
+        return depends(read(data));
+    }
+
+    // Internal names never have spaces, so they are never quoted.
+    private static String read(String data) {
+        if (data.isEmpty() || data.indexOf(' ') != -1)
+            throw new IllegalArgumentException("Invalid Dependency Meta: " + data);
+        return data;
+    }
+
+    private final String typeName;
+
+    private DependencyMeta(MetaEntry.Type type, String typeName) {
+        super(type);
+        this.typeName = typeName;
+    }
+
+    public String getTypeName() {
+        return this.typeName;
+    }
+
+    @Override
+    protected void writeFields(RangeMapWriter out) {
+        out.field(this.typeName);
+    }
+
+    @Override
+    public String toString() {
+        return "DependencyMeta[" + getType().name() + ", " + this.typeName + ']';
+    }
+}
@@ -20,8 +20,8 @@
 package net.minecraftforge.srg2source.range.entries;
 
 import java.util.List;
-import java.util.function.Consumer;
 
+import net.minecraftforge.srg2source.range.RangeMapWriter;
 import net.minecraftforge.srg2source.util.Util;
 
 public class FieldLiteral extends RangeEntry {
@@ -59,7 +59,7 @@ public class FieldLiteral extends RangeEntry {
     }
 
     @Override
-    protected void writeInternal(Consumer<String> out) {
-        out.accept(Util.quote(owner, name));
+    protected void writeFields(RangeMapWriter out) {
+        out.field(owner).field(name);
     }
 }
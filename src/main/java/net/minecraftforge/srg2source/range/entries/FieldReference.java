@@ -19,7 +19,7 @@
 
 package net.minecraftforge.srg2source.range.entries;
 
-import java.util.function.Consumer;
+import net.minecraftforge.srg2source.range.RangeMapWriter;
 
 public class FieldReference extends RangeEntry {
     public static FieldReference create(int start, int length, String text, String owner) {
@@ -53,7 +53,8 @@ public class FieldReference extends RangeEntry {
     }
 
     @Override
-    protected void writeInternal(Consumer<String> out) {
-        out.accept(owner);
+    protected void writeFields(RangeMapWriter out) {
+        if (owner != null)
+            out.raw(' ').raw(owner);
     }
 }
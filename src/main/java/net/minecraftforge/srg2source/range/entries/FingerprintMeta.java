@@ -0,0 +1,61 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.range.entries;
+
+import net.minecraftforge.srg2source.range.RangeMapWriter;
+
+/**
+ * A hash of everything other then the sources that can change a range map, like the libraries and compiler options.
+ * Only written for incremental extraction, so the next run can tell if it can reuse anything at all.
+ *
+ * @see net.minecraftforge.srg2source.extract.RangeExtractor#enableIncremental()
+ */
+public class FingerprintMeta extends MetaEntry {
+    public static FingerprintMeta create(String hash) {
+        return new FingerprintMeta(hash);
+    }
+
+    static FingerprintMeta read(String data) {
+        if (data.isEmpty() || data.indexOf(' ') != -1)
+            throw new IllegalArgumentException("Invalid Fingerprint Meta: " + data);
+        return create(data);
+    }
+
+    private final String hash;
+
+    private FingerprintMeta(String hash) {
+        super(MetaEntry.Type.FINGERPRINT);
+        this.hash = hash;
+    }
+
+    public String getHash() {
+        return this.hash;
+    }
+
+    @Override
+    protected void writeFields(RangeMapWriter out) {
+        out.field(this.hash);
+    }
+
+    @Override
+    public String toString() {
+        return "FingerprintMeta[" + this.hash + ']';
+    }
+}
@@ -20,8 +20,8 @@
 package net.minecraftforge.srg2source.range.entries;
 
 import java.util.List;
-import java.util.function.Consumer;
 
+import net.minecraftforge.srg2source.range.RangeMapWriter;
 import net.minecraftforge.srg2source.util.Util;
 
 public class LocalVariableReference extends RangeEntry {
@@ -78,11 +78,11 @@ public class LocalVariableReference extends RangeEntry {
     }
 
     @Override
-    protected void writeInternal(Consumer<String> out) {
+    protected void writeFields(RangeMapWriter out) {
         try {
-            out.accept(Util.quote(owner, name, desc, Integer.toString(index), varType));
+            out.field(owner).field(name).field(desc).field(index).field(varType);
         } catch (Exception e) {
-            System.currentTimeMillis();
+            out.discard();
         }
     }
 }
@@ -20,17 +20,23 @@
 package net.minecraftforge.srg2source.range.entries;
 
 import java.util.Locale;
-import java.util.function.Consumer;
 import java.util.function.Function;
 
+import net.minecraftforge.srg2source.range.RangeMapWriter;
+
 public abstract class MetaEntry {
     public enum Type {
         MIXIN_ACCESSOR(MixinAccessorMeta::read),
+        DECLARES(DependencyMeta::readDeclares),
+        DEPENDS(DependencyMeta::readDepends),
+        FINGERPRINT(FingerprintMeta::read),
         ;
 
         private Function<String, MetaEntry> read;
+        private final char[] token;
         private Type(Function<String, MetaEntry> read) {
             this.read = read;
+            this.token = name().toLowerCase(Locale.ENGLISH).toCharArray();
         }
 
         private MetaEntry read(String data) {
@@ -61,9 +67,13 @@ public abstract class MetaEntry {
         return this.type;
     }
 
-    public final void write(Consumer<String> out) {
-        this.writeInternal(l -> out.accept("meta " + this.type.name().toLowerCase(Locale.ENGLISH) + (l == null || l.isEmpty() ? "" : ' ' + l)));
+    private static final char[] META = "meta".toCharArray();
+
+    public final void write(RangeMapWriter out) {
+        out.start(META).field(this.type.token);
+        this.writeFields(out);
+        out.end();
     }
 
-    protected abstract void writeInternal(Consumer<String> out);
+    protected abstract void writeFields(RangeMapWriter out);
 }
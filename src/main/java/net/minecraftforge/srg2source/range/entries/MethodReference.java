@@ -20,8 +20,8 @@
 package net.minecraftforge.srg2source.range.entries;
 
 import java.util.List;
-import java.util.function.Consumer;
 
+import net.minecraftforge.srg2source.range.RangeMapWriter;
 import net.minecraftforge.srg2source.util.Util;
 
 public class MethodReference extends RangeEntry {
@@ -66,7 +66,7 @@ public class MethodReference extends RangeEntry {
     }
 
     @Override
-    protected void writeInternal(Consumer<String> out) {
-        out.accept(Util.quote(owner, name, desc));
+    protected void writeFields(RangeMapWriter out) {
+        out.field(owner).field(name).field(desc);
     }
 }
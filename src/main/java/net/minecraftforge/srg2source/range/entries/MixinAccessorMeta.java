@@ -20,8 +20,8 @@
 package net.minecraftforge.srg2source.range.entries;
 
 import java.util.List;
-import java.util.function.Consumer;
 
+import net.minecraftforge.srg2source.range.RangeMapWriter;
 import net.minecraftforge.srg2source.util.MemberInfo;
 import net.minecraftforge.srg2source.util.Util;
 
@@ -61,12 +61,10 @@ public class MixinAccessorMeta extends MetaEntry {
     }
 
     @Override
-    protected void writeInternal(Consumer<String> out) {
-        out.accept(Util.quote(
-            this.owner.getOwner(), this.owner.getName(), this.owner.getDesc(),
-            this.target.getOwner(), this.target.getName(), this.target.getDesc(),
-            this.prefix
-        ));
+    protected void writeFields(RangeMapWriter out) {
+        out.field(this.owner.getOwner()).field(this.owner.getName()).field(this.owner.getDesc())
+           .field(this.target.getOwner()).field(this.target.getName()).field(this.target.getDesc())
+           .field(this.prefix);
     }
 
     @Override
@@ -19,7 +19,7 @@
 
 package net.minecraftforge.srg2source.range.entries;
 
-import java.util.function.Consumer;
+import net.minecraftforge.srg2source.range.RangeMapWriter;
 
 public class PackageReference extends RangeEntry {
     public static PackageReference create(int start, int length, String name) {
@@ -35,7 +35,6 @@ public class PackageReference extends RangeEntry {
     }
 
     @Override
-    protected void writeInternal(Consumer<String> out) {
-        out.accept(null);
+    protected void writeFields(RangeMapWriter out) {
     }
 }
@@ -20,8 +20,8 @@
 package net.minecraftforge.srg2source.range.entries;
 
 import java.util.List;
-import java.util.function.Consumer;
 
+import net.minecraftforge.srg2source.range.RangeMapWriter;
 import net.minecraftforge.srg2source.util.Util;
 
 public class ParameterReference extends RangeEntry {
@@ -74,11 +74,11 @@ public class ParameterReference extends RangeEntry {
     }
 
     @Override
-    protected void writeInternal(Consumer<String> out) {
+    protected void writeFields(RangeMapWriter out) {
         try {
-        out.accept(Util.quote(owner, name, desc, Integer.toString(index)));
+            out.field(owner).field(name).field(desc).field(index);
         } catch (Exception e) {
-            System.currentTimeMillis();
+            out.discard();
         }
     }
 }
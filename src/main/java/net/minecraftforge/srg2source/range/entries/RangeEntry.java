@@ -21,9 +21,9 @@ package net.minecraftforge.srg2source.range.entries;
 
 import java.util.List;
 import java.util.Locale;
-import java.util.function.Consumer;
 
 import net.minecraftforge.srg2source.range.IRange;
+import net.minecraftforge.srg2source.range.RangeMapWriter;
 import net.minecraftforge.srg2source.util.Util;
 
 public abstract class RangeEntry implements IRange {
@@ -40,8 +40,10 @@ public abstract class RangeEntry implements IRange {
         ;
 
         private Factory<?> factory;
+        private final char[] token;
         private Type(Factory<?> factory) {
             this.factory = factory;
+            this.token = name().toLowerCase(Locale.ENGLISH).toCharArray();
         }
         private RangeEntry read(int spec, String data) {
             List<String> pts = Util.unquote(data, 3);
@@ -108,12 +110,16 @@ public abstract class RangeEntry implements IRange {
         return null;
     }
 
-    public final void write(Consumer<String> out) {
-        this.writeInternal(l -> out.accept(this.type.name().toLowerCase(Locale.ENGLISH) + ' ' +
-                getStart() + ' ' + getLength() + ' ' + Util.quote(getText()) + (l == null ? "" : ' ' + l)));
+    public final void write(RangeMapWriter out) {
+        out.start(this.type.token).field(getStart()).field(getLength()).field(getText());
+        this.writeFields(out);
+        out.end();
     }
 
-    protected abstract void writeInternal(Consumer<String> out);
+    /**
+     * Writes any type specific fields, after the common type, start, length, and text.
+     */
+    protected abstract void writeFields(RangeMapWriter out);
 
     @FunctionalInterface
     interface Factory<T extends RangeEntry> {
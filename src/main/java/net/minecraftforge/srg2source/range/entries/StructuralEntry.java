@@ -21,9 +21,9 @@ package net.minecraftforge.srg2source.range.entries;
 
 import java.util.Locale;
 import java.util.function.BiFunction;
-import java.util.function.Consumer;
 
 import net.minecraftforge.srg2source.range.IRange;
+import net.minecraftforge.srg2source.range.RangeMapWriter;
 
 public class StructuralEntry implements IRange {
     public enum Type {
@@ -32,7 +32,7 @@ public class StructuralEntry implements IRange {
             String[] pts = data.split(" ");
             if (pts.length != 4)
                 throw new IllegalArgumentException("Missing required parts. Parts Length: " + pts.length);
-            return new StructuralEntry(me, Integer.parseInt(pts[0]), Integer.parseInt(pts[1]), pts[2], pts[2]);
+            return new StructuralEntry(me, Integer.parseInt(pts[0]), Integer.parseInt(pts[1]), pts[2], pts[3]);
         }),
         ENUM,
         ANNOTATION,
@@ -40,8 +40,10 @@ public class StructuralEntry implements IRange {
         RECORD;
 
         private BiFunction<Type, String, StructuralEntry> read;
+        private final char[] token;
         private Type(BiFunction<Type, String, StructuralEntry> read) {
             this.read = read;
+            this.token = (name().toLowerCase(Locale.ENGLISH) + "def").toCharArray();
         }
         private Type() {
             this((me, data) -> {
@@ -134,11 +136,10 @@ public class StructuralEntry implements IRange {
         return this.desc;
     }
 
-    public void write(Consumer<String> out) {
-        String line = this.type.name().toLowerCase(Locale.ENGLISH) + "def "
-                + start + ' ' + length + ' ' + name;
+    public void write(RangeMapWriter out) {
+        out.start(this.type.token).field(start).field(length).raw(' ').raw(String.valueOf(name));
         if (this.type == Type.METHOD)
-            line += ' ' + desc;
-        out.accept(line);
+            out.raw(' ').raw(String.valueOf(desc));
+        out.end();
     }
 }
\ No newline at end of file
@@ -19,11 +19,14 @@
 
 package net.minecraftforge.srg2source.util;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
@@ -66,15 +69,42 @@ public class Util {
     }
 
     public static byte[] readStream(InputStream input) throws IOException {
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        transferTo(input, output);
-        return output.toByteArray();
+        return input.readAllBytes();
+    }
+
+    /*
+     * Decodes the data straight into a char[], for ASCII heavy source the decoder's initial estimate is exact so no resizing happens.
+     * Malformed input is replaced, the same as InputStreamReader does.
+     */
+    public static char[] decode(byte[] data, Charset encoding) {
+        CharBuffer buf = encoding.decode(ByteBuffer.wrap(data));
+        if (buf.hasArray() && buf.arrayOffset() == 0 && buf.position() == 0 && buf.limit() == buf.array().length)
+            return buf.array();
+        char[] ret = new char[buf.remaining()];
+        buf.get(ret);
+        return ret;
     }
 
     public static String md5(String data, Charset encoding) {
+        return md5(data.getBytes(encoding));
+    }
+
+    public static String md5(byte[] data) {
         try {
             MessageDigest md = MessageDigest.getInstance("MD5");
-            md.update(data.getBytes(encoding));
+            return hex(md.digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static String md5(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            byte[] buf = new byte[8192];
+            int len;
+            while ((len = in.read(buf)) != -1)
+                md.update(buf, 0, len);
             return hex(md.digest());
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException(e);
@@ -0,0 +1,202 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.util.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import net.minecraftforge.srg2source.api.OutputSupplier;
+
+/**
+ * Buffers each output in memory and hands it off to a background thread which writes it to the wrapped supplier,
+ * so the caller can carry on processing while the previous files are written.
+ * <p>
+ * At most {@code queueSize} finished outputs are held in memory, once that is full closing an output
+ * blocks until the writer catches up. Any error the writer hits is thrown from the next output's close,
+ * or from {@link #close()}, which also waits for everything queued to be written and closes the wrapped supplier.
+ */
+public class AsyncOutputSupplier implements OutputSupplier {
+    public static final int DEFAULT_QUEUE_SIZE = 64;
+    private static final Entry EOF = new Entry(null, null, 0);
+    private static final long POLL = 100; // Milliseconds to wait for room in the queue before checking the writer is still alive
+
+    private final OutputSupplier delegate;
+    private final BlockingQueue<Entry> queue;
+    private final Thread writer;
+    private volatile IOException error = null;
+    private volatile boolean stopped = false; // Set once the writer thread has exited, for any reason.
+    private boolean closed = false;
+
+    public AsyncOutputSupplier(OutputSupplier delegate) {
+        this(delegate, DEFAULT_QUEUE_SIZE);
+    }
+
+    public AsyncOutputSupplier(OutputSupplier delegate, int queueSize) {
+        if (queueSize < 1)
+            throw new IllegalArgumentException("Queue size must be at least 1: " + queueSize);
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.writer = new Thread(this::drain, "Srg2Source Output Writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public OutputSupplier getDelegate() {
+        return this.delegate;
+    }
+
+    @Override
+    public OutputStream getOutput(String relPath) {
+        if (closed)
+            throw new IllegalStateException("Can not get output after supplier is closed: " + relPath);
+        return new BufferedEntry(relPath);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+
+        try {
+            offer(EOF);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for outputs to be written");
+        }
+
+        try {
+            delegate.close();
+        } catch (IOException e) {
+            if (error == null)
+                throw e;
+            error.addSuppressed(e);
+        }
+
+        if (error != null)
+            throw error;
+    }
+
+    private void enqueue(Entry entry) throws IOException {
+        checkError();
+        try {
+            offer(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted queuing output: " + entry.path);
+        }
+        // The writer could have stopped after we made it in, anything left in the queue is never written.
+        if (stopped) {
+            checkError();
+            throw new IOException("Background output writer stopped before writing: " + entry.path);
+        }
+    }
+
+    /*
+     * If the writer dies nothing will ever take from the queue again, so never wait on it forever.
+     * Anything that doesn't fit once it's stopped is dropped, the error is thrown from close.
+     */
+    private void offer(Entry entry) throws InterruptedException {
+        while (!queue.offer(entry, POLL, TimeUnit.MILLISECONDS)) {
+            if (stopped)
+                return;
+        }
+    }
+
+    private void checkError() throws IOException {
+        IOException e = error;
+        if (e != null)
+            throw new IOException("Background output writer failed", e);
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                Entry entry;
+                try {
+                    entry = queue.take();
+                } catch (InterruptedException e) {
+                    error = new InterruptedIOException("Output writer interrupted");
+                    return;
+                }
+
+                if (entry == EOF)
+                    return;
+
+                // Once something has failed keep draining, so anyone blocked on a full queue is released, but write nothing else.
+                if (error != null)
+                    continue;
+
+                try (OutputStream out = delegate.getOutput(entry.path)) {
+                    if (out == null)
+                        throw new IOException("Could not get output stream for: " + entry.path);
+                    out.write(entry.data, 0, entry.length);
+                } catch (IOException e) {
+                    error = e;
+                } catch (RuntimeException e) {
+                    error = new IOException("Failed to write: " + entry.path, e);
+                }
+            }
+        } catch (Error e) {
+            if (error == null)
+                error = new IOException("Output writer died", e);
+        } finally {
+            stopped = true;
+            queue.clear(); // Frees up anyone waiting for room, see offer.
+        }
+    }
+
+    private static class Entry {
+        private final String path;
+        private final byte[] data;
+        private final int length;
+
+        private Entry(String path, byte[] data, int length) {
+            this.path = path;
+            this.data = data;
+            this.length = length;
+        }
+    }
+
+    private class BufferedEntry extends ByteArrayOutputStream {
+        private final String path;
+        private boolean done = false;
+
+        private BufferedEntry(String path) {
+            super(8192);
+            this.path = path;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (done)
+                return;
+            done = true;
+            // We give up ownership of the buffer here, so no need to copy it.
+            enqueue(new Entry(path, buf, count));
+        }
+    }
+}
@@ -21,17 +21,25 @@ package net.minecraftforge.srg2source.util.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
 
 import net.minecraftforge.srg2source.api.InputSupplier;
 
 public class ChainedInputSupplier implements InputSupplier {
     private List<InputSupplier> children;
+    @Nullable
+    private volatile Map<String, InputSupplier> index = null; // Resource -> first child that lists it, built on first lookup.
 
     public ChainedInputSupplier(InputSupplier... children) {
         this.children = Arrays.asList(children);
@@ -49,21 +57,101 @@ public class ChainedInputSupplier implements InputSupplier {
 
     @Override
     public String getRoot(String resource) {
+        InputSupplier owner = getOwner(resource);
+        if (owner != null)
+            return owner.getRoot(resource);
         return children.stream().map(c -> c.getRoot(resource)).filter(r -> r != null).findFirst().orElse(null);
     }
 
     @Override
     public InputStream getInput(String resource) {
+        InputSupplier owner = getOwner(resource);
+        if (owner != null)
+            return owner.getInput(resource);
         return children.stream().map(c -> c.getInput(resource)).filter(r -> r != null).findFirst().orElse(null);
     }
 
+    @Override
+    public byte[] getBytes(String resource) throws IOException {
+        InputSupplier owner = getOwner(resource);
+        if (owner != null)
+            return owner.getBytes(resource);
+        for (InputSupplier child : children) {
+            byte[] ret = child.getBytes(resource);
+            if (ret != null)
+                return ret;
+        }
+        return null;
+    }
+
+    @Override
+    public long size(String resource) {
+        InputSupplier owner = getOwner(resource);
+        if (owner != null)
+            return owner.size(resource);
+        return children.stream().mapToLong(c -> c.size(resource)).filter(r -> r != -1).findFirst().orElse(-1);
+    }
+
     @Override
     public List<String> gatherAll(String endFilter) {
-        return children.stream().flatMap(c -> c.gatherAll(endFilter).stream()).distinct().collect(Collectors.toList());
+        // Children cache their own listings, so this is cheap after the first call. Keep child order, first one wins.
+        List<List<String>> lists = gatherChildren(endFilter);
+        Set<String> ret = new LinkedHashSet<>();
+        lists.forEach(ret::addAll);
+        return new ArrayList<>(ret);
+    }
+
+    // Every child lists it's own files at the same time, in the same order as the children.
+    private List<List<String>> gatherChildren(String endFilter) {
+        try {
+            return IOExecutor.map(children, c -> c.gatherAll(endFilter));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // gatherAll can't throw, this is only here for the signature.
+        }
     }
 
     @Override
     public Charset getEncoding(String resource) {
+        InputSupplier owner = getOwner(resource);
+        if (owner != null)
+            return owner.getEncoding(resource);
         return children.stream().map(c -> c.getEncoding(resource)).filter(r -> r != null).findFirst().orElse(null);
     }
+
+    /**
+     * Drops the resource index, so the next lookup rebuilds it from the children's listings.
+     * Children which cache their own listings, such as {@link FolderSupplier}, need to be invalidated separately.
+     */
+    public void invalidate() {
+        this.index = null;
+    }
+
+    /*
+     * Resources that aren't listed by any child, such as things created after the index was built,
+     * return null here and fall back to asking every child in order.
+     */
+    @Nullable
+    private InputSupplier getOwner(String resource) {
+        return getIndex().get(resource);
+    }
+
+    private Map<String, InputSupplier> getIndex() {
+        Map<String, InputSupplier> ret = this.index;
+        if (ret == null) {
+            synchronized (this) {
+                ret = this.index;
+                if (ret == null) {
+                    List<List<String>> lists = gatherChildren("");
+                    ret = new HashMap<>(lists.stream().mapToInt(List::size).sum() * 4 / 3 + 1);
+                    for (int x = 0; x < children.size(); x++) {
+                        InputSupplier child = children.get(x);
+                        for (String path : lists.get(x))
+                            ret.putIfAbsent(path, child);
+                    }
+                    this.index = ret;
+                }
+            }
+        }
+        return ret;
+    }
 }
@@ -19,15 +19,26 @@
 
 package net.minecraftforge.srg2source.util.io;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
@@ -46,6 +57,15 @@ public class FolderSupplier implements InputSupplier, OutputSupplier {
     private final String sroot;
     @Nullable
     private final Charset encoding;
+    @Nullable
+    private volatile List<String> files = null; // Sorted listing of every file under root, scanned once on first use.
+    private boolean skipUnchanged = false;
+    @Nullable
+    private String staleFilter = null;
+    private final Set<String> outputs = ConcurrentHashMap.newKeySet(); // Everything written, or skipped because it was unchanged
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private int deleted = 0;
 
     protected FolderSupplier(Path root, @Nullable Charset encoding) {
         this.root = root;
@@ -53,22 +73,132 @@ public class FolderSupplier implements InputSupplier, OutputSupplier {
         this.encoding = encoding;
     }
 
+    /**
+     * Only writes outputs whose contents are different to what is already on disk. Unchanged files keep their modified
+     * times, so anything downstream, like an incremental compile, has nothing to redo for them.
+     */
+    public void setSkipUnchanged(boolean value) {
+        this.skipUnchanged = value;
+    }
+
+    /**
+     * When closed, deletes every file ending with the filter that wasn't output since this supplier was created.
+     * So files whose sources have been removed don't linger. Null to leave everything alone.
+     */
+    public void setDeleteStale(@Nullable String endFilter) {
+        this.staleFilter = endFilter;
+    }
+
+    /**
+     * @return The number of outputs actually written to disk.
+     */
+    public int getWritten() {
+        return this.written.get();
+    }
+
+    /**
+     * @return The number of outputs that weren't written because they were the same as the existing file.
+     */
+    public int getSkipped() {
+        return this.skipped.get();
+    }
+
+    /**
+     * @return The number of stale files deleted when closed.
+     */
+    public int getDeleted() {
+        return this.deleted;
+    }
+
     @Override
     @Nullable
     public OutputStream getOutput(String relPath) {
+        outputs.add(relPath);
+        if (skipUnchanged) {
+            return new ByteArrayOutputStream(8192) {
+                private boolean done = false;
+
+                @Override
+                public void close() throws IOException {
+                    if (done)
+                        return;
+                    done = true;
+                    writeIfChanged(relPath, buf, count);
+                }
+            };
+        }
+
         try {
-            Path target = root.resolve(relPath);
-            if (!Files.exists(target)) {
-                Path parent = target.getParent();
-                if (!Files.exists(parent))
-                    Files.createDirectories(parent);
-            }
-            return Files.newOutputStream(target);
+            // Only counted once it's closed without anything going wrong.
+            return new FilterOutputStream(getOutputStream(root.resolve(relPath))) {
+                private boolean failed = false;
+                private boolean done = false;
+
+                @Override
+                public void write(int b) throws IOException {
+                    try {
+                        out.write(b);
+                    } catch (IOException e) {
+                        failed = true;
+                        throw e;
+                    }
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    try {
+                        out.write(b, off, len);
+                    } catch (IOException e) {
+                        failed = true;
+                        throw e;
+                    }
+                }
+
+                @Override
+                public void close() throws IOException {
+                    if (done)
+                        return;
+                    done = true;
+                    super.close();
+                    if (!failed)
+                        written.incrementAndGet();
+                }
+            };
         } catch (IOException e) {
             return null;
         }
     }
 
+    /*
+     * Sizes are compared first, as that's free, and almost every changed file will have a different size.
+     * Only files with the same size are read back and compared byte for byte.
+     */
+    private void writeIfChanged(String relPath, byte[] data, int length) throws IOException {
+        Path target = root.resolve(relPath);
+        if (Files.exists(target) && Files.size(target) == length) {
+            byte[] existing = Files.readAllBytes(target);
+            if (Arrays.equals(existing, 0, existing.length, data, 0, length)) {
+                skipped.incrementAndGet();
+                return;
+            }
+        }
+
+        try (OutputStream out = getOutputStream(target)) {
+            out.write(data, 0, length);
+        }
+        written.incrementAndGet();
+    }
+
+    private OutputStream getOutputStream(Path target) throws IOException {
+        if (!Files.exists(target)) {
+            Path parent = target.getParent();
+            if (!Files.exists(parent))
+                Files.createDirectories(parent);
+            invalidate(); // We're about to create a new file, so the listing is stale.
+        }
+        return Files.newOutputStream(target);
+    }
+
     @Override
     @Nullable
     public InputStream getInput(String relPath) {
@@ -83,21 +213,124 @@ public class FolderSupplier implements InputSupplier, OutputSupplier {
     }
 
     @Override
-    public List<String> gatherAll(String endFilter) {
+    @Nullable
+    public byte[] getBytes(String relPath) throws IOException {
+        Path target = root.resolve(relPath);
+        if (!Files.exists(target))
+            return null;
+        return Files.readAllBytes(target); // Sizes the array from the channel up front, so there is no growing buffer to copy.
+    }
+
+    @Override
+    public long size(String relPath) {
         try {
-            return Files.walk(root).filter(Files::isRegularFile)
-                    .map(root::relativize).map(Path::toString)
-                    .filter(p -> p.endsWith(endFilter))
-                    .sorted().collect(Collectors.toList());
+            Path target = root.resolve(relPath);
+            return Files.exists(target) ? Files.size(target) : -1;
         } catch (IOException e) {
-            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    @Override
+    public List<String> gatherAll(String endFilter) {
+        try {
+            List<String> files = getFiles();
+            if (endFilter.isEmpty())
+                return files;
+            return files.stream().filter(p -> p.endsWith(endFilter)).collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            e.getCause().printStackTrace();
             return Collections.emptyList();
         }
     }
 
+    /**
+     * Drops the cached file listing, so the next {@link #gatherAll(String)} rescans the directory.
+     * Only needed if files are added or removed by something other than this supplier.
+     */
+    public void invalidate() {
+        this.files = null;
+    }
+
+    private List<String> getFiles() {
+        List<String> ret = this.files;
+        if (ret == null) {
+            synchronized (this) {
+                ret = this.files;
+                if (ret == null) {
+                    List<String> scanned;
+                    try {
+                        scanned = scan(root);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    Collections.sort(scanned);
+                    this.files = ret = Collections.unmodifiableList(scanned);
+                }
+            }
+        }
+        return ret;
+    }
+
+    /*
+     * Lists every directory at the same depth at once, then every directory under those, so large trees are listed in
+     * parallel without any listing waiting on another. Mirrors Files.walk's defaults: symlinked directories are not
+     * descended, but symlinked files are included.
+     */
+    private static List<String> scan(Path root) throws IOException {
+        List<String> ret = new ArrayList<>();
+        List<Listing> level = Collections.singletonList(new Listing(root, ""));
+        while (!level.isEmpty()) {
+            List<Listing> next = new ArrayList<>();
+            for (Listing listing : IOExecutor.map(level, Listing::list)) {
+                ret.addAll(listing.files);
+                next.addAll(listing.children);
+            }
+            level = next;
+        }
+        return ret;
+    }
+
+    private static class Listing {
+        private final Path dir;
+        private final String prefix;
+        private final List<String> files = new ArrayList<>();
+        private final List<Listing> children = new ArrayList<>();
+
+        private Listing(Path dir, String prefix) {
+            this.dir = dir;
+            this.prefix = prefix;
+        }
+
+        private Listing list() throws IOException {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path child : stream) {
+                    String name = prefix + child.getFileName().toString();
+                    BasicFileAttributes attrs = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attrs.isDirectory())
+                        children.add(new Listing(child, name + '/'));
+                    else if (attrs.isRegularFile() || Files.isRegularFile(child))
+                        files.add(name);
+                }
+            }
+            return this;
+        }
+    }
+
     @Override
     public void close() throws IOException {
-        // they are files.. what do you want me to do?
+        if (staleFilter == null)
+            return;
+
+        invalidate(); // Outputs could have been created by something else since we last looked.
+        List<String> stale = gatherAll(staleFilter).stream().filter(f -> !outputs.contains(f)).collect(Collectors.toList());
+        AtomicInteger count = new AtomicInteger();
+        IOExecutor.forEach(stale, file -> {
+            if (Files.deleteIfExists(root.resolve(file)))
+                count.incrementAndGet();
+        });
+        deleted += count.get();
+        invalidate();
     }
 
     @Override
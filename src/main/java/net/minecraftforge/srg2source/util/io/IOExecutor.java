@@ -0,0 +1,136 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.util.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs blocking per-file I/O, reading, writing, hashing, listing directories, off of the calling thread.
+ *
+ * The jar is multi-release, on Java 21 and newer every task gets it's own virtual thread, so there can be thousands of
+ * reads and writes waiting at once without a platform thread for each. On older versions it falls back to a bounded
+ * pool, see {@link IOThreads}. Either way the logic here is the same, only where the threads come from changes.
+ */
+public class IOExecutor {
+    private static final ExecutorService EXECUTOR = IOThreads.create();
+    /**
+     * How many tasks a single call to map or forEach has running at once. Virtual threads are cheap, but each one can
+     * hold an open file and a buffer, so a big project shouldn't have every file open at the same time.
+     */
+    public static final int MAX_IN_FLIGHT = 256;
+
+    private IOExecutor() {}
+
+    /**
+     * For anything that needs to manage it's own tasks, such as {@link CompletableFuture#runAsync(Runnable, Executor)}.
+     * Tasks run on it must not wait on other tasks run on it, use {@link #forEach(Collection, IOConsumer)} for that.
+     */
+    public static Executor get() {
+        return EXECUTOR;
+    }
+
+    /**
+     * Runs the action for every value at the same time, and waits for all of them to finish.
+     * If any of them fail, the ones that haven't started yet are skipped, and the first failure is thrown once the ones
+     * already running are done, so nothing is still running when this returns.
+     */
+    public static <T> void forEach(Collection<T> values, IOConsumer<T> action) throws IOException {
+        map(values, value -> {
+            action.accept(value);
+            return null;
+        });
+    }
+
+    /**
+     * Runs the function for every value at the same time, and waits for all of them to finish.
+     * At most {@link #MAX_IN_FLIGHT} run at once, the rest wait for one of those to finish before they start.
+     * @return The results, in the same order as the values.
+     */
+    public static <T, R> List<R> map(Collection<T> values, IOFunction<T, R> function) throws IOException {
+        List<R> ret = new ArrayList<>(values.size());
+        if (values.size() <= 1 || IOThreads.mustRunInline()) {
+            for (T value : values)
+                ret.add(function.apply(value));
+            return ret;
+        }
+
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        AtomicBoolean failed = new AtomicBoolean(false);
+        List<CompletableFuture<R>> futures = new ArrayList<>(values.size());
+        for (T value : values) {
+            inFlight.acquireUninterruptibly();
+            // No point starting the rest if we're going to throw anyways.
+            if (failed.get()) {
+                inFlight.release();
+                break;
+            }
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return function.apply(value);
+                } catch (IOException e) {
+                    failed.set(true);
+                    throw new UncheckedIOException(e);
+                } catch (RuntimeException | Error e) {
+                    failed.set(true);
+                    throw e;
+                } finally {
+                    inFlight.release();
+                }
+            }, EXECUTOR));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException)
+                throw ((UncheckedIOException)cause).getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            if (cause instanceof Error)
+                throw (Error)cause;
+            throw new IOException(cause);
+        }
+
+        for (CompletableFuture<R> future : futures)
+            ret.add(future.join());
+        return ret;
+    }
+
+    @FunctionalInterface
+    public interface IOConsumer<T> {
+        void accept(T value) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface IOFunction<T, R> {
+        R apply(T value) throws IOException;
+    }
+}
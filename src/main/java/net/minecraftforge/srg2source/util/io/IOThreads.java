@@ -0,0 +1,64 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.util.io;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The threads {@link IOExecutor} runs it's tasks on. This is the Java 11 version, a bounded pool of platform threads.
+ * Java 21 and newer load the version in META-INF/versions/21 instead, which starts a virtual thread for every task.
+ * Both need to have exactly the same members, all of the logic belongs in {@link IOExecutor}.
+ */
+class IOThreads {
+    /*
+     * Tasks mostly wait on the disk, so there are more threads then cores. But not so many that a big project
+     * has thousands of stacks sitting around, idle threads die off after a few seconds.
+     */
+    private static final int MAX_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final AtomicInteger COUNT = new AtomicInteger();
+
+    static ExecutorService create() {
+        ThreadPoolExecutor ret = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Worker(task, "Srg2Source-IO-" + COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ret.allowCoreThreadTimeOut(true);
+        return ret;
+    }
+
+    /**
+     * A task that waits on other tasks from a bounded pool can end up waiting for a thread that will never be free.
+     * So anything submitted from one of the pool's own threads has to be run on that thread instead.
+     */
+    static boolean mustRunInline() {
+        return Thread.currentThread() instanceof Worker;
+    }
+
+    private static class Worker extends Thread {
+        private Worker(Runnable task, String name) {
+            super(task, name);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.util.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+import net.minecraftforge.srg2source.api.OutputSupplier;
+import net.minecraftforge.srg2source.util.io.ZipFileInputSupplier.RawEntry;
+
+/**
+ * Writes a zip with every entry deflated in the background, so a big jar is limited by the number of cores instead of
+ * a single {@link java.util.zip.ZipOutputStream}. Entries from another zip can be copied without being inflated at all.
+ * Outputs can be opened from any number of threads at once.
+ *
+ * Nothing is written until {@link #close()}, then every entry is written in sorted order with the same timestamp, so
+ * the same contents always give the same zip, no matter what order they were written in.
+ */
+public class ParallelZipOutputSupplier implements OutputSupplier {
+    private static final int LOC = 0x04034b50;
+    private static final int CEN = 0x02014b50;
+    private static final int EOCD = 0x06054b50;
+    private static final int VERSION = 20;
+    private static final int UTF8 = 0x0800; // General purpose flag saying names are UTF-8
+    private static final int DOS_DATE = (1 << 5) | 1; // 1980-01-01, the earliest a zip can store, at midnight
+
+    private final Path path;
+    private final Map<String, CompletableFuture<RawEntry>> entries = new ConcurrentHashMap<>();
+    private volatile boolean closed = false;
+
+    public ParallelZipOutputSupplier(Path path) throws IOException {
+        this.path = path;
+        Path parent = path.toAbsolutePath().getParent();
+        if (!Files.exists(parent))
+            Files.createDirectories(parent);
+    }
+
+    @Override
+    public OutputStream getOutput(String relPath) {
+        if (closed)
+            throw new IllegalStateException("Can not get output after supplier is closed: " + relPath);
+
+        return new ByteArrayOutputStream(8192) {
+            private boolean done = false;
+
+            @Override
+            public void close() {
+                if (done)
+                    return;
+                done = true;
+                // We give up ownership of the buffer here, so no need to copy it.
+                byte[] data = buf;
+                int length = count;
+                entries.put(relPath, CompletableFuture.supplyAsync(() -> deflate(relPath, data, length)));
+            }
+        };
+    }
+
+    /**
+     * Adds an entry that is already compressed, as is.
+     */
+    public void copyRaw(RawEntry value) {
+        if (closed)
+            throw new IllegalStateException("Can not copy after supplier is closed: " + value.getName());
+        entries.put(value.getName(), CompletableFuture.completedFuture(value));
+    }
+
+    private static RawEntry deflate(String name, byte[] data, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length / 4 + 64);
+            byte[] buf = new byte[8192];
+            while (!deflater.finished())
+                out.write(buf, 0, deflater.deflate(buf));
+
+            // Tiny files can come out bigger, in which case there's no point compressing them.
+            if (out.size() >= length) {
+                byte[] stored = new byte[length];
+                System.arraycopy(data, 0, stored, 0, length);
+                return new RawEntry(name, ZipEntry.STORED, (int)crc.getValue(), length, stored);
+            }
+            return new RawEntry(name, ZipEntry.DEFLATED, (int)crc.getValue(), length, out.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+
+        Map<String, RawEntry> sorted = new TreeMap<>();
+        try {
+            entries.forEach((name, future) -> sorted.put(name, future.join()));
+        } catch (CompletionException e) {
+            throw new IOException("Failed to compress zip entry", e.getCause());
+        }
+
+        if (sorted.size() > 0xFFFF)
+            throw new IOException("Too many entries, zip64 is not supported: " + sorted.size());
+
+        List<Long> offsets = new ArrayList<>(sorted.size());
+        try (Counting out = new Counting(new BufferedOutputStream(Files.newOutputStream(path), 0x10000))) {
+            for (RawEntry entry : sorted.values()) {
+                offsets.add(out.count);
+                byte[] name = entry.getName().getBytes(StandardCharsets.UTF_8);
+                out.int32(LOC);
+                out.int16(VERSION);
+                writeCommon(out, entry, name);
+                out.int16(0); // Extra length
+                out.write(name);
+                out.write(entry.getData());
+            }
+
+            long start = out.count;
+            int x = 0;
+            for (RawEntry entry : sorted.values()) {
+                byte[] name = entry.getName().getBytes(StandardCharsets.UTF_8);
+                out.int32(CEN);
+                out.int16(VERSION); // Made by
+                out.int16(VERSION); // Needed to extract
+                writeCommon(out, entry, name);
+                out.int16(0); // Extra length
+                out.int16(0); // Comment length
+                out.int16(0); // Disk number
+                out.int16(0); // Internal attributes
+                out.int32(0); // External attributes
+                out.int32(offsets.get(x++));
+                out.write(name);
+            }
+
+            long length = out.count - start;
+            if (out.count > 0xFFFFFFFFL)
+                throw new IOException("Zip too large, zip64 is not supported: " + path);
+
+            out.int32(EOCD);
+            out.int16(0); // This disk
+            out.int16(0); // Disk with the central directory
+            out.int16(sorted.size());
+            out.int16(sorted.size());
+            out.int32(length);
+            out.int32(start);
+            out.int16(0); // Comment length
+        }
+    }
+
+    // Everything from the flags to the name length is the same in both headers.
+    private void writeCommon(Counting out, RawEntry entry, byte[] name) throws IOException {
+        if (entry.getSize() > 0xFFFFFFFFL)
+            throw new IOException("Entry too large, zip64 is not supported: " + entry.getName());
+        out.int16(UTF8);
+        out.int16(entry.getMethod());
+        out.int16(0); // Time
+        out.int16(DOS_DATE);
+        out.int32(entry.getCrc());
+        out.int32(entry.getData().length);
+        out.int32(entry.getSize());
+        out.int16(name.length);
+    }
+
+    private static class Counting extends OutputStream {
+        private final OutputStream out;
+        private long count = 0;
+
+        private Counting(OutputStream out) {
+            this.out = out;
+        }
+
+        private void int16(int value) throws IOException {
+            write(value & 0xFF);
+            write((value >>> 8) & 0xFF);
+        }
+
+        private void int32(long value) throws IOException {
+            int16((int)(value & 0xFFFF));
+            int16((int)((value >>> 16) & 0xFFFF));
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.util.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+
+import javax.annotation.Nullable;
+
+import net.minecraftforge.srg2source.api.InputSupplier;
+
+/**
+ * Reads a zip lazily, straight from it's central directory. Nothing is inflated until it's asked for, and entries can be
+ * read from any number of threads at once. The compressed data of each entry is also available as is, so it can be copied
+ * into another zip without inflating and deflating it again, see {@link ParallelZipOutputSupplier#copyRaw(RawEntry)}.
+ *
+ * Only what a normal jar uses is supported, no zip64, encryption, or compression other then deflate.
+ */
+public class ZipFileInputSupplier implements InputSupplier {
+    private static final int EOCD = 0x06054b50;
+    private static final int CEN = 0x02014b50;
+    private static final int LOC = 0x04034b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int LOC_SIZE = 30;
+
+    public static ZipFileInputSupplier create(Path path, @Nullable Charset encoding) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new ZipFileInputSupplier(path.toString(), channel, readCentral(channel), encoding);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private final String root;
+    private final FileChannel channel;
+    private final Map<String, Entry> entries;
+    private final Charset encoding;
+
+    private ZipFileInputSupplier(String root, FileChannel channel, Map<String, Entry> entries, @Nullable Charset encoding) {
+        this.root = root;
+        this.channel = channel;
+        this.entries = entries;
+        this.encoding = encoding;
+    }
+
+    private static Map<String, Entry> readCentral(FileChannel channel) throws IOException {
+        // The end record is at the very end, unless the zip has a comment, which can be up to 64k.
+        long size = channel.size();
+        int tail = (int)Math.min(size, EOCD_SIZE + 0xFFFF);
+        ByteBuffer buf = read(channel, size - tail, tail);
+        int end = -1;
+        for (int x = tail - EOCD_SIZE; x >= 0; x--) {
+            if (buf.getInt(x) == EOCD) {
+                end = x;
+                break;
+            }
+        }
+        if (end == -1)
+            throw new IOException("Invalid zip, could not find the end of the central directory");
+
+        int count = buf.getShort(end + 10) & 0xFFFF;
+        long length = buf.getInt(end + 12) & 0xFFFFFFFFL;
+        long offset = buf.getInt(end + 16) & 0xFFFFFFFFL;
+        if (count == 0xFFFF || offset == 0xFFFFFFFFL)
+            throw new IOException("Zip64 is not supported");
+
+        ByteBuffer cen = read(channel, offset, (int)length);
+        Map<String, Entry> ret = new HashMap<>();
+        int pos = 0;
+        for (int x = 0; x < count; x++) {
+            if (cen.getInt(pos) != CEN)
+                throw new IOException("Invalid zip, bad central directory entry at " + (offset + pos));
+            int flags = cen.getShort(pos + 8) & 0xFFFF;
+            int method = cen.getShort(pos + 10) & 0xFFFF;
+            int crc = cen.getInt(pos + 16);
+            long csize = cen.getInt(pos + 20) & 0xFFFFFFFFL;
+            long usize = cen.getInt(pos + 24) & 0xFFFFFFFFL;
+            int nlen = cen.getShort(pos + 28) & 0xFFFF;
+            int elen = cen.getShort(pos + 30) & 0xFFFF;
+            int clen = cen.getShort(pos + 32) & 0xFFFF;
+            long local = cen.getInt(pos + 42) & 0xFFFFFFFFL;
+
+            byte[] name = new byte[nlen];
+            cen.position(pos + 46);
+            cen.get(name);
+            pos += 46 + nlen + elen + clen;
+
+            if ((flags & 1) != 0)
+                throw new IOException("Encrypted zips are not supported");
+            if (method != ZipEntry.STORED && method != ZipEntry.DEFLATED)
+                throw new IOException("Unsupported compression method " + method);
+
+            // Jars are always UTF-8, even when they don't set the flag saying so.
+            String sname = new String(name, StandardCharsets.UTF_8);
+            if (!sname.endsWith("/"))
+                ret.put(sname, new Entry(method, crc, csize, usize, local));
+        }
+        return ret;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) == -1)
+                throw new EOFException("Unexpected end of zip");
+        }
+        buf.flip();
+        return buf;
+    }
+
+    /**
+     * @return The entry's data exactly as it is stored in the zip, or null if it doesn't exist.
+     */
+    @Nullable
+    public RawEntry getRaw(String relPath) throws IOException {
+        Entry entry = entries.get(relPath);
+        if (entry == null)
+            return null;
+
+        // The local header can have a different extra field to the central one, so it has to be read to find the data.
+        ByteBuffer header = read(channel, entry.local, LOC_SIZE);
+        if (header.getInt(0) != LOC)
+            throw new IOException("Invalid zip, bad local header for " + relPath);
+        long start = entry.local + LOC_SIZE + (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+        if (entry.csize > Integer.MAX_VALUE)
+            throw new IOException("Entry too large: " + relPath);
+
+        ByteBuffer data = read(channel, start, (int)entry.csize);
+        return new RawEntry(relPath, entry.method, entry.crc, entry.usize, data.array());
+    }
+
+    @Override
+    @Nullable
+    public InputStream getInput(String relPath) {
+        try {
+            byte[] data = getBytes(relPath);
+            return data == null ? null : new ByteArrayInputStream(data);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    @Nullable
+    public byte[] getBytes(String relPath) throws IOException {
+        RawEntry raw = getRaw(relPath);
+        if (raw == null)
+            return null;
+        byte[] ret = raw.getMethod() == ZipEntry.STORED ? raw.getData() : inflate(relPath, raw);
+
+        CRC32 crc = new CRC32();
+        crc.update(ret, 0, ret.length);
+        if ((int)crc.getValue() != raw.getCrc())
+            throw new IOException("CRC mismatch in zip entry: " + relPath);
+        return ret;
+    }
+
+    private static byte[] inflate(String relPath, RawEntry raw) throws IOException {
+        if (raw.getSize() > Integer.MAX_VALUE)
+            throw new IOException("Entry too large: " + relPath);
+
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(raw.getData());
+            byte[] ret = new byte[(int)raw.getSize()];
+            int len = 0;
+            while (len < ret.length) {
+                int read = inflater.inflate(ret, len, ret.length - len);
+                if (read == 0 && (inflater.finished() || inflater.needsInput()))
+                    throw new IOException("Truncated zip entry: " + relPath);
+                len += read;
+            }
+            return ret;
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid zip entry: " + relPath, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public long size(String relPath) {
+        Entry entry = entries.get(relPath);
+        return entry == null ? -1 : entry.usize;
+    }
+
+    @Override
+    public List<String> gatherAll(String endFilter) {
+        return entries.keySet().stream().filter(k -> k.endsWith(endFilter)).sorted().collect(Collectors.toList());
+    }
+
+    @Override
+    public String getRoot(String resource) {
+        return root;
+    }
+
+    @Override
+    @Nullable
+    public Charset getEncoding(String resource) {
+        return encoding;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static class Entry {
+        private final int method;
+        private final int crc;
+        private final long csize;
+        private final long usize;
+        private final long local;
+
+        private Entry(int method, int crc, long csize, long usize, long local) {
+            this.method = method;
+            this.crc = crc;
+            this.csize = csize;
+            this.usize = usize;
+            this.local = local;
+        }
+    }
+
+    /**
+     * A zip entry's data, still compressed.
+     */
+    public static class RawEntry {
+        private final String name;
+        private final int method;
+        private final int crc;
+        private final long size;
+        private final byte[] data;
+
+        public RawEntry(String name, int method, int crc, long size, byte[] data) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.data = data;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * @return {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}.
+         */
+        public int getMethod() {
+            return this.method;
+        }
+
+        public int getCrc() {
+            return this.crc;
+        }
+
+        /**
+         * @return The size of the entry once inflated.
+         */
+        public long getSize() {
+            return this.size;
+        }
+
+        public byte[] getData() {
+            return this.data;
+        }
+    }
+}
@@ -43,8 +43,10 @@ public class ZipInputSupplier implements InputSupplier {
         try (InputStream in = Files.newInputStream(path);
              ZipInputStream zin = new ZipInputStream(in)) {
             ZipEntry entry;
-            while ((entry = zin.getNextEntry()) != null)
-                data.put(entry.getName(), Util.readStream(zin));
+            while ((entry = zin.getNextEntry()) != null) {
+                long size = entry.getSize(); // Only known up front if the entry has no data descriptor
+                data.put(entry.getName(), size >= 0 && size <= Integer.MAX_VALUE ? zin.readNBytes((int)size) : Util.readStream(zin));
+            }
         }
 
         return new ZipInputSupplier(path.toString(), data, encoding);
@@ -75,6 +77,18 @@ public class ZipInputSupplier implements InputSupplier {
         }
     }
 
+    @Override
+    @Nullable
+    public byte[] getBytes(String relPath) {
+        return data.get(relPath); // We own this array already, so hand it out as is instead of copying it.
+    }
+
+    @Override
+    public long size(String relPath) {
+        byte[] value = data.get(relPath);
+        return value == null ? -1 : value.length;
+    }
+
     @Override
     public List<String> gatherAll(String endFilter) {
         LinkedList<String> out = new LinkedList<String>();
@@ -0,0 +1,41 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.util.io;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The threads {@link IOExecutor} runs it's tasks on. This is the Java 21 version, every task gets it's own virtual thread,
+ * so thousands of files can be waiting on the disk at once without a platform thread for each of them.
+ * Both need to have exactly the same members, all of the logic belongs in {@link IOExecutor}.
+ */
+class IOThreads {
+    static ExecutorService create() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Virtual threads are never in short supply, so tasks can always wait on other tasks, nothing needs to be run inline.
+     */
+    static boolean mustRunInline() {
+        return false;
+    }
+}
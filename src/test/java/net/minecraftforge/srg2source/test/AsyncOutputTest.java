@@ -0,0 +1,80 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.minecraftforge.srg2source.api.OutputSupplier;
+import net.minecraftforge.srg2source.util.io.AsyncOutputSupplier;
+
+public class AsyncOutputTest {
+    @Test
+    public void testWritesEverything() throws IOException {
+        MemoryOutputSupplier memory = new MemoryOutputSupplier();
+        try (AsyncOutputSupplier async = new AsyncOutputSupplier(memory, 1)) {
+            for (int x = 0; x < 10; x++)
+                write(async, "file" + x, "data" + x);
+        }
+        for (int x = 0; x < 10; x++)
+            Assert.assertEquals("data" + x, memory.get(x));
+    }
+
+    @Test(timeout = 10000)
+    public void testWriterErrorDoesNotHang() throws IOException {
+        OutputSupplier broken = new OutputSupplier() {
+            @Override
+            public OutputStream getOutput(String relPath) {
+                throw new StackOverflowError("Writer died");
+            }
+
+            @Override
+            public void close() {}
+        };
+
+        AsyncOutputSupplier async = new AsyncOutputSupplier(broken, 1);
+        int failed = 0;
+        for (int x = 0; x < 10; x++) {
+            try {
+                write(async, "file" + x, "data" + x);
+            } catch (IOException e) {
+                failed++;
+            }
+        }
+        Assert.assertTrue("Producers were never told the writer died", failed > 0);
+
+        try {
+            async.close();
+            Assert.fail("Close did not throw the writer's error");
+        } catch (IOException e) {
+            Assert.assertTrue("Unexpected cause: " + e.getCause(), e.getCause() instanceof StackOverflowError);
+        }
+    }
+
+    private static void write(OutputSupplier output, String path, String data) throws IOException {
+        try (OutputStream out = output.getOutput(path)) {
+            out.write(data.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.minecraftforge.srg2source.apply.ExceptorClass;
+
+public class ExceptorClassTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testLaterFilesOverride() throws IOException {
+        Path first = write("first.exc",
+            "a/A.m()V=java/io/IOException|x,y",
+            "a/A.kept()V=|kept",
+            "b/B.n(I)V=|old");
+        Path second = write("second.exc",
+            "a/A.m()V=|z",
+            "b/B.n(I)V=java/lang/Exception|new");
+        Path third = write("third.exc",
+            "b/B.n(I)V=|newest");
+
+        ExceptorClass excs = ExceptorClass.load(third, StandardCharsets.UTF_8,
+            ExceptorClass.load(second, StandardCharsets.UTF_8, ExceptorClass.load(first)));
+
+        // The newest entry replaces the whole line, not just the parameters it names.
+        Assert.assertEquals("z", excs.mapParam("a/A", "m", "()V", 0, "p0"));
+        Assert.assertNull(excs.mapParam("a/A", "m", "()V", 1, "p1"));
+        Assert.assertEquals("kept", excs.mapParam("a/A", "kept", "()V", 0, "p0"));
+        Assert.assertEquals("newest", excs.mapParam("b/B", "n", "(I)V", 0, "p0"));
+
+        // Exceptions are looked up on their own, so a later line with only parameters doesn't hide them.
+        Assert.assertArrayEquals(new String[] { "java/io/IOException" }, excs.getExceptions("a/A", "m", "()V"));
+        Assert.assertArrayEquals(new String[] { "java/lang/Exception" }, excs.getExceptions("b/B", "n", "(I)V"));
+        Assert.assertNull(excs.getExceptions("a/A", "kept", "()V"));
+    }
+
+    @Test
+    public void testEmptyParams() throws IOException {
+        ExceptorClass excs = ExceptorClass.load(write("empty.exc",
+            "a/A.none()V=|",
+            "a/A.first(II)V=|,x",
+            "a/A.trailing(II)V=|x,",
+            "a/A.excOnly()V=java/io/IOException"));
+
+        // The same as split(","), which drops trailing empty entries but keeps leading ones.
+        Assert.assertNull(excs.mapParam("a/A", "none", "()V", 0, "p0"));
+        Assert.assertEquals("", excs.mapParam("a/A", "first", "(II)V", 0, "p0"));
+        Assert.assertEquals("x", excs.mapParam("a/A", "first", "(II)V", 1, "p1"));
+        Assert.assertNull(excs.mapParam("a/A", "first", "(II)V", 2, "p2"));
+        Assert.assertEquals("x", excs.mapParam("a/A", "trailing", "(II)V", 0, "p0"));
+        Assert.assertNull(excs.mapParam("a/A", "trailing", "(II)V", 1, "p1"));
+        Assert.assertNull(excs.mapParam("a/A", "excOnly", "()V", 0, "p0"));
+        Assert.assertNull(excs.mapParam("a/A", "missing", "()V", 0, "p0"));
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testPerClassMaps() throws IOException {
+        Map<String, ExceptorClass> first = ExceptorClass.create(write("first.exc",
+            "a/A.m()V=|x",
+            "b/B.n()V=java/io/IOException"));
+        Map<String, ExceptorClass> second = ExceptorClass.create(write("second.exc", "a/A.m()V=|y", "c/C.o()V=|z"), StandardCharsets.UTF_8, first);
+
+        Assert.assertEquals("x", first.get("a/A").mapParam("m", "()V", 0, "p0"));
+        Assert.assertEquals(3, second.size());
+        Assert.assertEquals("y", second.get("a/A").mapParam("m", "()V", 0, "p0"));
+        Assert.assertNull(second.get("b/B").mapParam("n", "()V", 0, "p0"));
+        Assert.assertEquals("z", second.get("c/C").mapParam("o", "()V", 0, "p0"));
+    }
+
+    private Path write(String name, String... lines) throws IOException {
+        Path ret = temp.getRoot().toPath().resolve(name);
+        Files.write(ret, String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+        return ret;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.minecraftforge.srg2source.util.io.FolderSupplier;
+
+public class FolderSupplierTest {
+    private static final FileTime OLD = FileTime.fromMillis(1_000_000_000_000L);
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testSkipUnchanged() throws IOException {
+        Path root = temp.getRoot().toPath();
+        write(root, "a/Same.java", "same");
+        write(root, "a/Changed.java", "old");
+        write(root, "a/Resized.java", "old data");
+
+        FolderSupplier out = FolderSupplier.create(root, null);
+        out.setSkipUnchanged(true);
+        write(out, "a/Same.java", "same");
+        write(out, "a/Changed.java", "new");
+        write(out, "a/Resized.java", "new, longer, data");
+        write(out, "b/New.java", "new");
+        out.close();
+
+        Assert.assertEquals(1, out.getSkipped());
+        Assert.assertEquals(3, out.getWritten());
+        Assert.assertEquals("Unchanged file was touched", OLD, Files.getLastModifiedTime(root.resolve("a/Same.java")));
+        Assert.assertNotEquals(OLD, Files.getLastModifiedTime(root.resolve("a/Changed.java")));
+        Assert.assertEquals("new", read(root, "a/Changed.java"));
+        Assert.assertEquals("new, longer, data", read(root, "a/Resized.java"));
+        Assert.assertEquals("new", read(root, "b/New.java"));
+    }
+
+    @Test
+    public void testDeleteStale() throws IOException {
+        Path root = temp.getRoot().toPath();
+        write(root, "a/Kept.java", "old");
+        write(root, "a/Stale.java", "old");
+        write(root, "b/c/Deep.java", "old");
+        write(root, "a/resource.txt", "old");
+
+        FolderSupplier out = FolderSupplier.create(root, null);
+        out.setDeleteStale(".java");
+        write(out, "a/Kept.java", "new");
+        write(out, "a/New.java", "new");
+        out.close();
+
+        Assert.assertEquals(2, out.getDeleted());
+        Assert.assertEquals("new", read(root, "a/Kept.java"));
+        Assert.assertEquals("new", read(root, "a/New.java"));
+        Assert.assertFalse(Files.exists(root.resolve("a/Stale.java")));
+        Assert.assertFalse(Files.exists(root.resolve("b/c/Deep.java")));
+        Assert.assertTrue("Non-java file was deleted", Files.exists(root.resolve("a/resource.txt")));
+    }
+
+    @Test
+    public void testSkippedIsNotStale() throws IOException {
+        Path root = temp.getRoot().toPath();
+        write(root, "a/Same.java", "same");
+
+        FolderSupplier out = FolderSupplier.create(root, null);
+        out.setSkipUnchanged(true);
+        out.setDeleteStale(".java");
+        write(out, "a/Same.java", "same");
+        out.close();
+
+        Assert.assertEquals(1, out.getSkipped());
+        Assert.assertEquals(0, out.getDeleted());
+        Assert.assertTrue(Files.exists(root.resolve("a/Same.java")));
+    }
+
+    @Test
+    public void testWrittenCountedOnClose() throws IOException {
+        FolderSupplier out = FolderSupplier.create(temp.getRoot().toPath(), null);
+        OutputStream stream = out.getOutput("a/A.java");
+        stream.write("data".getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(0, out.getWritten());
+        stream.close();
+        stream.close();
+        Assert.assertEquals(1, out.getWritten());
+    }
+
+    private static void write(Path root, String path, String data) throws IOException {
+        Path target = root.resolve(path);
+        Files.createDirectories(target.getParent());
+        Files.write(target, data.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(target, OLD);
+    }
+
+    private static void write(FolderSupplier output, String path, String data) throws IOException {
+        try (OutputStream out = output.getOutput(path)) {
+            out.write(data.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String read(Path root, String path) throws IOException {
+        return new String(Files.readAllBytes(root.resolve(path)), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.minecraftforge.srg2source.api.RangeApplierBuilder;
+import net.minecraftforge.srg2source.api.RangeExtractorBuilder;
+import net.minecraftforge.srg2source.apply.RangeApplier;
+
+/*
+ * Names the applier guesses when the mappings don't say, from a real extraction of a small source file.
+ */
+public class GuessTest {
+    private static final String LAMBDAS =
+        "package a;\n" +
+        "import java.util.function.IntUnaryOperator;\n" +
+        "public class Lambdas {\n" +
+        "    public int apply(int p_1_) { return p_1_; }\n" +
+        "    public IntUnaryOperator get() { return p_1_ -> apply(p_1_); }\n" +
+        "}\n";
+
+    private static final String MAPPINGS =
+        "tsrg2 left right\n" +
+        "a/Lambdas a/Lambdas\n" +
+        "\tapply (I)I apply\n" +
+        "\t\t0 p_1_ value\n" +
+        "\tunused (II)V unused\n" +
+        "\t\t0 p_2_ first\n" +
+        "\t\t1 p_3_ second\n";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testLambdaParams() throws IOException {
+        Path src = source("Lambdas", LAMBDAS);
+        Path out = temp.newFolder("out").toPath();
+        String log = apply(src, extract(src), write("mapped.tsrg", MAPPINGS), out, null);
+
+        Assert.assertEquals(
+            "package a;\n" +
+            "import java.util.function.IntUnaryOperator;\n" +
+            "public class Lambdas {\n" +
+            "    public int apply(int value) { return value; }\n" +
+            "    public IntUnaryOperator get() { return value -> apply(value); }\n" +
+            "}\n", read(out, "a/Lambdas.java"));
+
+        // Only the parameter names used by lambdas in the range map are indexed, not every parameter in the mappings.
+        Assert.assertTrue(log, log.contains("Guessing lambda parameters from 1 names"));
+    }
+
+    @Test
+    public void testLambdaIndexNotBuilt() throws IOException {
+        Path src = source("NoLambdas", "package a;\npublic class NoLambdas {\n    public int apply(int p_1_) { return p_1_; }\n}\n");
+        Path out = temp.newFolder("out").toPath();
+        String log = apply(src, extract(src), write("mapped.tsrg", MAPPINGS.replace("Lambdas", "NoLambdas")), out, null);
+
+        Assert.assertEquals("package a;\npublic class NoLambdas {\n    public int apply(int value) { return value; }\n}\n", read(out, "a/NoLambdas.java"));
+        Assert.assertFalse("Lambda index built without any lambdas:\n" + log, log.contains("Guessing lambda parameters"));
+    }
+
+    @Test
+    public void testLambdaTargets() throws IOException {
+        Path src = source("Lambdas", LAMBDAS);
+        Path out = temp.newFolder("out").toPath();
+        Path other = temp.newFolder("other").toPath();
+        RangeApplierBuilder target = new RangeApplierBuilder()
+            .output(other)
+            .srg(write("other.tsrg", MAPPINGS.replace(" value\n", " other\n")))
+            .guessLambdas();
+        String log = apply(src, extract(src), write("mapped.tsrg", MAPPINGS), out, target);
+
+        // Each target guesses from it's own mappings, but only needs the names from the shared range map.
+        Assert.assertTrue(read(out, "a/Lambdas.java"), read(out, "a/Lambdas.java").contains("return value -> apply(value);"));
+        Assert.assertTrue(read(other, "a/Lambdas.java"), read(other, "a/Lambdas.java").contains("return other -> apply(other);"));
+        Assert.assertTrue(log, log.contains("Guessing lambda parameters from 1 names"));
+    }
+
+    @Test
+    public void testLocals() throws IOException {
+        Path src = source("Abc",
+            "package a;\n" +
+            "public class Abc {\n" +
+            "    void one() { Abc abc = null; Abc abc1 = abc; Abc[] aabc = null; String string = null; int x = 0; }\n" +
+            "    void two() { Abc abc = null; Abc abc1 = abc; String string = null; }\n" +
+            "}\n");
+        Path out = temp.newFolder("out").toPath();
+
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        RangeApplier applier = new RangeApplierBuilder()
+            .logger(new PrintStream(log))
+            .input(src)
+            .output(out)
+            .range(extract(src))
+            .srg(write("mapped.tsrg", "a/Abc a/Widget\n"))
+            .guessLocals()
+            .build();
+        applier.run();
+
+        Assert.assertEquals(
+            "package a;\n" +
+            "public class Widget {\n" +
+            "    void one() { Widget widget = null; Widget widget1 = widget; Widget[] awidget = null; String string = null; int x = 0; }\n" +
+            "    void two() { Widget widget = null; Widget widget1 = widget; String string = null; }\n" +
+            "}\n", read(out, "a/Widget.java"));
+
+        // Primitives aren't guessed at all. Of the rest only the first abc, abc1, aabc and string are worked out,
+        // every other use of the same type and name, including names that don't change, comes from the cache.
+        Assert.assertEquals(9, applier.getLocalLookups());
+        Assert.assertEquals(5, applier.getLocalCacheHits());
+        Assert.assertTrue(log.toString(), log.toString().contains("Guessed 9 local variables, 5 cached (55%)"));
+    }
+
+    private Path source(String name, String data) throws IOException {
+        Path src = temp.newFolder("src").toPath();
+        MixinIndexTest.write(src, "a/" + name + ".java", data);
+        return src;
+    }
+
+    private Path extract(Path src) throws IOException {
+        Path range = temp.getRoot().toPath().resolve("src.range");
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(range))) {
+            boolean worked = new RangeExtractorBuilder()
+                .input(src)
+                .logger(new PrintStream(log))
+                .output(out)
+                .build()
+                .run();
+            Assert.assertTrue("Failed to extract:\n" + log, worked);
+        }
+        return range;
+    }
+
+    private static String apply(Path src, Path range, Path srg, Path out, RangeApplierBuilder target) throws IOException {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        RangeApplierBuilder builder = new RangeApplierBuilder()
+            .logger(new PrintStream(log))
+            .input(src)
+            .output(out)
+            .range(range)
+            .srg(srg)
+            .guessLambdas();
+        if (target != null)
+            builder.target(target.logger(new PrintStream(log)));
+        builder.build().run();
+        return log.toString();
+    }
+
+    private Path write(String name, String data) throws IOException {
+        Path ret = temp.getRoot().toPath().resolve(name);
+        Files.write(ret, data.getBytes(StandardCharsets.UTF_8));
+        return ret;
+    }
+
+    private static String read(Path root, String path) throws IOException {
+        return new String(Files.readAllBytes(root.resolve(path)), StandardCharsets.UTF_8);
+    }
+}
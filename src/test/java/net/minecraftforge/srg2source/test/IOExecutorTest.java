@@ -0,0 +1,106 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import net.minecraftforge.srg2source.util.io.IOExecutor;
+
+public class IOExecutorTest {
+    @Test
+    public void testKeepsOrder() throws IOException {
+        List<Integer> values = range(1000);
+        List<Integer> ret = IOExecutor.map(values, x -> x * 2);
+        for (int x = 0; x < values.size(); x++)
+            Assert.assertEquals(x * 2, (int)ret.get(x));
+    }
+
+    @Test(timeout = 30000)
+    public void testBoundsInFlight() throws IOException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger max = new AtomicInteger();
+        IOExecutor.forEach(range(IOExecutor.MAX_IN_FLIGHT * 4), x -> {
+            int now = running.incrementAndGet();
+            max.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+        Assert.assertTrue("Too many tasks at once: " + max.get(), max.get() <= IOExecutor.MAX_IN_FLIGHT);
+    }
+
+    @Test(timeout = 30000)
+    public void testThrowsFailure() {
+        IOException error = new IOException("Broken");
+        AtomicInteger ran = new AtomicInteger();
+        try {
+            IOExecutor.forEach(range(IOExecutor.MAX_IN_FLIGHT * 40), x -> {
+                ran.incrementAndGet();
+                if (x == 0)
+                    throw error;
+            });
+            Assert.fail("Failure was not thrown");
+        } catch (IOException e) {
+            Assert.assertSame(error, e);
+        }
+        Assert.assertTrue("Kept starting tasks after a failure: " + ran.get(), ran.get() < IOExecutor.MAX_IN_FLIGHT * 40);
+    }
+
+    @Test(timeout = 30000)
+    public void testNested() throws IOException {
+        List<List<Integer>> ret = IOExecutor.map(range(64), x -> IOExecutor.map(range(64), y -> x * y));
+        Assert.assertEquals(63 * 63, (int)ret.get(63).get(63));
+    }
+
+    // Only set by the test21 task, which puts the Java 21 classes first on the classpath like the multi-release jar.
+    @Test
+    public void testVirtualThreads() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("srg2source.test.virtualThreads"));
+        Method isVirtual = Thread.class.getMethod("isVirtual");
+        List<Boolean> ret = IOExecutor.map(range(2), x -> {
+            try {
+                return (Boolean)isVirtual.invoke(Thread.currentThread());
+            } catch (ReflectiveOperationException e) {
+                throw new IOException(e);
+            }
+        });
+        Assert.assertEquals(Arrays.asList(true, true), ret);
+    }
+
+    private static List<Integer> range(int count) {
+        List<Integer> ret = new ArrayList<>(count);
+        for (int x = 0; x < count; x++)
+            ret.add(x);
+        return ret;
+    }
+}
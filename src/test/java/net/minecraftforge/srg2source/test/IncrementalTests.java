@@ -0,0 +1,402 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.minecraftforge.srg2source.api.RangeExtractorBuilder;
+import net.minecraftforge.srg2source.extract.RangeExtractWatcher;
+import net.minecraftforge.srg2source.extract.RangeExtractor;
+
+/*
+ * Sources are written to a real directory, so JDT can find the other files through the source path.
+ * The test fixtures use .txt files, which only works for single file tests.
+ */
+public class IncrementalTests {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test public void testNewTypeShadowsImport()        throws Exception { testNewTypeShadowsImport(false); }
+    @Test public void testNewTypeShadowsImportBatched() throws Exception { testNewTypeShadowsImport(true);  }
+    @Test public void testChangedSuperType()            throws Exception { testChangedSuperType(false);     }
+    @Test public void testChangedSuperTypeBatched()     throws Exception { testChangedSuperType(true);      }
+    @Test public void testCacheDirectory()              throws Exception { testCacheDirectory(false);       }
+    @Test public void testCacheDirectoryBatched()       throws Exception { testCacheDirectory(true);        }
+    @Test public void testWatch()                       throws Exception { testWatch(false);                }
+    @Test public void testWatchBatched()                throws Exception { testWatch(true);                 }
+    @Test public void testChangedFingerprint()          throws Exception { testChangedFingerprint(false);   }
+    @Test public void testChangedFingerprintBatched()   throws Exception { testChangedFingerprint(true);    }
+    @Test public void testASTConsumer()                 throws Exception { testASTConsumer(false);          }
+    @Test public void testASTConsumerBatched()          throws Exception { testASTConsumer(true);           }
+
+    /*
+     * Bar's List comes from the on demand import, until a List is added to it's own package, which takes precedence.
+     * Bar doesn't change, and doesn't depend on anything that existed before.
+     */
+    private void testNewTypeShadowsImport(boolean batch) throws Exception {
+        Path root = temp.getRoot().toPath();
+        write(root, "com/foo/Bar.java",
+            "package com.foo;\n" +
+            "import java.util.*;\n" +
+            "public class Bar {\n" +
+            "    List<String> list;\n" +
+            "}\n");
+        Result first = extract(root, null, batch);
+        Assert.assertTrue(first.output, first.output.contains(" java/util/List\n"));
+
+        write(root, "com/foo/List.java",
+            "package com.foo;\n" +
+            "public class List<T> {}\n");
+        Result second = extract(root, first.output, batch);
+        Assert.assertEquals("Cache hits", 0, second.hits);
+        Assert.assertTrue(second.output, second.output.contains(" com/foo/List\n"));
+        Assert.assertEquals(extract(root, null, batch).output, second.output);
+    }
+
+    /*
+     * Child's field reference is to where the field is declared, so when Base starts hiding Parent's field,
+     * Child has to be extracted again. Parent hasn't changed, and doesn't depend on anything that has.
+     */
+    private void testChangedSuperType(boolean batch) throws Exception {
+        Path root = temp.getRoot().toPath();
+        write(root, "com/foo/Parent.java",
+            "package com.foo;\n" +
+            "public class Parent {\n" +
+            "    public int value;\n" +
+            "}\n");
+        write(root, "com/foo/Base.java",
+            "package com.foo;\n" +
+            "public class Base extends Parent {}\n");
+        write(root, "com/foo/Child.java",
+            "package com.foo;\n" +
+            "public class Child extends Base {\n" +
+            "    int get() { return value; }\n" +
+            "}\n");
+        Result first = extract(root, null, batch);
+        Assert.assertTrue(first.output, getEntry(first.output, "com/foo/Child.java").contains(" value com/foo/Parent\n"));
+
+        write(root, "com/foo/Base.java",
+            "package com.foo;\n" +
+            "public class Base extends Parent {\n" +
+            "    public int value;\n" +
+            "}\n");
+        Result second = extract(root, first.output, batch);
+        Assert.assertEquals("Cache hits", 1, second.hits);
+        Assert.assertTrue(second.output, getEntry(second.output, "com/foo/Child.java").contains(" value com/foo/Base\n"));
+        Assert.assertEquals(extract(root, null, batch).output, second.output);
+        if (batch)
+            Assert.assertTrue("Cached file was parsed:\n" + second.log, second.log.contains("Batch 1: 2/3 files to parse"));
+    }
+
+    /*
+     * Nothing is kept between runs but the cache directory. Bar's List could be taken by a new type in it's package,
+     * so adding one has to miss Bar's variant, even though no file it depended on before has changed.
+     */
+    private void testCacheDirectory(boolean batch) throws Exception {
+        Path root = temp.newFolder("src").toPath();
+        Path cacheDir = temp.newFolder("cache").toPath();
+        write(root, "com/foo/Bar.java",
+            "package com.foo;\n" +
+            "import java.util.*;\n" +
+            "public class Bar {\n" +
+            "    List<String> list;\n" +
+            "}\n");
+        write(root, "com/foo/Foo.java",
+            "package com.foo;\n" +
+            "public class Foo {\n" +
+            "    Bar bar;\n" +
+            "}\n");
+        Result first = extract(root, null, cacheDir, batch);
+        Assert.assertEquals("Cache hits", 0, first.hits);
+
+        Result second = extract(root, null, cacheDir, batch);
+        Assert.assertEquals("Cache hits", 2, second.hits);
+        Assert.assertEquals(first.output, second.output);
+        if (batch)
+            Assert.assertTrue("Cached file was parsed:\n" + second.log, second.log.contains("Batch 1: 0/2 files to parse"));
+
+        write(root, "com/foo/List.java",
+            "package com.foo;\n" +
+            "public class List<T> {}\n");
+        Result third = extract(root, null, cacheDir, batch);
+        Assert.assertEquals("Cache hits", 1, third.hits);
+        Assert.assertTrue(third.output, getEntry(third.output, "com/foo/Bar.java").contains(" com/foo/List\n"));
+        Assert.assertEquals(extract(root, null, null, batch).output, third.output);
+    }
+
+    /*
+     * Only the file that changed is parsed again, Child depends on Parent and Base, but not Other.
+     * Runs patched either way, so turning batching off in the builder is tested too.
+     */
+    private void testWatch(boolean batch) throws Exception {
+        Path root = temp.newFolder("src").toPath();
+        write(root, "com/foo/Parent.java",
+            "package com.foo;\n" +
+            "public class Parent {\n" +
+            "    public int value;\n" +
+            "}\n");
+        write(root, "com/foo/Base.java",
+            "package com.foo;\n" +
+            "public class Base extends Parent {}\n");
+        write(root, "com/foo/Child.java",
+            "package com.foo;\n" +
+            "public class Child extends Base {\n" +
+            "    int get() { return value; }\n" +
+            "}\n");
+        write(root, "com/foo/Other.java",
+            "package com.foo;\n" +
+            "public class Other {}\n");
+        Path output = temp.getRoot().toPath().resolve("output.txt");
+
+        String[] logs = PatchedJDT.call(Watch.class, root, output, batch);
+        Assert.assertEquals("Cache hits", 0, count(logs[0], "Cache Hit!"));
+        Assert.assertEquals("Cache hits", 3, count(logs[1], "Cache Hit!"));
+        if (batch)
+            Assert.assertTrue("Unchanged files were parsed:\n" + logs[1], logs[1].contains("Batch 1: 1/4 files to parse"));
+        else
+            Assert.assertFalse("Batched when disabled:\n" + logs[1], logs[1].contains("Batch 1:"));
+
+        String expected = extract(root, null, batch).output;
+        Assert.assertEquals(expected, new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+        Assert.assertTrue(expected, getEntry(expected, "com/foo/Other.java").contains(" com/foo/Parent\n"));
+    }
+
+    /*
+     * A cache from a run with different libraries or options can't be trusted, even if no source has changed.
+     * Changing any file's fingerprint stands in for that, as does a cache from before fingerprints were written.
+     */
+    private void testChangedFingerprint(boolean batch) throws Exception {
+        Path root = temp.getRoot().toPath();
+        write(root, "com/foo/Parent.java",
+            "package com.foo;\n" +
+            "public class Parent {}\n");
+        write(root, "com/foo/Child.java",
+            "package com.foo;\n" +
+            "public class Child extends Parent {}\n");
+        Result first = extract(root, null, batch);
+        Assert.assertEquals("Cache hits", 2, extract(root, first.output, batch).hits);
+
+        int start = first.output.indexOf(" meta fingerprint ") + " meta fingerprint ".length();
+        Assert.assertNotEquals(first.output, start - " meta fingerprint ".length(), -1);
+        String hash = first.output.substring(start, first.output.indexOf('\n', start));
+
+        Result second = extract(root, first.output.replaceFirst(hash, "0123456789abcdef0123456789abcdef"), batch);
+        Assert.assertEquals("Cache hits", 0, second.hits);
+        Assert.assertEquals(first.output, second.output);
+
+        Result third = extract(root, first.output.replaceAll(".* meta fingerprint .*\n", ""), batch);
+        Assert.assertEquals("Cache hits", 0, third.hits);
+        Assert.assertEquals(first.output, third.output);
+    }
+
+    /*
+     * AST consumers are given every file, in order, with it's bindings resolved. Cached files still have to be
+     * parsed for them, but their range maps come from the cache, so the output is the same.
+     */
+    private void testASTConsumer(boolean batch) throws Exception {
+        Path root = temp.newFolder("src").toPath();
+        Path cacheDir = temp.newFolder("cache").toPath();
+        write(root, "com/foo/Parent.java",
+            "package com.foo;\n" +
+            "public class Parent {}\n");
+        write(root, "com/foo/Child.java",
+            "package com.foo;\n" +
+            "public class Child extends Parent {}\n");
+        String expected =
+            "com/foo/Child.java com.foo.Child extends com.foo.Parent\n" +
+            "com/foo/Parent.java com.foo.Parent extends java.lang.Object\n";
+
+        String[] first = consume(root, cacheDir, batch);
+        Assert.assertEquals("Cache hits", "0", first[1]);
+        Assert.assertEquals(expected, first[2]);
+
+        String[] second = consume(root, cacheDir, batch);
+        Assert.assertEquals("Cache hits", "2", second[1]);
+        Assert.assertEquals(expected, second[2]);
+        Assert.assertEquals(first[0], second[0]);
+    }
+
+    private static String[] consume(Path root, Path cacheDir, boolean batch) throws Exception {
+        return batch ? PatchedJDT.call(Consume.class, root, cacheDir) : new Consume(root, cacheDir).call();
+    }
+
+    private static int count(String data, String value) {
+        int ret = 0;
+        for (int idx = data.indexOf(value); idx != -1; idx = data.indexOf(value, idx + 1))
+            ret++;
+        return ret;
+    }
+
+    private static String getEntry(String output, String file) {
+        int start = output.indexOf("start 1 " + file + ' ');
+        Assert.assertNotEquals("Missing " + file + ":\n" + output, -1, start);
+        return output.substring(start, output.indexOf("\nend\n", start));
+    }
+
+    private static void write(Path root, String path, String data) throws IOException {
+        Path target = root.resolve(path);
+        Files.createDirectories(target.getParent());
+        Files.write(target, data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Result extract(Path root, String cache, boolean batch) throws Exception {
+        return extract(root, cache, null, batch);
+    }
+
+    private static Result extract(Path root, String cache, Path cacheDir, boolean batch) throws Exception {
+        String[] ret = batch ? PatchedJDT.call(Extract.class, root, cache, cacheDir) : new Extract(root, cache, cacheDir).call();
+        return new Result(ret[0], ret[1], Integer.parseInt(ret[2]));
+    }
+
+    private static class Result {
+        private final String output;
+        private final String log;
+        private final int hits;
+
+        private Result(String output, String log, int hits) {
+            this.output = output;
+            this.log = log;
+            this.hits = hits;
+        }
+    }
+
+    /*
+     * Runs two passes of the watcher, with Other changing in between.
+     */
+    public static class Watch implements Callable<String[]> {
+        private final Path root;
+        private final Path output;
+        private final boolean batch;
+
+        public Watch(Path root, Path output, boolean batch) {
+            this.root = root;
+            this.output = output;
+            this.batch = batch;
+        }
+
+        @Override
+        public String[] call() throws Exception {
+            ByteArrayOutputStream log = new ByteArrayOutputStream();
+            RangeExtractorBuilder builder = new RangeExtractorBuilder()
+                .input(root)
+                .batch(batch)
+                .logger(new PrintStream(log));
+            RangeExtractWatcher watcher = new RangeExtractWatcher(() -> {
+                RangeExtractor ret = builder.build();
+                Assert.assertEquals("Batched", batch, ret.canBatchASTs());
+                return ret;
+            }, output, false, true);
+
+            Assert.assertTrue("Failed to extract", watcher.extract());
+            String first = log.toString();
+            log.reset();
+
+            write(root, "com/foo/Other.java",
+                "package com.foo;\n" +
+                "public class Other extends Parent {}\n");
+            Assert.assertTrue("Failed to extract", watcher.extract());
+            return new String[] { first, log.toString() };
+        }
+    }
+
+    /*
+     * Returns the output, the cache hits, and a line for every AST given to the consumer.
+     */
+    public static class Consume implements Callable<String[]> {
+        private final Path root;
+        private final Path cacheDir;
+
+        public Consume(Path root, Path cacheDir) {
+            this.root = root;
+            this.cacheDir = cacheDir;
+        }
+
+        @Override
+        public String[] call() throws Exception {
+            StringWriter output = new StringWriter();
+            StringBuilder delivered = new StringBuilder();
+            RangeExtractor extractor = new RangeExtractorBuilder()
+                .input(root)
+                .cacheDirectory(cacheDir)
+                .logger(new PrintStream(new ByteArrayOutputStream()))
+                .output(new PrintWriter(output))
+                .astConsumer((path, data, cu) -> {
+                    Assert.assertNotNull(path, cu);
+                    ITypeBinding type = ((AbstractTypeDeclaration)cu.types().get(0)).resolveBinding();
+                    Assert.assertNotNull("Unresolved binding in " + path, type);
+                    delivered.append(path).append(' ').append(type.getQualifiedName())
+                        .append(" extends ").append(type.getSuperclass().getQualifiedName()).append('\n');
+                })
+                .build();
+
+            Assert.assertEquals("Batched", RangeExtractor.hasBeenASMPatched(), extractor.canBatchASTs());
+            Assert.assertTrue("Failed to extract", extractor.run());
+            return new String[] { output.toString(), Integer.toString(extractor.getCacheHits()), delivered.toString() };
+        }
+    }
+
+    public static class Extract implements Callable<String[]> {
+        private final Path root;
+        private final String cache;
+        private final Path cacheDir;
+
+        public Extract(Path root, String cache, Path cacheDir) {
+            this.root = root;
+            this.cache = cache;
+            this.cacheDir = cacheDir;
+        }
+
+        @Override
+        public String[] call() throws Exception {
+            StringWriter output = new StringWriter();
+            ByteArrayOutputStream log = new ByteArrayOutputStream();
+            RangeExtractorBuilder builder = new RangeExtractorBuilder()
+                .input(root)
+                .incremental()
+                .logger(new PrintStream(log))
+                .output(new PrintWriter(output));
+            if (cacheDir != null)
+                builder.cacheDirectory(cacheDir);
+            RangeExtractor extractor = builder.build();
+            if (cache != null)
+                extractor.loadCache(new ByteArrayInputStream(cache.getBytes(StandardCharsets.UTF_8)));
+
+            Assert.assertEquals("Batched", RangeExtractor.hasBeenASMPatched(), extractor.canBatchASTs());
+            Assert.assertTrue("Failed to extract", extractor.run());
+            return new String[] { output.toString(), log.toString(), Integer.toString(extractor.getCacheHits()) };
+        }
+    }
+}
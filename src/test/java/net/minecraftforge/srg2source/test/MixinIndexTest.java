@@ -0,0 +1,231 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.minecraftforge.srg2source.RangeMergeMain;
+import net.minecraftforge.srg2source.api.RangeExtractorBuilder;
+import net.minecraftforge.srg2source.extract.RangeExtractor;
+
+/*
+ * Mixins that need information from other files. The fixtures for MixinTests are single files, and use the real
+ * library, these are written to a real directory along with just enough of the annotations for JDT to resolve them.
+ */
+public class MixinIndexTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test public void testParentShadow()               throws Exception { testParentShadow(false);        }
+    @Test public void testParentShadowBatched()        throws Exception { testParentShadow(true);         }
+    @Test public void testParentShadowSharded()        throws Exception { testParentShadowSharded(false); }
+    @Test public void testParentShadowShardedBatched() throws Exception { testParentShadowSharded(true);  }
+    @Test public void testNamedOverwrite()             throws Exception { testNamedOverwrite(false);      }
+    @Test public void testNamedOverwriteBatched()      throws Exception { testNamedOverwrite(true);       }
+
+    /*
+     * ChildMixin is walked before ParentMixin, but still has to know that value is a shadow of Target's field.
+     */
+    private void testParentShadow(boolean batch) throws Exception {
+        Path root = temp.getRoot().toPath();
+        writeParentShadow(root);
+
+        String[] ret = batch ? PatchedJDT.call(Extract.class, root) : new Extract(root).call();
+        String output = ret[0];
+        Assert.assertTrue("ChildMixin wasn't walked first:\n" + output, output.indexOf("com/foo/mixin/ChildMixin.java") < output.indexOf("com/foo/mixin/ParentMixin.java"));
+        String child = getEntry(output, "com/foo/mixin/ChildMixin.java");
+        Assert.assertTrue(output + ret[1], child.contains(" value com/foo/Target\n"));
+        Assert.assertFalse(output, child.contains(" value com/foo/mixin/ParentMixin\n"));
+    }
+
+    /*
+     * ChildMixin is in the first shard and ParentMixin in the second, merged they should be the same as a single run.
+     */
+    private void testParentShadowSharded(boolean batch) throws Exception {
+        Path root = temp.newFolder("src").toPath();
+        writeParentShadow(root);
+        String expected = batch ? PatchedJDT.call(Extract.class, root)[0] : new Extract(root).call()[0];
+
+        Path merged = temp.getRoot().toPath().resolve("merged.range");
+        List<String> args = new ArrayList<>();
+        for (int x = 0; x < 2; x++) {
+            String[] ret = batch ? PatchedJDT.call(Extract.class, root, x, 2) : new Extract(root, x, 2).call();
+            Path shard = temp.getRoot().toPath().resolve("shard" + x + ".range");
+            Files.write(shard, ret[0].getBytes(StandardCharsets.UTF_8));
+            args.add("--in");
+            args.add(shard.toString());
+            if (x == 0)
+                Assert.assertTrue(ret[0] + ret[1], getEntry(ret[0], "com/foo/mixin/ChildMixin.java").contains(" value com/foo/Target\n"));
+        }
+        args.add("--out");
+        args.add(merged.toString());
+        RangeMergeMain.main(args.toArray(new String[args.size()]));
+
+        Assert.assertEquals(expected, new String(Files.readAllBytes(merged), StandardCharsets.UTF_8));
+    }
+
+    /*
+     * Hidden can only be targeted by name, and inherits tick from Base, so the overwrite has to be found through the
+     * hierarchy of a type that was resolved before anything was walked.
+     */
+    private void testNamedOverwrite(boolean batch) throws Exception {
+        Path root = temp.getRoot().toPath();
+        writeAnnotations(root);
+        write(root, "org/spongepowered/asm/mixin/Overwrite.java",
+            "package org.spongepowered.asm.mixin;\n" +
+            "public @interface Overwrite {\n" +
+            "    String constraints() default \"\";\n" +
+            "    String[] aliases() default {};\n" +
+            "    boolean remap() default true;\n" +
+            "}\n");
+        write(root, "com/foo/Base.java",
+            "package com.foo;\n" +
+            "public class Base {\n" +
+            "    public void tick() {}\n" +
+            "}\n");
+        write(root, "com/foo/Hidden.java",
+            "package com.foo;\n" +
+            "class Hidden extends Base {}\n");
+        write(root, "com/foo/mixin/HiddenMixin.java",
+            "package com.foo.mixin;\n" +
+            "import org.spongepowered.asm.mixin.Mixin;\n" +
+            "import org.spongepowered.asm.mixin.Overwrite;\n" +
+            "@Mixin(targets = \"com.foo.Hidden\")\n" +
+            "public abstract class HiddenMixin {\n" +
+            "    @Overwrite\n" +
+            "    public void tick() {}\n" +
+            "    void run() { tick(); }\n" +
+            "}\n");
+
+        String[] ret = batch ? PatchedJDT.call(Extract.class, root) : new Extract(root).call();
+        Assert.assertTrue(ret[1], ret[1].contains("resolved 1/1 named targets"));
+        String mixin = getEntry(ret[0], "com/foo/mixin/HiddenMixin.java");
+        Assert.assertTrue(mixin, mixin.contains(" tick com/foo/Base tick ()V\n"));
+        Assert.assertFalse(mixin, mixin.contains(" tick com/foo/mixin/HiddenMixin tick ()V\n"));
+        Assert.assertTrue(mixin, mixin.contains("meta depends com/foo/Hidden\n"));
+        Assert.assertTrue(mixin, mixin.contains("meta depends com/foo/Base\n"));
+    }
+
+    private static void writeParentShadow(Path root) throws IOException {
+        writeAnnotations(root);
+        write(root, "com/foo/Target.java",
+            "package com.foo;\n" +
+            "public class Target {\n" +
+            "    int value;\n" +
+            "}\n");
+        write(root, "com/foo/mixin/ParentMixin.java",
+            "package com.foo.mixin;\n" +
+            "import org.spongepowered.asm.mixin.Mixin;\n" +
+            "import org.spongepowered.asm.mixin.Shadow;\n" +
+            "import com.foo.Target;\n" +
+            "@Mixin(Target.class)\n" +
+            "public abstract class ParentMixin {\n" +
+            "    @Shadow int value;\n" +
+            "}\n");
+        write(root, "com/foo/mixin/ChildMixin.java",
+            "package com.foo.mixin;\n" +
+            "import org.spongepowered.asm.mixin.Mixin;\n" +
+            "import com.foo.Target;\n" +
+            "@Mixin(Target.class)\n" +
+            "public abstract class ChildMixin extends ParentMixin {\n" +
+            "    int get() { return value; }\n" +
+            "}\n");
+    }
+
+    static void writeAnnotations(Path root) throws IOException {
+        write(root, "org/spongepowered/asm/mixin/Mixin.java",
+            "package org.spongepowered.asm.mixin;\n" +
+            "public @interface Mixin {\n" +
+            "    Class<?>[] value() default {};\n" +
+            "    String[] targets() default {};\n" +
+            "    int priority() default 1000;\n" +
+            "    boolean remap() default true;\n" +
+            "}\n");
+        write(root, "org/spongepowered/asm/mixin/Shadow.java",
+            "package org.spongepowered.asm.mixin;\n" +
+            "public @interface Shadow {\n" +
+            "    String prefix() default \"shadow$\";\n" +
+            "    String[] aliases() default {};\n" +
+            "    boolean remap() default true;\n" +
+            "}\n");
+    }
+
+    static void write(Path root, String path, String data) throws IOException {
+        Path target = root.resolve(path);
+        Files.createDirectories(target.getParent());
+        Files.write(target, data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String getEntry(String output, String file) {
+        int start = output.indexOf("start 1 " + file + ' ');
+        Assert.assertNotEquals("Missing " + file + ":\n" + output, -1, start);
+        return output.substring(start, output.indexOf("\nend\n", start));
+    }
+
+    public static class Extract implements Callable<String[]> {
+        private final Path root;
+        private final int shard;
+        private final int count;
+
+        public Extract(Path root) {
+            this(root, 0, 1);
+        }
+
+        public Extract(Path root, int shard, int count) {
+            this.root = root;
+            this.shard = shard;
+            this.count = count;
+        }
+
+        @Override
+        public String[] call() throws Exception {
+            StringWriter output = new StringWriter();
+            ByteArrayOutputStream log = new ByteArrayOutputStream();
+            RangeExtractor extractor = new RangeExtractorBuilder()
+                .input(root)
+                .enableMixins()
+                .fatalMixins()
+                .incremental()
+                .shard(shard, count)
+                .logger(new PrintStream(log))
+                .output(new PrintWriter(output))
+                .build();
+
+            Assert.assertEquals("Batched", RangeExtractor.hasBeenASMPatched(), extractor.canBatchASTs());
+            Assert.assertTrue("Failed to extract:\n" + log, extractor.run());
+            return new String[] { output.toString(), log.toString() };
+        }
+    }
+}
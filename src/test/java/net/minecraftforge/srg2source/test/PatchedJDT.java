@@ -0,0 +1,83 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.test;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Callable;
+
+import org.eclipse.jdt.core.dom.ASTParser;
+
+import cpw.mods.modlauncher.LaunchPluginHandler;
+import cpw.mods.modlauncher.TransformStore;
+import cpw.mods.modlauncher.TransformationServiceDecorator;
+import cpw.mods.modlauncher.TransformingClassLoader;
+import cpw.mods.modlauncher.api.ITransformationService;
+import net.minecraftforge.srg2source.asm.TransformationService;
+import net.minecraftforge.srg2source.extract.RangeExtractor;
+
+/**
+ * Runs test code with JDT patched the same way ConsoleTool does, so the batched extractor can be tested.
+ * The task is loaded again in the patched class loader, so it can only be given and return things from the JDK.
+ */
+public class PatchedJDT {
+    private static TransformingClassLoader loader;
+
+    @SuppressWarnings("unchecked")
+    public static <T> T call(Class<? extends Callable<T>> task, Object... args) throws Exception {
+        Class<?> cls = Class.forName(task.getName(), true, getLoader());
+        for (Constructor<?> ctr : cls.getConstructors()) {
+            if (ctr.getParameterCount() != args.length)
+                continue;
+            try {
+                return ((Callable<T>)ctr.newInstance(args)).call();
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof Exception)
+                    throw (Exception)e.getCause();
+                throw e;
+            }
+        }
+        throw new IllegalArgumentException("No constructor for " + args.length + " arguments in " + task.getName());
+    }
+
+    private static synchronized ClassLoader getLoader() throws Exception {
+        if (loader == null) {
+            TransformStore transformStore = new TransformStore();
+            Constructor<TransformationServiceDecorator> ctr = TransformationServiceDecorator.class.getDeclaredConstructor(ITransformationService.class);
+            ctr.setAccessible(true);
+            TransformationServiceDecorator sd = ctr.newInstance(new TransformationService());
+            sd.gatherTransformers(transformStore);
+            Path[] targetPaths = new Path[] {
+                getClassRoot(ASTParser.class), // Same jar as CompilationUnitResolver, which isn't public
+                getClassRoot(PatchedJDT.class),
+                getClassRoot(RangeExtractor.class)
+            };
+            loader = new TransformingClassLoader(transformStore, new LaunchPluginHandler(), targetPaths);
+        }
+        return loader;
+    }
+
+    private static Path getClassRoot(Class<?> cls) throws URISyntaxException {
+        return Paths.get(cls.getProtectionDomain().getCodeSource().getLocation().toURI());
+    }
+}
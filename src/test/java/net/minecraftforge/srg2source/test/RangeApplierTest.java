@@ -0,0 +1,102 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.minecraftforge.srg2source.api.OutputSupplier;
+import net.minecraftforge.srg2source.apply.RangeApplier;
+
+public class RangeApplierTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    /*
+     * One output failing to close shouldn't stop the rest from being closed, and every failure should be reported.
+     */
+    @Test
+    public void testClosesEveryTarget() throws IOException {
+        Path range = temp.newFile("empty.range").toPath();
+        Files.write(range, new byte[0]);
+
+        Output main = new Output("main");
+        Output broken = new Output("broken");
+        Output working = new Output(null);
+        Output last = new Output("last");
+
+        RangeApplier applier = applier(range, main);
+        applier.addTarget(applier(range, broken));
+        applier.addTarget(applier(range, working));
+        applier.addTarget(applier(range, last));
+
+        try {
+            applier.run();
+            Assert.fail("Close failures were not thrown");
+        } catch (IOException e) {
+            Assert.assertEquals("main", e.getMessage());
+            Assert.assertEquals(2, e.getSuppressed().length);
+            Assert.assertEquals("broken", e.getSuppressed()[0].getMessage());
+            Assert.assertEquals("last", e.getSuppressed()[1].getMessage());
+        }
+
+        Assert.assertTrue(main.closed);
+        Assert.assertTrue(broken.closed);
+        Assert.assertTrue(working.closed);
+        Assert.assertTrue(last.closed);
+    }
+
+    private static RangeApplier applier(Path range, OutputSupplier output) {
+        RangeApplier ret = new RangeApplier();
+        ret.setInput(new SimpleInputSupplier("unused", "Unused"));
+        ret.setOutput(output);
+        ret.readRangeMap(range);
+        return ret;
+    }
+
+    private static class Output implements OutputSupplier {
+        private final String error;
+        private boolean closed = false;
+
+        private Output(String error) {
+            this.error = error;
+        }
+
+        @Override
+        public OutputStream getOutput(String relPath) {
+            return new ByteArrayOutputStream();
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            if (error != null)
+                throw new IOException(error);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.minecraftforge.srg2source.range.RangeCache;
+import net.minecraftforge.srg2source.range.RangeMap;
+
+public class RangeCacheTest {
+    private static final String FINGERPRINT = "test";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testHit() throws IOException {
+        RangeCache cache = new RangeCache(temp.getRoot().toPath(), FINGERPRINT, RangeCache.DEFAULT_MAX_SIZE);
+        RangeMap range = range("Foo.java", "aaaa");
+        cache.index("Foo.java", "aaaa", cache.store(range), Collections.singletonMap("Bar.java", "bbbb"));
+
+        Map<String, String> hashes = hashes("Foo.java", "aaaa", "Bar.java", "bbbb");
+        RangeMap hit = cache.get("Foo.java", "aaaa", hashes::get);
+        Assert.assertNotNull(hit);
+        Assert.assertEquals(range.getFilename(), hit.getFilename());
+        Assert.assertEquals(range.getHash(), hit.getHash());
+        Assert.assertEquals(1, cache.getHits());
+
+        // A different fingerprint is a different config, so nothing is shared
+        RangeCache other = new RangeCache(temp.getRoot().toPath(), FINGERPRINT + "2", RangeCache.DEFAULT_MAX_SIZE);
+        Assert.assertNull(other.get("Foo.java", "aaaa", hashes::get));
+    }
+
+    @Test
+    public void testDependencyChanged() throws IOException {
+        RangeCache cache = new RangeCache(temp.getRoot().toPath(), FINGERPRINT, RangeCache.DEFAULT_MAX_SIZE);
+        Map<String, String> depends = new HashMap<>();
+        depends.put("Bar.java", "bbbb");
+        depends.put("com/Missing.java", null);
+        cache.index("Foo.java", "aaaa", cache.store(range("Foo.java", "aaaa")), depends);
+
+        Assert.assertNotNull(cache.get("Foo.java", "aaaa", hashes("Bar.java", "bbbb")::get));
+        Assert.assertNull("Changed dependency", cache.get("Foo.java", "aaaa", hashes("Bar.java", "cccc")::get));
+        Assert.assertNull("Deleted dependency", cache.get("Foo.java", "aaaa", hashes()::get));
+        Assert.assertNull("Created dependency", cache.get("Foo.java", "aaaa", hashes("Bar.java", "bbbb", "com/Missing.java", "dddd")::get));
+        Assert.assertNull("Changed file", cache.get("Foo.java", "eeee", hashes("Bar.java", "bbbb")::get));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(4, cache.getMisses());
+
+        // Both variants are kept, so going back to the old dependency is a hit again
+        cache.index("Foo.java", "aaaa", cache.store(range("Foo.java", "aaaa", "classdef 0 1 Foo")), Collections.singletonMap("Bar.java", "cccc"));
+        Assert.assertNotNull(cache.get("Foo.java", "aaaa", hashes("Bar.java", "cccc")::get));
+        Assert.assertNotNull(cache.get("Foo.java", "aaaa", hashes("Bar.java", "bbbb")::get));
+    }
+
+    @Test
+    public void testTrim() throws IOException {
+        Path root = temp.getRoot().toPath();
+        RangeCache cache = new RangeCache(root, FINGERPRINT, RangeCache.DEFAULT_MAX_SIZE);
+        cache.index("Old.java", "aaaa", cache.store(range("Old.java", "aaaa")), Collections.emptyMap());
+        FileTime old = FileTime.fromMillis(System.currentTimeMillis() - 60 * 1000);
+        List<Path> oldFiles = files(root);
+        for (Path file : oldFiles)
+            Files.setLastModifiedTime(file, old);
+
+        cache.index("New.java", "bbbb", cache.store(range("New.java", "bbbb")), Collections.emptyMap());
+        long newSize = 0;
+        for (Path file : files(root)) {
+            if (!oldFiles.contains(file))
+                newSize += Files.size(file);
+        }
+
+        Assert.assertEquals("Nothing to trim", 0, cache.trim());
+
+        RangeCache small = new RangeCache(root, FINGERPRINT, newSize);
+        Assert.assertEquals(oldFiles.size(), small.trim());
+        Assert.assertNull("Oldest entry wasn't evicted", small.get("Old.java", "aaaa", hashes()::get));
+        Assert.assertNotNull("Newest entry was evicted", small.get("New.java", "bbbb", hashes()::get));
+    }
+
+    private static RangeMap range(String filename, String hash, String... lines) throws IOException {
+        StringBuilder buf = new StringBuilder();
+        buf.append("start 1 ").append(filename).append(' ').append(hash).append('\n');
+        for (String line : lines)
+            buf.append(line).append('\n');
+        buf.append("end\n");
+        try (RangeMap.Reader reader = new RangeMap.Reader(new ByteArrayInputStream(buf.toString().getBytes(StandardCharsets.UTF_8)))) {
+            return reader.next();
+        }
+    }
+
+    private static Map<String, String> hashes(String... pairs) {
+        Map<String, String> ret = new HashMap<>();
+        for (int x = 0; x < pairs.length; x += 2)
+            ret.put(pairs[x], pairs[x + 1]);
+        return ret;
+    }
+
+    private static List<Path> files(Path root) throws IOException {
+        try (Stream<Path> stream = Files.walk(root)) {
+            return stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+    }
+}
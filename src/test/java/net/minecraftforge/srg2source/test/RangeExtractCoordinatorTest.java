@@ -0,0 +1,118 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.test;
+
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.minecraftforge.srg2source.ConsoleTool;
+import net.minecraftforge.srg2source.RangeExtractCoordinator;
+
+public class RangeExtractCoordinatorTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test(timeout = 300000) public void testWorkers()      throws Exception { testWorkers(false); }
+    @Test(timeout = 300000) public void testWorkersSplit() throws Exception { testWorkers(true);  }
+
+    /*
+     * Two workers, each extracting half of the files, should write exactly what one JVM extracting everything does.
+     */
+    private void testWorkers(boolean split) throws Exception {
+        Path root = temp.getRoot().toPath();
+        Path src = writeSources(root.resolve("src"));
+        Path single = root.resolve("single");
+        Path workers = root.resolve("workers");
+
+        List<String> args = new ArrayList<>(Arrays.asList("--in", src.toString()));
+        if (split)
+            args.add("--split");
+
+        List<String> cmd = new ArrayList<>();
+        cmd.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(ConsoleTool.class.getName());
+        cmd.add("--extract");
+        cmd.addAll(args);
+        cmd.add("--out");
+        cmd.add(single.toString());
+        Process process = new ProcessBuilder(cmd).redirectOutput(Redirect.INHERIT).redirectError(Redirect.INHERIT).start();
+        Assert.assertEquals("Single extraction failed", 0, process.waitFor());
+
+        args.add("--out");
+        args.add(workers.toString());
+        new RangeExtractCoordinator(2, Collections.emptyList()).run(args.toArray(new String[args.size()]));
+
+        Map<String, String> expected = read(single);
+        Assert.assertFalse("Nothing was extracted", expected.isEmpty());
+        Assert.assertEquals(expected, read(workers));
+
+        try (Stream<Path> files = Files.list(root)) {
+            Assert.assertFalse("Temp files left behind", files.anyMatch(p -> p.getFileName().toString().contains(".workers")));
+        }
+    }
+
+    private static Path writeSources(Path src) throws IOException {
+        write(src, "a/Base.java", "package a;\n\npublic class Base {\n    public int value;\n\n    public int get() {\n        return value;\n    }\n}\n");
+        write(src, "a/Child.java", "package a;\n\npublic class Child extends Base {\n    @Override\n    public int get() {\n        return super.get() + 1;\n    }\n}\n");
+        write(src, "b/User.java", "package b;\n\nimport a.Child;\n\npublic class User {\n    public int use(Child child) {\n        return child.get() + child.value;\n    }\n}\n");
+        write(src, "b/Other.java", "package b;\n\npublic class Other {\n    private final User user = new User();\n}\n");
+        write(src, "c/Last.java", "package c;\n\nimport b.Other;\n\npublic class Last extends Other {\n    public static void main(String[] args) {\n        new Last();\n    }\n}\n");
+        return src;
+    }
+
+    private static void write(Path root, String path, String data) throws IOException {
+        Path target = root.resolve(path);
+        Files.createDirectories(target.getParent());
+        Files.write(target, data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Every file in the output, so a plain output and a split output can be compared the same way.
+    private static Map<String, String> read(Path output) throws IOException {
+        Map<String, String> ret = new TreeMap<>();
+        if (!Files.isDirectory(output)) {
+            ret.put("", new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+            return ret;
+        }
+        try (Stream<Path> files = Files.walk(output)) {
+            for (Path file : files.filter(Files::isRegularFile).collect(Collectors.toList()))
+                ret.put(output.relativize(file).toString().replace('\\', '/'), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        }
+        return ret;
+    }
+}
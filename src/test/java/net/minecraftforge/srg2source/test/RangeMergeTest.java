@@ -0,0 +1,80 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.minecraftforge.srg2source.RangeMergeMain;
+import net.minecraftforge.srg2source.range.RangeMap;
+import net.minecraftforge.srg2source.range.SplitRangeMap;
+
+public class RangeMergeTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test public void testConflictKeepsFolder() throws IOException { testConflictKeepsOld("merged");     }
+    @Test public void testConflictKeepsZip()    throws IOException { testConflictKeepsOld("merged.zip"); }
+
+    /*
+     * A merge with conflicts throws, and leaves whatever was there before exactly as it was, without any temp files.
+     */
+    private void testConflictKeepsOld(String name) throws IOException {
+        Path root = temp.getRoot().toPath();
+        Path a = write(root, "a.range", "A.java", "aaaa");
+        Path b = write(root, "b.range", "B.java", "bbbb");
+        Path conflict = write(root, "conflict.range", "A.java", "cccc");
+        Path output = root.resolve(name);
+
+        RangeMergeMain.main(new String[] { "--in", a.toString(), "--in", b.toString(), "--out", output.toString(), "--split" });
+        Map<String, String> manifest = SplitRangeMap.readManifest(output);
+        Assert.assertEquals(2, manifest.size());
+
+        try {
+            RangeMergeMain.main(new String[] { "--in", conflict.toString(), "--in", b.toString(), "--in", a.toString(), "--out", output.toString(), "--split" });
+            Assert.fail("Conflicting merge did not throw");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+
+        Assert.assertEquals(manifest, SplitRangeMap.readManifest(output));
+        Map<String, RangeMap> ranges = RangeMap.readAll(output);
+        Assert.assertEquals("aaaa", ranges.get("A.java").getHash());
+        Assert.assertEquals("bbbb", ranges.get("B.java").getHash());
+        try (Stream<Path> files = Files.list(root)) {
+            Assert.assertFalse("Temp files left behind", files.anyMatch(p -> p.getFileName().toString().contains(".tmp")));
+        }
+    }
+
+    private static Path write(Path root, String path, String filename, String hash) throws IOException {
+        Path target = root.resolve(path);
+        Files.write(target, ("start 1 " + filename + ' ' + hash + "\nend\n").getBytes(StandardCharsets.UTF_8));
+        return target;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.minecraftforge.srg2source.api.InputSupplier;
+import net.minecraftforge.srg2source.api.RangeVerifierBuilder;
+import net.minecraftforge.srg2source.apply.RangeVerifier;
+import net.minecraftforge.srg2source.util.Util;
+import net.minecraftforge.srg2source.util.io.FolderSupplier;
+
+public class RangeVerifierTest {
+    private static final String A = "package a;\n\npublic class A {}\n";
+    private static final String B = "package b;\n\npublic class B {}\n";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testUpToDate() throws IOException {
+        Path src = sources();
+        RangeVerifier verifier = verify(src, range("a/A.java", A, 8, "a") + range("b/B.java", B, 8, "b"), 10);
+        Assert.assertTrue(verifier.isUpToDate());
+        Assert.assertEquals(Collections.emptySet(), verifier.getStale());
+        Assert.assertEquals(Collections.emptyList(), verifier.getMismatches());
+    }
+
+    @Test
+    public void testStale() throws IOException {
+        Path src = sources();
+        Files.write(src.resolve("b/B.java"), (B + "// Changed\n").getBytes(StandardCharsets.UTF_8));
+        RangeVerifier verifier = verify(src, range("a/A.java", A, 8, "a") + range("b/B.java", B, 8, "b"), 10);
+        Assert.assertFalse(verifier.isUpToDate());
+        Assert.assertEquals(Collections.singleton("b/B.java"), verifier.getStale());
+        // Stale files aren't spot checked, everything in them is expected to have moved.
+        Assert.assertEquals(Collections.emptyList(), verifier.getMismatches());
+    }
+
+    @Test
+    public void testMissingAndExtra() throws IOException {
+        Path src = sources();
+        Files.delete(src.resolve("b/B.java"));
+        Files.createDirectories(src.resolve("c"));
+        Files.write(src.resolve("c/C.java"), "package c;\n".getBytes(StandardCharsets.UTF_8));
+
+        RangeVerifier verifier = verify(src, range("a/A.java", A, 8, "a") + range("b/B.java", B, 8, "b"), 0);
+        Assert.assertFalse(verifier.isUpToDate());
+        Assert.assertEquals(Collections.emptySet(), verifier.getStale());
+        Assert.assertEquals(Collections.singleton("b/B.java"), verifier.getMissing());
+        Assert.assertEquals(Collections.singleton("c/C.java"), verifier.getExtra());
+    }
+
+    @Test
+    public void testSpotCheck() throws IOException {
+        Path src = sources();
+        // The hash still matches, but the entry points at the wrong text.
+        String ranges = range("a/A.java", A, 0, "a") + range("b/B.java", B, 8, "b");
+
+        RangeVerifier verifier = verify(src, ranges, 0);
+        Assert.assertTrue("Spot checks ran when disabled", verifier.isUpToDate());
+
+        verifier = verify(src, ranges, 1);
+        Assert.assertFalse(verifier.isUpToDate());
+        Assert.assertEquals(1, verifier.getMismatches().size());
+        Assert.assertTrue(verifier.getMismatches().get(0), verifier.getMismatches().get(0).startsWith("a/A.java @ 0:"));
+    }
+
+    @Test
+    public void testClosesInput() throws IOException {
+        Path src = sources();
+        Path range = temp.getRoot().toPath().resolve("closed.range");
+        Files.write(range, range("a/A.java", A, 8, "a").getBytes(StandardCharsets.UTF_8));
+
+        boolean[] closed = { false };
+        InputSupplier folder = FolderSupplier.create(src, StandardCharsets.UTF_8);
+        InputSupplier input = new InputSupplier() {
+            @Override public String getRoot(String resource) { return folder.getRoot(resource); }
+            @Override public InputStream getInput(String relPath) { return folder.getInput(relPath); }
+            @Override public List<String> gatherAll(String endFilter) { return folder.gatherAll(endFilter); }
+            @Override
+            public void close() throws IOException {
+                closed[0] = true;
+                folder.close();
+            }
+        };
+
+        RangeVerifier verifier = new RangeVerifierBuilder().input(input).range(range).logger(quiet()).build();
+        Assert.assertFalse(verifier.run());
+        Assert.assertEquals(Collections.singleton("b/B.java"), verifier.getExtra());
+        Assert.assertTrue("Input was not closed", closed[0]);
+    }
+
+    private Path sources() throws IOException {
+        Path src = temp.newFolder("src").toPath();
+        Files.createDirectories(src.resolve("a"));
+        Files.createDirectories(src.resolve("b"));
+        Files.write(src.resolve("a/A.java"), A.getBytes(StandardCharsets.UTF_8));
+        Files.write(src.resolve("b/B.java"), B.getBytes(StandardCharsets.UTF_8));
+        return src;
+    }
+
+    private RangeVerifier verify(Path src, String ranges, int spotChecks) throws IOException {
+        Path range = Files.createTempFile(temp.getRoot().toPath(), "verify", ".range");
+        Files.write(range, ranges.getBytes(StandardCharsets.UTF_8));
+        RangeVerifier verifier = new RangeVerifierBuilder().input(src).range(range).spotChecks(spotChecks).logger(quiet()).build();
+        verifier.run();
+        return verifier;
+    }
+
+    // A range map with a single package entry, which is enough to spot check.
+    private static String range(String filename, String data, int start, String pkg) {
+        return "start 1 " + filename + ' ' + Util.md5(data, StandardCharsets.UTF_8) + '\n' +
+               "package " + start + ' ' + pkg.length() + ' ' + pkg + '\n' +
+               "end\n";
+    }
+
+    private static PrintStream quiet() {
+        return new PrintStream(new ByteArrayOutputStream());
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.minecraftforge.srg2source.api.RangeExtractorBuilder;
+import net.minecraftforge.srg2source.extract.RangeExtractor;
+import net.minecraftforge.srg2source.range.RangeMap;
+import net.minecraftforge.srg2source.range.entries.LocalVariableReference;
+import net.minecraftforge.srg2source.range.entries.ParameterReference;
+import net.minecraftforge.srg2source.range.entries.RangeEntry;
+
+/*
+ * Parameters and locals are tracked on a stack shared by every walker in a file, and have to resolve to the method
+ * that declared them, no matter how deeply nested the reference is, or what else has been declared with the same name.
+ */
+public class ScopeTest {
+    private static final String SOURCE;
+    static {
+        StringBuilder many = new StringBuilder("        int v0 = 0;\n");
+        for (int x = 1; x < 100; x++)
+            many.append("        int v").append(x).append(" = v").append(x - 1).append(";\n");
+
+        SOURCE =
+            "package a;\n" +
+            "public class Scopes {\n" +
+            "    int field;\n" +
+            "    void outer(int p, String q) {\n" +
+            "        int local = p;\n" +
+            "        Runnable r = new Runnable() {\n" +
+            "            public void run() {\n" +
+            "                int inner = p + local;\n" +
+            "                field = inner;\n" +
+            "            }\n" +
+            "        };\n" +
+            "        java.util.function.IntUnaryOperator op = x -> x + p + local;\n" +
+            "        for (int i = 0; i < p; i++) { int twice = i; }\n" +
+            "        for (int i = 0; i < p; i++) { int twice = i * 2; }\n" +
+            "        class Local {\n" +
+            "            int m(int p) { return p; }\n" +
+            "        }\n" +
+            "        int after = local + p;\n" +
+            "    }\n" +
+            "    void other(int p) { int local = p; }\n" +
+            "    void many() {\n" +
+            many +
+            "        field = v99;\n" +
+            "    }\n" +
+            "}\n";
+    }
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test public void testScopes()        throws Exception { testScopes(false); }
+    @Test public void testScopesBatched() throws Exception { testScopes(true);  }
+
+    private void testScopes(boolean batch) throws Exception {
+        Path root = temp.getRoot().toPath();
+        MixinIndexTest.write(root, "a/Scopes.java", SOURCE);
+
+        String[] ret = batch ? PatchedJDT.call(Extract.class, root) : new Extract(root).call();
+        Assert.assertFalse("Walker errors:\n" + ret[1], ret[1].contains("ERROR"));
+        Map<String, RangeMap> ranges = RangeMap.readAll(new ByteArrayInputStream(ret[0].getBytes(StandardCharsets.UTF_8)));
+        RangeMap range = ranges.get("a/Scopes.java");
+        Assert.assertNotNull(ret[0], range);
+
+        // Captured by an anonymous class, and a lambda
+        assertParam(range, "int inner = ", "a/Scopes", "outer", 0);
+        assertLocal(range, "int inner = p + ", "outer");
+        assertParam(range, "x -> x + ", "a/Scopes", "outer", 0);
+        assertLocal(range, "x -> x + p + ", "outer");
+
+        // A local class's parameter hides the method's, but only inside it
+        assertParam(range, "{ return ", "a/Scopes$1Local", "m", 0);
+        assertParam(range, "int after = local + ", "a/Scopes", "outer", 0);
+        assertLocal(range, "int after = ", "outer");
+
+        // The same names in sibling scopes and other methods
+        assertLocal(range, "{ int twice = i * 2", 14, "outer");
+        assertParam(range, "void other(int p) { int local = ", "a/Scopes", "other", 0);
+
+        // More variables than the stack starts with
+        assertLocal(range, "field = v99", 8, "many");
+        assertLocal(range, "int v99 = ", "many");
+    }
+
+    private static void assertParam(RangeMap range, String before, String owner, String method, int index) {
+        RangeEntry entry = find(range, before, 0);
+        Assert.assertTrue(before + ": " + entry, entry instanceof ParameterReference);
+        ParameterReference param = (ParameterReference)entry;
+        Assert.assertEquals(before, owner, param.getOwner());
+        Assert.assertEquals(before, method, param.getName());
+        Assert.assertEquals(before, index, param.getIndex());
+    }
+
+    private static void assertLocal(RangeMap range, String before, String method) {
+        assertLocal(range, before, 0, method);
+    }
+
+    private static void assertLocal(RangeMap range, String before, int offset, String method) {
+        RangeEntry entry = find(range, before, offset);
+        Assert.assertTrue(before + ": " + entry, entry instanceof LocalVariableReference);
+        Assert.assertEquals(before, method, ((LocalVariableReference)entry).getName());
+    }
+
+    // The entry just after the given text, or offset into it
+    private static RangeEntry find(RangeMap range, String before, int offset) {
+        int idx = SOURCE.indexOf(before);
+        Assert.assertNotEquals("Missing " + before, -1, idx);
+        int start = offset == 0 ? idx + before.length() : idx + offset;
+        for (RangeEntry entry : range.getEntries()) {
+            if (entry.getStart() == start)
+                return entry;
+        }
+        Assert.fail("No entry at " + start + " after " + before);
+        return null;
+    }
+
+    public static class Extract implements Callable<String[]> {
+        private final Path root;
+
+        public Extract(Path root) {
+            this.root = root;
+        }
+
+        @Override
+        public String[] call() throws IOException {
+            StringWriter output = new StringWriter();
+            ByteArrayOutputStream log = new ByteArrayOutputStream();
+            RangeExtractor extractor = new RangeExtractorBuilder()
+                .input(root)
+                .logger(new PrintStream(log))
+                .errorLogger(new PrintStream(log))
+                .output(new PrintWriter(output))
+                .build();
+
+            Assert.assertEquals("Batched", RangeExtractor.hasBeenASMPatched(), extractor.canBatchASTs());
+            Assert.assertTrue("Failed to extract:\n" + log, extractor.run());
+            return new String[] { output.toString(), log.toString() };
+        }
+    }
+}
@@ -19,6 +19,7 @@
 
 package net.minecraftforge.srg2source.test;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -27,6 +28,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.net.HttpURLConnection;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -36,22 +38,31 @@ import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Assert;
 
 import com.google.common.jimfs.Configuration;
 import com.google.common.jimfs.Jimfs;
 
+import net.minecraftforge.srg2source.RangeMergeMain;
 import net.minecraftforge.srg2source.api.RangeApplierBuilder;
 import net.minecraftforge.srg2source.api.RangeExtractorBuilder;
+import net.minecraftforge.srg2source.api.RangeRemapperBuilder;
 import net.minecraftforge.srg2source.api.SourceVersion;
 import net.minecraftforge.srg2source.apply.RangeApplier;
 import net.minecraftforge.srg2source.extract.RangeExtractor;
+import net.minecraftforge.srg2source.range.RangeMap;
+import net.minecraftforge.srg2source.range.RangeMapMerger;
+import net.minecraftforge.srg2source.range.RangeMapWriter;
 import net.minecraftforge.srg2source.util.Util;
 import net.minecraftforge.srg2source.util.io.FolderSupplier;
 
@@ -62,6 +73,7 @@ public abstract class SimpleTestBase {
     protected abstract List<String> getLibraries();
     protected RangeExtractorBuilder customize(RangeExtractorBuilder builder) { return builder; };
     protected RangeApplierBuilder customize(RangeApplierBuilder builder) { return builder; };
+    protected RangeRemapperBuilder customize(RangeRemapperBuilder builder) { return builder; };
 
     private Path getRoot() {
         URL url = this.getClass().getResource("/test.marker");
@@ -90,6 +102,7 @@ public abstract class SimpleTestBase {
             Path range = root.resolve("mapped.range");
             testExtract(mapped, range, libraries, sourceVersion);
             testApply(original, range, mapped, root.resolve("mapped.tsrg"));
+            testRemap(mapped, range, original, root.resolve("mapped.tsrg"), libraries, sourceVersion);
         }
     }
 
@@ -135,42 +148,140 @@ public abstract class SimpleTestBase {
     }
 
     private void testExtract(Path src, Path range, List<File> libs, final SourceVersion sourceVersion) {
-        ByteArrayOutputStream data = new ByteArrayOutputStream();
-        ByteArrayOutputStream logs = new ByteArrayOutputStream();
+        try (FileSystem imfs = Jimfs.newFileSystem(Configuration.unix())) {
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            ByteArrayOutputStream logs = new ByteArrayOutputStream();
+            Path split = imfs.getPath("/split");
+
+            RangeExtractor extractor = customize(new RangeExtractorBuilder())
+                .sourceCompatibility(sourceVersion)
+                .input(new TestFolderSupplier(src))
+                .logger(new PrintStream(logs))
+                .output(new PrintWriter(data))
+                .splitOutput(split)
+                .logWarnings()
+                .build();
+
+            libs.forEach(extractor::addLibrary);
 
-        RangeExtractor extractor = customize(new RangeExtractorBuilder())
-            .sourceCompatibility(sourceVersion)
-            .input(new TestFolderSupplier(src))
-            .logger(new PrintStream(logs))
-            .output(new PrintWriter(data))
-            .logWarnings()
-            .build();
+            boolean worked = extractor.run();
+            String log = logs.toString();
 
-        libs.forEach(extractor::addLibrary);
+            if (!worked) {
+                System.out.println(log);
+                Assert.fail("Failed to do work!");
+            }
+            String expected = getFileContents(range);
+            if (!expected.equals(data.toString())) {
+                System.out.println(log);
+                Assert.assertEquals(range.getFileName().toString(), expected, data.toString());
+            }
 
-        boolean worked = extractor.run();
-        String log = logs.toString();
+            // The split format should round trip to exactly the same thing
+            Map<String, RangeMap> ranges = RangeMap.readAll(split);
+            StringWriter joined = new StringWriter();
+            try (PrintWriter out = new PrintWriter(joined)) {
+                ranges.keySet().stream().sorted().forEach(k -> ranges.get(k).write(out, true));
+            }
+            Assert.assertEquals(range.getFileName().toString() + " split", expected, joined.toString());
 
-        if (!worked) {
-            System.out.println(log);
-            Assert.fail("Failed to do work!");
+            // And so should compact output, which is the same thing without comments or indentation
+            StringWriter compact = new StringWriter();
+            try (RangeMapWriter out = new RangeMapWriter(compact, false)) {
+                ranges.keySet().stream().sorted().forEach(k -> out.write(ranges.get(k)));
+            }
+            Map<String, RangeMap> reread = RangeMap.readAll(new ByteArrayInputStream(compact.toString().getBytes(StandardCharsets.UTF_8)));
+            StringWriter pretty = new StringWriter();
+            try (PrintWriter out = new PrintWriter(pretty)) {
+                reread.keySet().stream().sorted().forEach(k -> reread.get(k).write(out, true));
+            }
+            Assert.assertEquals(range.getFileName().toString() + " compact", expected, pretty.toString());
+
+            // Merging both outputs should find nothing but duplicates, and give back the original
+            Path single = imfs.getPath("/single.range");
+            Files.write(single, data.toByteArray());
+            RangeMapMerger merger = new RangeMapMerger().add(single).add(split);
+            StringWriter merged = new StringWriter();
+            try (RangeMapWriter out = new RangeMapWriter(merged, true)) {
+                Assert.assertEquals(range.getFileName().toString() + " merged count", ranges.size(), merger.merge(out::write));
+            }
+            Assert.assertEquals(range.getFileName().toString() + " conflicts", Collections.emptyList(), merger.getConflicts());
+            Assert.assertEquals(range.getFileName().toString() + " duplicates", ranges.size(), merger.getDuplicates());
+            Assert.assertEquals(range.getFileName().toString() + " merged", expected, merged.toString());
+
+            testShards(src, range, libs, sourceVersion, expected);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
-        String expected = getFileContents(range);
-        if (!expected.equals(data.toString())) {
-            System.out.println(log);
-            Assert.assertEquals(range.getFileName().toString(), expected, data.toString());
+    }
+
+    // Extracting in two shards, and merging them back together, should be exactly the same as a single run
+    private void testShards(Path src, Path range, List<File> libs, final SourceVersion sourceVersion, String expected) throws IOException {
+        Path temp = Files.createTempDirectory("s2s-shards");
+        try {
+            List<String> args = new ArrayList<>();
+            for (int x = 0; x < 2; x++) {
+                ByteArrayOutputStream logs = new ByteArrayOutputStream();
+                Path shard = temp.resolve("shard" + x + ".range");
+                RangeExtractor extractor = customize(new RangeExtractorBuilder())
+                    .sourceCompatibility(sourceVersion)
+                    .input(new TestFolderSupplier(src))
+                    .logger(new PrintStream(logs))
+                    .output(shard)
+                    .shard(x, 2)
+                    .logWarnings()
+                    .build();
+
+                libs.forEach(extractor::addLibrary);
+
+                if (!extractor.run()) {
+                    System.out.println(logs.toString());
+                    Assert.fail("Failed to do work!");
+                }
+                args.add("--in");
+                args.add(shard.toString());
+            }
+
+            Path single = temp.resolve("merged.range");
+            RangeMergeMain.main(concat(args, "--out", single.toString()));
+            Assert.assertEquals(range.getFileName().toString() + " sharded", expected, getFileContents(single));
+
+            Path split = temp.resolve("merged");
+            RangeMergeMain.main(concat(args, "--out", split.toString(), "--split"));
+            Map<String, RangeMap> ranges = RangeMap.readAll(split);
+            StringWriter joined = new StringWriter();
+            try (PrintWriter out = new PrintWriter(joined)) {
+                ranges.keySet().stream().sorted().forEach(k -> ranges.get(k).write(out, true));
+            }
+            Assert.assertEquals(range.getFileName().toString() + " sharded split", expected, joined.toString());
+        } finally {
+            try (Stream<Path> stream = Files.walk(temp)) {
+                for (Path path : stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                    Files.delete(path);
+            }
         }
     }
 
+    private static String[] concat(List<String> args, String... extra) {
+        List<String> ret = new ArrayList<>(args);
+        ret.addAll(Arrays.asList(extra));
+        return ret.toArray(new String[ret.size()]);
+    }
+
     private void testApply(Path original, Path range, Path mapped, Path srg) {
         try (FileSystem imfs = Jimfs.newFileSystem(Configuration.unix())) {
             ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            Path out = imfs.getPath("/");
+            Path out = Files.createDirectory(imfs.getPath("/main"));
+            // The target has no mappings at all, so it should write the sources back out as they were, while the main output is renamed.
+            Path target = Files.createDirectory(imfs.getPath("/target"));
+            RangeApplierBuilder targetBuilder = customize(new RangeApplierBuilder()).logger(new PrintStream(bos)).output(target);
+
             RangeApplier applier = customize(new RangeApplierBuilder())
                 .logger(new PrintStream(bos))
                 .input(new TestFolderSupplier(mapped))
                 .output(out)
                 .range(range)
+                .target(targetBuilder)
                 .build();
 
             if (Files.exists(srg))
@@ -179,12 +290,42 @@ public abstract class SimpleTestBase {
             applier.run();
 
             compareDirs(original, out);
+            compareDirs(mapped, target);
             //Compare log?
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private void testRemap(Path src, Path range, Path expected, Path srg, List<File> libs, final SourceVersion sourceVersion) {
+        try (FileSystem imfs = Jimfs.newFileSystem(Configuration.unix())) {
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            ByteArrayOutputStream logs = new ByteArrayOutputStream();
+            Path out = imfs.getPath("/");
+            RangeRemapperBuilder builder = customize(new RangeRemapperBuilder())
+                .sourceCompatibility(sourceVersion)
+                .logger(new PrintStream(logs))
+                .input(new TestFolderSupplier(src))
+                .rangeOutput(new PrintWriter(data))
+                .output(out)
+                .logWarnings();
+
+            libs.forEach(builder::library);
+            if (Files.exists(srg))
+                builder.srg(srg);
+
+            if (!builder.build().run()) {
+                System.out.println(logs.toString());
+                Assert.fail("Failed to do work!");
+            }
+
+            Assert.assertEquals(range.getFileName().toString(), getFileContents(range), data.toString());
+            compareDirs(expected, out);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private void compareDirs(Path expected, Path actual) throws IOException {
         Set<String> lstExpected = Files.walk(expected).filter(Files::isRegularFile).map(p -> expected.relativize(p).toString().replace('\\', '/').replace(".txt", ".java")).collect(Collectors.toSet());
         Set<String> lstActual = Files.walk(actual).filter(Files::isRegularFile).map(p -> actual.relativize(p).toString().replace('\\', '/')).collect(Collectors.toSet());
@@ -221,6 +362,13 @@ public abstract class SimpleTestBase {
             return super.getInput(path);
         }
 
+        @Override
+        public byte[] getBytes(String path) throws IOException {
+            if (path.endsWith(".java"))
+                return super.getBytes(path.substring(0, path.length() - 4) + "txt");
+            return super.getBytes(path);
+        }
+
         @Override
         public List<String> gatherAll(String endFilter) {
             if (!".java".equals(endFilter))
@@ -0,0 +1,204 @@
+/*
+ * Srg2Source
+ * Copyright (c) 2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.srg2source.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.minecraftforge.srg2source.util.io.ParallelZipOutputSupplier;
+import net.minecraftforge.srg2source.util.io.ZipFileInputSupplier;
+import net.minecraftforge.srg2source.util.io.ZipFileInputSupplier.RawEntry;
+
+public class ZipPipelineTest {
+    private static final String STORED = "stored data, not compressed at all";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Map<String, String> files = files();
+        Path jar = temp.getRoot().toPath().resolve("out.jar");
+        try (ParallelZipOutputSupplier out = new ParallelZipOutputSupplier(jar)) {
+            for (Map.Entry<String, String> e : files.entrySet())
+                write(out, e.getKey(), e.getValue());
+        }
+        Assert.assertEquals(files, readZipFile(jar));
+    }
+
+    @Test
+    public void testReadsZipOutputStream() throws IOException {
+        Path jar = writeZipOutputStream("in.jar");
+        Map<String, String> expected = files();
+        expected.put("stored.txt", STORED);
+
+        try (ZipFileInputSupplier in = ZipFileInputSupplier.create(jar, null)) {
+            List<String> names = in.gatherAll("");
+            Collections.sort(names);
+            Assert.assertEquals(Arrays.asList("a/A.java", "b/B.java", "empty.txt", "stored.txt"), names);
+
+            for (Map.Entry<String, String> e : expected.entrySet()) {
+                Assert.assertEquals(e.getKey(), e.getValue(), new String(in.getBytes(e.getKey()), StandardCharsets.UTF_8));
+                Assert.assertEquals(e.getKey(), e.getValue().length(), in.size(e.getKey()));
+            }
+            Assert.assertEquals(ZipEntry.STORED, in.getRaw("stored.txt").getMethod());
+            Assert.assertEquals(ZipEntry.DEFLATED, in.getRaw("a/A.java").getMethod());
+            Assert.assertNull(in.getBytes("missing.txt"));
+        }
+    }
+
+    @Test
+    public void testCopyRaw() throws IOException {
+        Path source = writeZipOutputStream("in.jar");
+        Path jar = temp.getRoot().toPath().resolve("out.jar");
+
+        try (ZipFileInputSupplier in = ZipFileInputSupplier.create(source, null)) {
+            try (ParallelZipOutputSupplier out = new ParallelZipOutputSupplier(jar)) {
+                for (String name : in.gatherAll(""))
+                    out.copyRaw(in.getRaw(name));
+            }
+
+            try (ZipFileInputSupplier copy = ZipFileInputSupplier.create(jar, null)) {
+                for (String name : in.gatherAll("")) {
+                    RawEntry expected = in.getRaw(name);
+                    RawEntry actual = copy.getRaw(name);
+                    Assert.assertEquals(name, expected.getMethod(), actual.getMethod());
+                    Assert.assertEquals(name, expected.getCrc(), actual.getCrc());
+                    Assert.assertEquals(name, expected.getSize(), actual.getSize());
+                    Assert.assertArrayEquals(name, expected.getData(), actual.getData());
+                }
+            }
+        }
+
+        Assert.assertEquals(readZipFile(source), readZipFile(jar));
+    }
+
+    @Test
+    public void testDetectsCorruption() throws IOException {
+        Path jar = writeZipOutputStream("in.jar");
+        byte[] data = Files.readAllBytes(jar);
+        byte[] stored = STORED.getBytes(StandardCharsets.UTF_8);
+        int idx = indexOf(data, stored);
+        Assert.assertTrue("Stored entry not found in zip", idx != -1);
+        data[idx] ^= 1;
+        Files.write(jar, data);
+
+        try (ZipFileInputSupplier in = ZipFileInputSupplier.create(jar, null)) {
+            Assert.assertEquals("a/A.java", files().get("a/A.java"), new String(in.getBytes("a/A.java"), StandardCharsets.UTF_8));
+            try {
+                in.getBytes("stored.txt");
+                Assert.fail("Corrupt entry was read without error");
+            } catch (IOException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().contains("CRC"));
+            }
+            Assert.assertNull("Corrupt entry was returned as a stream", in.getInput("stored.txt"));
+        }
+    }
+
+    private static Map<String, String> files() {
+        StringBuilder big = new StringBuilder();
+        for (int x = 0; x < 1000; x++)
+            big.append("    public int field").append(x).append(" = ").append(x).append(";\n");
+
+        Map<String, String> ret = new LinkedHashMap<>();
+        ret.put("a/A.java", "package a;\n\npublic class A {\n" + big + "}\n");
+        ret.put("b/B.java", "package b;\n\npublic class B {}\n");
+        ret.put("empty.txt", "");
+        return ret;
+    }
+
+    // ZipOutputStream writes the sizes and CRC of deflated entries after their data, in a data descriptor.
+    private Path writeZipOutputStream(String name) throws IOException {
+        Path jar = temp.getRoot().toPath().resolve(name);
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar))) {
+            for (Map.Entry<String, String> e : files().entrySet()) {
+                zip.putNextEntry(new ZipEntry(e.getKey()));
+                zip.write(e.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+
+            byte[] data = STORED.getBytes(StandardCharsets.UTF_8);
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            ZipEntry entry = new ZipEntry("stored.txt");
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(data.length);
+            entry.setCompressedSize(data.length);
+            entry.setCrc(crc.getValue());
+            zip.putNextEntry(entry);
+            zip.write(data);
+            zip.closeEntry();
+        }
+        return jar;
+    }
+
+    private static Map<String, String> readZipFile(Path path) throws IOException {
+        Map<String, String> ret = new LinkedHashMap<>();
+        try (ZipFile zip = new ZipFile(path.toFile())) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                try (InputStream in = zip.getInputStream(entry)) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    byte[] buf = new byte[8192];
+                    int len;
+                    while ((len = in.read(buf)) != -1)
+                        out.write(buf, 0, len);
+                    ret.put(entry.getName(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return ret;
+    }
+
+    private static void write(ParallelZipOutputSupplier output, String path, String data) throws IOException {
+        try (OutputStream out = output.getOutput(path)) {
+            out.write(data.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static int indexOf(byte[] data, byte[] find) {
+        for (int x = 0; x <= data.length - find.length; x++) {
+            int y = 0;
+            while (y < find.length && data[x + y] == find[y])
+                y++;
+            if (y == find.length)
+                return x;
+        }
+        return -1;
+    }
+}